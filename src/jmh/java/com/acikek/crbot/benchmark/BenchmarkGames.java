@@ -0,0 +1,46 @@
+package com.acikek.crbot.benchmark;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.game.BotPlayer;
+import com.acikek.crbot.game.GameHandler;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class BenchmarkGames {
+
+    public static Game play(long seed, int maxPlies) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Game game = new Game(null, false, seed);
+        game.begin();
+        ActionBuffer moves = new ActionBuffer();
+        for (int ply = 0; ply < maxPlies; ply++) {
+            int count = GameState.of(game).getAvailableMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            Game.ActionResult result = BotPlayer.play(game, moves.get(random.nextInt(count)), count > 1);
+            if (GameHandler.isGameOver(result)) {
+                break;
+            }
+        }
+        return game;
+    }
+
+    public static Game playLongest(int seeds) {
+        Game longest = null;
+        for (int seed = 0; seed < seeds; seed++) {
+            Game game = play(seed, 4000);
+            if (longest == null || game.turns.size() > longest.turns.size()) {
+                longest = game;
+            }
+        }
+        return longest;
+    }
+
+    public static String getFileData(Game game) {
+        return game.getFileData(Map.of("rec", "Benchmark"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.acikek.crbot.benchmark;
+
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.engine.LinearEvaluator;
+import com.acikek.crbot.engine.PositionBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores per position of one {@link GameState} at a time, and of a {@link PositionBatch} with and without the Vector API.
+ * The batch results are only vectorized if {@link LinearEvaluator#VECTORIZED} is set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(EvaluationBenchmark.POSITIONS)
+public class EvaluationBenchmark {
+
+    public static final int POSITIONS = 4096;
+
+    public LinearEvaluator evaluator = LinearEvaluator.DEFAULT;
+    public GameState[] states = new GameState[POSITIONS];
+    public PositionBatch batch = new PositionBatch(POSITIONS);
+    public int[] scores = new int[POSITIONS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < POSITIONS; i++) {
+            states[i] = GameState.of(BenchmarkGames.play(i, 10 + (i % 8) * 20));
+            batch.add(states[i], states[i].getCurrentIndex());
+        }
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int sum = 0;
+        for (GameState state : states) {
+            sum += evaluator.evaluate(state, state.getCurrentIndex());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int[] evaluateBatchScalar() {
+        evaluator.evaluateScalar(batch, 0, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public int[] evaluateBatch() {
+        evaluator.evaluate(batch, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public PositionBatch fillBatch() {
+        batch.clear();
+        for (GameState state : states) {
+            batch.add(state, state.getCurrentIndex());
+        }
+        return batch;
+    }
+}
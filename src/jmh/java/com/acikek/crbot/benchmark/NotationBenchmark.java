@@ -0,0 +1,62 @@
+package com.acikek.crbot.benchmark;
+
+import com.acikek.crbot.core.ChaseParser;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.Turn;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NotationBenchmark {
+
+    public String fileData;
+    public List<String> lines;
+    public List<Turn> turns;
+    public long seed;
+    public List<Game.Snapshot> snapshots;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Game game = BenchmarkGames.playLongest(16);
+        fileData = BenchmarkGames.getFileData(game);
+        lines = Game.getTurnLines(fileData);
+        turns = lines.stream()
+                .map(Turn::parse)
+                .toList();
+        ChaseParser parser = ChaseParser.parse(fileData);
+        Game.readDraws(turns, parser.headers);
+        seed = game.seed;
+        snapshots = parser.getHeaders(Game.SNAPSHOT_HEADER).stream()
+                .map(Game.Snapshot::parse)
+                .toList();
+    }
+
+    @Benchmark
+    public List<String> getTurnLines() {
+        return Game.getTurnLines(fileData);
+    }
+
+    @Benchmark
+    public List<Turn> parseTurns() {
+        List<Turn> result = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            result.add(Turn.parse(line));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Game replay() {
+        return new Game(turns, false, seed);
+    }
+
+    @Benchmark
+    public Game resume() {
+        return new Game(turns, false, seed, snapshots);
+    }
+}
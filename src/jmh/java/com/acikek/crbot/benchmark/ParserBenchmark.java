@@ -0,0 +1,103 @@
+package com.acikek.crbot.benchmark;
+
+import com.acikek.crbot.core.ChaseParser;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.Turn;
+import com.acikek.crbot.record.GameRecord;
+import com.acikek.crbot.record.RecordReader;
+import com.acikek.crbot.record.RecordWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ChaseParser} with splitting lines and calling {@link Turn#parse(String)}, which is what loading a
+ * game did before, on files made of the turns of one or many games. Chases are left out, since the old parser reads
+ * their drawn cards as a rank. The same games are also read back from binary records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParserBenchmark {
+
+    @Param({"1", "64"})
+    public int games;
+
+    public String fileData;
+    public byte[] bytes;
+    public byte[] records;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        StringBuilder builder = new StringBuilder("@rec Benchmark\n@black Black # 1\n@red Red\n");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RecordWriter writer = new RecordWriter(output);
+        for (int seed = 0; seed < games; seed++) {
+            GameRecord record = new GameRecord();
+            record.black = "Black";
+            record.red = "Red";
+            for (Turn turn : BenchmarkGames.play(seed, 4000).turns) {
+                String line = turn.toString();
+                if (!line.contains("c")) {
+                    builder.append('\n').append(line);
+                    record.turns.add(turn);
+                }
+            }
+            writer.write(record);
+        }
+        fileData = builder.toString();
+        bytes = fileData.getBytes(StandardCharsets.US_ASCII);
+        records = output.toByteArray();
+    }
+
+    @Benchmark
+    public List<Turn> legacy() {
+        List<Turn> result = new ArrayList<>();
+        for (String line : Game.getTurnLines(fileData)) {
+            result.add(Turn.parse(line));
+        }
+        return result;
+    }
+
+    /**
+     * Validating and then parsing, as resuming a game did.
+     */
+    @Benchmark
+    public List<Turn> legacyValidated() {
+        List<String> lines = Game.getTurnLines(fileData);
+        for (String line : lines) {
+            Turn.parse(line);
+        }
+        return lines.stream()
+                .map(Turn::parse)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Turn> streaming() {
+        return ChaseParser.parse(fileData).turns;
+    }
+
+    @Benchmark
+    public List<Turn> streamingBytes() throws IOException {
+        return new ChaseParser(ByteBuffer.wrap(bytes)).parse().turns;
+    }
+
+    @Benchmark
+    public List<Turn> binary() throws IOException {
+        List<Turn> result = new ArrayList<>();
+        RecordReader reader = new RecordReader(new ByteArrayInputStream(records));
+        GameRecord record;
+        while ((record = reader.read()) != null) {
+            result.addAll(record.turns);
+        }
+        return result;
+    }
+}
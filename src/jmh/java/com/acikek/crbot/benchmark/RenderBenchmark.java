@@ -0,0 +1,51 @@
+package com.acikek.crbot.benchmark;
+
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.game.CardImages;
+import com.acikek.crbot.game.GameData;
+import net.dv8tion.jda.api.utils.FileUpload;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+
+    public GameData data;
+    public List<Integer> hand = List.of(0, 7, 13);
+    public List<Integer> deck = List.of(2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 0, 2, 3, 4, 5, 6, 7, 8);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        CardImages.blackCards = CardImages.getCardImages("b");
+        CardImages.redCards = CardImages.getCardImages("r");
+        Game game = BenchmarkGames.play(3, 80);
+        Image avatar = new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB);
+        data = new GameData(
+                new GameData.PlayerData(null, GameData.getCircleAvatar(avatar, Color.BLACK)),
+                new GameData.PlayerData(null, GameData.getCircleAvatar(avatar, Color.RED)),
+                game,
+                false
+        );
+    }
+
+    @Benchmark
+    public FileUpload getBoard() {
+        return data.getBoard();
+    }
+
+    @Benchmark
+    public byte[] composeHandRowImage() {
+        return CardImages.composeCardRowImage(hand, CardImages.blackCards);
+    }
+
+    @Benchmark
+    public byte[] composeDeckRowImage() {
+        return CardImages.composeCardRowImage(deck, CardImages.redCards);
+    }
+}
@@ -0,0 +1,76 @@
+package com.acikek.crbot.benchmark;
+
+import com.acikek.crbot.core.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RulesBenchmark {
+
+    public static final int POSITIONS = 16;
+
+    public Game[] games = new Game[POSITIONS];
+    public Action[] actions = new Action[POSITIONS];
+    public GameState[] states = new GameState[POSITIONS];
+    public int[] packedActions = new int[POSITIONS];
+
+    public GameState scratch = new GameState();
+    public ActionBuffer buffer = new ActionBuffer();
+    public int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int count = 0;
+        for (long seed = 0; count < POSITIONS; seed++) {
+            Game game = BenchmarkGames.play(seed, 10 + (int) (seed % 8) * 20);
+            List<Action> available = new ArrayList<>(game.getAvailableActions());
+            available.remove(Action.PASS);
+            if (game.currentPlayer == Player.Type.SETUP || available.isEmpty()) {
+                continue;
+            }
+            game.setUndoEnabled(true);
+            games[count] = game;
+            actions[count] = available.get((int) (seed % available.size()));
+            states[count] = GameState.of(game);
+            packedActions[count] = PackedAction.of(actions[count]);
+            count++;
+        }
+    }
+
+    private int next() {
+        return index++ & (POSITIONS - 1);
+    }
+
+    @Benchmark
+    public List<Action> getAvailableActions() {
+        return games[next()].getAvailableActions();
+    }
+
+    /**
+     * Undoing keeps the positions fixed between invocations, so this measures one submit and one undo.
+     */
+    @Benchmark
+    public Game.ActionResult submitActionAndUndo() {
+        int i = next();
+        Game.ActionResult result = games[i].submitAction(actions[i]);
+        games[i].undo();
+        return result;
+    }
+
+    @Benchmark
+    public int packedGetAvailableActions() {
+        return states[next()].getAvailableActions(buffer);
+    }
+
+    @Benchmark
+    public Game.ActionResult packedSubmitAction() {
+        int i = next();
+        scratch.set(states[i]);
+        return scratch.submitAction(packedActions[i]);
+    }
+}
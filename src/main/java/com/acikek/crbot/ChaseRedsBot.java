@@ -3,9 +3,15 @@ package com.acikek.crbot;
 import com.acikek.crbot.command.CreativeCommands;
 import com.acikek.crbot.command.GameCommands;
 import com.acikek.crbot.command.GuideCommand;
+import com.acikek.crbot.command.StatsCommand;
+import com.acikek.crbot.core.GameSeal;
+import com.acikek.crbot.engine.OpeningBook;
+import com.acikek.crbot.engine.Tablebase;
 import com.acikek.crbot.game.CardImages;
 import com.acikek.crbot.game.GameData;
 import com.acikek.crbot.game.GameHandler;
+import com.acikek.crbot.record.GameArchive;
+import com.acikek.crbot.stats.GameStats;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.User;
@@ -17,8 +23,12 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChaseRedsBot extends ListenerAdapter implements EventListener {
 
@@ -26,17 +36,110 @@ public class ChaseRedsBot extends ListenerAdapter implements EventListener {
     public static final String TESTING_GUILD_ID = "992525569952587776";
 
     public static Guild testingGuild;
-    public static Map<User, GameData> games = new HashMap<>();
+
+    /**
+     * The game each user is in. JDA's event threads and the bot's threads both read and change it.
+     */
+    public static final Map<User, GameData> games = new ConcurrentHashMap<>();
 
     public static String playCommandMention;
 
+    /**
+     * Every finished game, or {@code null} if the archive couldn't be opened.
+     * The directory is set with {@code -Dcrbot.archive=PATH}.
+     */
+    public static GameArchive archive;
+    public static GameStats stats = new GameStats();
+
+    /**
+     * Opening moves for the bot and {@code /hint}, or {@code null} if there is no book.
+     * The file is set with {@code -Dcrbot.book=PATH}.
+     */
+    public static OpeningBook book;
+
+    /**
+     * Solved endgames for {@code /solve} and {@code /analyze}, or {@code null} if there is no tablebase.
+     * The file is set with {@code -Dcrbot.tablebase=PATH}.
+     */
+    public static Tablebase tablebase;
+
+    /**
+     * Seals the seeds in the game files the bot posts. The key is kept in a file set with {@code -Dcrbot.sealKey=PATH},
+     * or only for this run if it can't be.
+     */
+    public static GameSeal seal = GameSeal.generate();
+
+    public static void openArchive() {
+        Path directory = Path.of(System.getProperty("crbot.archive", "archive"));
+        try {
+            archive = GameArchive.open(directory);
+            LOGGER.info("Opened game archive with " + archive.size() + " games");
+        } catch (IOException e) {
+            LOGGER.error("Failed to open game archive at '" + directory + "'!", e);
+            return;
+        }
+        try {
+            stats = GameStats.load(archive);
+        } catch (UncheckedIOException e) {
+            LOGGER.error("Failed to read archived games for statistics!", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close game archive!", e);
+            }
+        }));
+    }
+
+    public static void openBook() {
+        Path path = Path.of(System.getProperty("crbot.book", "book.bin"));
+        if (!Files.exists(path)) {
+            LOGGER.info("No opening book at '" + path + "'");
+            return;
+        }
+        try {
+            book = OpeningBook.open(path);
+            LOGGER.info("Opened opening book with " + book.size + " moves");
+        } catch (IOException e) {
+            LOGGER.error("Failed to open opening book at '" + path + "'!", e);
+        }
+    }
+
+    public static void openTablebase() {
+        Path path = Path.of(System.getProperty("crbot.tablebase", "tablebase.bin"));
+        if (!Files.exists(path)) {
+            LOGGER.info("No endgame tablebase at '" + path + "'");
+            return;
+        }
+        try {
+            tablebase = Tablebase.open(path);
+            LOGGER.info("Opened endgame tablebase with " + tablebase.size + " combinations of up to " + tablebase.maxCards + " cards");
+        } catch (IOException e) {
+            LOGGER.error("Failed to open endgame tablebase at '" + path + "'!", e);
+        }
+    }
+
+    public static void openSeal() {
+        Path path = Path.of(System.getProperty("crbot.sealKey", "seal.key"));
+        try {
+            seal = GameSeal.open(path);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Failed to open seal key at '" + path + "'! Paused games will only resume until restart.", e);
+        }
+    }
+
     public static void main(String[] args) {
         LOGGER.info("Creating card images...");
         CardImages.blackCards = CardImages.getCardImages("b");
         CardImages.redCards = CardImages.getCardImages("r");
+        openArchive();
+        openBook();
+        openTablebase();
+        openSeal();
         LOGGER.info("Building bot...");
         JDABuilder.createDefault(args[0])
-                .addEventListeners(new ChaseRedsBot(), new GameHandler(), new GuideCommand())
+                .addEventListeners(new ChaseRedsBot(), new GameHandler(), new GuideCommand(), new StatsCommand())
                 .addEventListeners(
                         GameCommands.PLAY_COMMAND,
                         GameCommands.LEAVE_COMMAND,
@@ -44,9 +147,12 @@ public class ChaseRedsBot extends ListenerAdapter implements EventListener {
                         GameCommands.FREE_COMMAND,
                         GameCommands.REFRESH_COMMAND,
                         GameCommands.HAND_COMMAND,
+                        GameCommands.HINT_COMMAND,
                         CreativeCommands.SET_COMMAND,
                         CreativeCommands.CLEAR_COMMAND,
-                        CreativeCommands.DECK_COMMAND
+                        CreativeCommands.DECK_COMMAND,
+                        CreativeCommands.ANALYZE_COMMAND,
+                        CreativeCommands.SOLVE_COMMAND
                 )
                 .build();
     }
@@ -65,10 +171,14 @@ public class ChaseRedsBot extends ListenerAdapter implements EventListener {
                 GameCommands.FREE_COMMAND_DATA,
                 GameCommands.REFRESH_COMMAND_DATA,
                 GameCommands.HAND_COMMAND_DATA,
+                GameCommands.HINT_COMMAND_DATA,
                 CreativeCommands.SET_COMMAND_DATA,
                 CreativeCommands.CLEAR_COMMAND_DATA,
                 CreativeCommands.DECK_COMMAND_DATA,
-                GuideCommand.COMMAND_DATA
+                CreativeCommands.ANALYZE_COMMAND_DATA,
+                CreativeCommands.SOLVE_COMMAND_DATA,
+                GuideCommand.COMMAND_DATA,
+                StatsCommand.COMMAND_DATA
         ).complete();
         LOGGER.info("Retrieving 'play' command...");
         for (Command command : commands) {
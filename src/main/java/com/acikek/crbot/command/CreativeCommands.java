@@ -1,9 +1,12 @@
 package com.acikek.crbot.command;
 
-import com.acikek.crbot.core.Card;
-import com.acikek.crbot.core.Deck;
-import com.acikek.crbot.core.Player;
-import com.acikek.crbot.core.Position;
+import com.acikek.crbot.ChaseRedsBot;
+import com.acikek.crbot.core.*;
+import com.acikek.crbot.engine.AlphaBeta;
+import com.acikek.crbot.engine.LazySmp;
+import com.acikek.crbot.engine.Tablebase;
+import com.acikek.crbot.engine.TranspositionTable;
+import com.acikek.crbot.game.BotPlayer;
 import com.acikek.crbot.game.GameData;
 import com.acikek.crbot.game.GameHandler;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -16,6 +19,10 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 public class CreativeCommands {
 
@@ -36,6 +43,26 @@ public class CreativeCommands {
     public static final CommandData CLEAR_COMMAND_DATA = Commands.slash("clear", "Clear an army in creative mode")
             .addOptions(addArmyChoices(new OptionData(OptionType.STRING, "army", "The army to clear", true), true));
 
+    public static final CommandData ANALYZE_COMMAND_DATA = Commands.slash("analyze", "Search for the best line in creative mode")
+            .addOptions(new OptionData(OptionType.INTEGER, "time", "The search time in seconds", false)
+                    .setMinValue(1)
+                    .setMaxValue(10));
+
+    public static final CommandData SOLVE_COMMAND_DATA = Commands.slash("solve", "Look up the endgame tablebase in creative mode");
+
+    /**
+     * Runs {@code /analyze} searches one at a time on threads of their own, so a long analysis never holds up the bot's
+     * moves on {@link BotPlayer#EXECUTOR} and {@link BotPlayer#POOL}.
+     */
+    public static final ExecutorService ANALYSIS_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+    public static final ForkJoinPool ANALYSIS_POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static LazySmp analyzer;
+
     public static OptionData addPowerChoices(OptionData option, List<Integer> powers, boolean empty) {
         for (int power : powers) {
             option.addChoice(Card.getCharacter(power), power);
@@ -92,8 +119,11 @@ public class CreativeCommands {
                 card.servant = servant;
             }
             Player.Type player = army == null ? Player.Type.BLACK : resolveArmyType(army)[0];
-            data.game.getPlayer(player).army.board.put(position, card);
-            GameHandler.refreshBoard(event, data);
+            synchronized (data) {
+                data.game.getPlayer(player).army.board.put(position, card);
+                data.game.rehash();
+                GameHandler.refreshBoard(event, data);
+            }
         }
     };
 
@@ -112,10 +142,13 @@ public class CreativeCommands {
             if (army == null) {
                 return;
             }
-            for (Player.Type player : resolveArmyType(army)) {
-                data.game.getPlayer(player).army.clear();
+            synchronized (data) {
+                for (Player.Type player : resolveArmyType(army)) {
+                    data.game.getPlayer(player).army.clear();
+                }
+                data.game.rehash();
+                GameHandler.refreshBoard(event, data);
             }
-            GameHandler.refreshBoard(event, data);
         }
     };
 
@@ -130,8 +163,90 @@ public class CreativeCommands {
             if (data == null || !data.checkCreative(event)) {
                 return;
             }
-            Player player = data.getPlayer(event.getUser());
-            GameCommands.sendCardRow(event, player.type, player.deck.cards);
+            synchronized (data) {
+                Player player = data.getPlayer(event.getUser());
+                GameCommands.sendCardRow(event, player.type, player.deck.getCards());
+            }
+        }
+    };
+
+    public static synchronized LazySmp getAnalyzer() {
+        if (analyzer == null) {
+            analyzer = new LazySmp(new TranspositionTable(64), ANALYSIS_POOL);
+        }
+        return analyzer;
+    }
+
+    public static String getAnalysis(LazySmp analyzer, GameState state, long millis) {
+        analyzer.tablebase = ChaseRedsBot.tablebase;
+        LazySmp.Result result = analyzer.search(state, AlphaBeta.MAX_PLY, millis, 0);
+        if (result.best().line().length == 0) {
+            return "There are no moves to analyze.";
+        }
+        String line = AlphaBeta.getTurns(state, result.best().line()).stream()
+                .map(Turn::toString)
+                .collect(Collectors.joining("\n"));
+        return "**Best line** (" + result + ")\n```\n" + line + "\n```";
+    }
+
+    public static final ListenerAdapter ANALYZE_COMMAND = new ListenerAdapter() {
+
+        @Override
+        public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+            if (!event.getName().equals("analyze")) {
+                return;
+            }
+            GameData data = GameCommands.checkGame(event, event.getUser());
+            if (data == null || !data.checkCreative(event)) {
+                return;
+            }
+            int seconds = event.getOption("time", 2, OptionMapping::getAsInt);
+            GameState state;
+            synchronized (data) {
+                state = GameState.of(data.game);
+            }
+            event.deferReply().queue();
+            LazySmp analyzer = getAnalyzer();
+            analyzer.clearStop();
+            ANALYSIS_EXECUTOR.execute(() -> event.getHook().editOriginal(getAnalysis(analyzer, state, seconds * 1000L)).queue());
+        }
+    };
+
+    public static String getSolution(GameState state) {
+        Tablebase tablebase = ChaseRedsBot.tablebase;
+        if (tablebase == null) {
+            return "There is no endgame tablebase loaded.";
+        }
+        int value = tablebase.probe(state);
+        if (value == Tablebase.NOT_FOUND) {
+            return "The tablebase only covers positions with empty decks and at most " + tablebase.maxCards + " cards left.";
+        }
+        if (value == 0) {
+            return "**Solved**: neither player can force a win.";
+        }
+        String result = (value > 0 ? "Win" : "Loss") + " in " + Math.abs(value) + " " + (Math.abs(value) == 1 ? "ply" : "plies");
+        String line = AlphaBeta.getTurns(state, tablebase.getLine(state, AlphaBeta.MAX_PLY)).stream()
+                .map(Turn::toString)
+                .collect(Collectors.joining("\n"));
+        return "**Solved**: " + result + (line.isEmpty() ? "" : "\n```\n" + line + "\n```");
+    }
+
+    public static final ListenerAdapter SOLVE_COMMAND = new ListenerAdapter() {
+
+        @Override
+        public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+            if (!event.getName().equals("solve")) {
+                return;
+            }
+            GameData data = GameCommands.checkGame(event, event.getUser());
+            if (data == null || !data.checkCreative(event)) {
+                return;
+            }
+            GameState state;
+            synchronized (data) {
+                state = GameState.of(data.game);
+            }
+            event.reply(getSolution(state)).queue();
         }
     };
 }
@@ -1,8 +1,12 @@
 package com.acikek.crbot.command;
 
 import com.acikek.crbot.ChaseRedsBot;
-import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.ActionTable;
+import com.acikek.crbot.core.ChaseParser;
+import com.acikek.crbot.core.GameState;
 import com.acikek.crbot.core.Player;
+import com.acikek.crbot.game.BotPlayer;
 import com.acikek.crbot.game.CardImages;
 import com.acikek.crbot.game.GameData;
 import com.acikek.crbot.game.GameHandler;
@@ -16,6 +20,7 @@ import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
 import net.dv8tion.jda.api.utils.FileUpload;
 import org.jetbrains.annotations.NotNull;
@@ -25,6 +30,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class GameCommands {
 
@@ -32,7 +39,11 @@ public class GameCommands {
             .addOption(OptionType.USER, "opponent", "Your opponent", false)
             .addOption(OptionType.ATTACHMENT, "resume", "The game file to resume", false)
             .addOption(OptionType.BOOLEAN, "buildup", "Enable buildup mode", false)
-            .addOption(OptionType.BOOLEAN, "creative", "Enable creative mode", false);
+            .addOption(OptionType.BOOLEAN, "creative", "Enable creative mode", false)
+            .addOptions(new OptionData(OptionType.STRING, "bot", "Play against the bot at a difficulty", false)
+                    .addChoice("Easy", "easy")
+                    .addChoice("Normal", "normal")
+                    .addChoice("Hard", "hard"));
 
 
     public static final CommandData LEAVE_COMMAND_DATA = Commands.slash("leave", "Forfeit and leave the game");
@@ -41,6 +52,22 @@ public class GameCommands {
     public static final CommandData FREE_COMMAND_DATA = Commands.slash("free", "Cancel the current action menu and free the board");
     public static final CommandData REFRESH_COMMAND_DATA = Commands.slash("refresh", "Refresh the board message");
     public static final CommandData HAND_COMMAND_DATA = Commands.slash("hand", "View your current hand");
+    public static final CommandData HINT_COMMAND_DATA = Commands.slash("hint", "View opening book moves in creative mode or against the bot");
+
+    public static final int SHOWN_HINTS = 5;
+
+    /**
+     * How long a challenge's parsed resume file is kept for it to be accepted. A later accept parses the attached file
+     * again.
+     */
+    public static final long PENDING_RESUME_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    public record PendingResume(ChaseParser parser, long time) {}
+
+    /**
+     * Resume files parsed when a challenge was sent, by the button that accepts it, so accepting doesn't parse them again.
+     */
+    public static final Map<String, PendingResume> PENDING_RESUMES = new ConcurrentHashMap<>();
 
     public static GameData checkGame(IReplyCallback event, User user) {
         GameData data = ChaseRedsBot.games.get(user);
@@ -75,6 +102,14 @@ public class GameCommands {
         }
     }
 
+    /**
+     * Parses an uploaded resume file, replying with the error if it's invalid.
+     * @return the parsed file, or {@code null} if there is none or it's invalid, which {@code resumeData} tells apart
+     */
+    public static ChaseParser parseResume(IReplyCallback event, String resumeData) {
+        return resumeData != null ? GameData.parseFile(event, resumeData) : null;
+    }
+
     public static void sendCardRow(IReplyCallback event, Player.Type type, List<Integer> powers) {
         Map<Integer, Image> imageMap = CardImages.getImagesForPlayer(type);
         byte[] image = CardImages.composeCardRowImage(powers, imageMap);
@@ -82,6 +117,16 @@ public class GameCommands {
         event.replyFiles(fileUpload).setEphemeral(true).queue();
     }
 
+    public static void pause(IReplyCallback event, GameData data) {
+        LocalDateTime now = LocalDateTime.now();
+        String fileData = data.getFileData(now);
+        String hash = GameData.getFileHashString(fileData);
+        event.reply("Game paused! Use " + ChaseRedsBot.playCommandMention + " and link this attachment to continue.\n" + hash)
+                .addFiles(FileUpload.fromData(fileData.getBytes(StandardCharsets.UTF_8), data.getFilename(now)))
+                .queue();
+        GameData.remove(data);
+    }
+
     public static final ListenerAdapter PLAY_COMMAND = new ListenerAdapter() {
 
         @Override
@@ -100,16 +145,23 @@ public class GameCommands {
             String resumeData = getAttachmentData(resume);
             boolean buildup = event.getOption("buildup", false, OptionMapping::getAsBoolean);
             boolean creative = event.getOption("creative", false, OptionMapping::getAsBoolean);
+            String bot = event.getOption("bot", OptionMapping::getAsString);
+            ChaseParser parser = parseResume(event, resumeData);
+            if (resumeData != null && parser == null) {
+                return;
+            }
+            if (bot != null) {
+                BotPlayer.Difficulty difficulty = BotPlayer.Difficulty.valueOf(bot.toUpperCase());
+                GameData.begin(event, event.getUser(), event.getJDA().getSelfUser(), buildup, creative, parser, difficulty);
+                return;
+            }
             boolean sameUser = opponent == null || opponent.getIdLong() == event.getUser().getIdLong();
             if (!creative && sameUser) {
                 event.reply("You can't play this opponent.").setEphemeral(true).queue();
                 return;
             }
             if (sameUser) {
-                GameData.begin(event, event.getUser(), opponent, buildup, true, resumeData);
-                return;
-            }
-            if (resumeData != null && !GameData.validateFile(event, Game.getTurnLines(resumeData))) {
+                GameData.begin(event, event.getUser(), opponent, buildup, true, parser);
                 return;
             }
             Map<String, Boolean> modes = Map.of(
@@ -127,7 +179,12 @@ public class GameCommands {
                     + (resumeData != null ? " **resume**" : "")
                     + " a game of **Chase Reds!**";
             String note = "> *This request is not stored. Ignore this message to deny the challenge.*";
-            String buttonId = "accept_" + opponent.getId() + "_" + event.getUser().getId() + "_" + buildup + "_" + creative;
+            String buttonId = "accept_" + opponent.getId() + "_" + event.getUser().getId() + "_" + buildup + "_" + creative + "_" + event.getId();
+            if (parser != null) {
+                long now = System.nanoTime();
+                PENDING_RESUMES.values().removeIf(pending -> now - pending.time() > PENDING_RESUME_NANOS);
+                PENDING_RESUMES.put(buttonId, new PendingResume(parser, now));
+            }
             String hash = resumeData != null ? "\n" + GameData.getFileHashString(resumeData) : "";
             var reply = event
                     .reply(challenge + " " + settings + hash +  "\n" + note)
@@ -152,9 +209,17 @@ public class GameCommands {
             if (!checkPlaying(event, user, true)) {
                 return;
             }
+            PendingResume pending = PENDING_RESUMES.remove(id);
+            ChaseParser parser = pending != null ? pending.parser() : null;
             List<Message.Attachment> attachments = event.getMessage().getAttachments();
-            String fileData = attachments.isEmpty() ? null : getAttachmentData(attachments.get(0));
-            GameData.begin(event, user, event.getUser(), args[3].equals("true"), args[4].equals("true"), fileData);
+            if (parser == null && !attachments.isEmpty()) {
+                String fileData = getAttachmentData(attachments.get(0));
+                parser = parseResume(event, fileData);
+                if (fileData != null && parser == null) {
+                    return;
+                }
+            }
+            GameData.begin(event, user, event.getUser(), args[3].equals("true"), args[4].equals("true"), parser);
         }
     };
 
@@ -169,8 +234,14 @@ public class GameCommands {
             if (data == null) {
                 return;
             }
-            data.end(event, data.getOtherUser(event.getUser()));
-            GameData.remove(data);
+            synchronized (data) {
+                if (ChaseRedsBot.games.get(event.getUser()) != data) {
+                    event.reply("This game has already ended.").setEphemeral(true).queue();
+                    return;
+                }
+                data.end(event, data.getOtherUser(event.getUser()));
+                GameData.remove(data);
+            }
         }
     };
 
@@ -182,16 +253,25 @@ public class GameCommands {
                 return;
             }
             GameData data = checkGame(event, event.getUser());
-            if (data == null || !data.checkTurn(event, event.getUser())) {
+            if (data == null) {
                 return;
             }
-            User other = data.getOtherUser(event.getUser());
-            String mention = other.getAsMention() + ", **" + event.getUser().getName() + "** wants to pause the current game.";
-            String note = ":warning: **This will re-shuffle both players' unplaced cards!**";
-            event.reply(mention + "\n" + note)
-                    .addActionRow(Button.success("pause_" + other.getId(), "Accept"))
-                    .queue();
-            data.pauseValid = true;
+            synchronized (data) {
+                if (!data.checkTurn(event, event.getUser())) {
+                    return;
+                }
+                if (data.bot != null) {
+                    pause(event, data);
+                    return;
+                }
+                User other = data.getOtherUser(event.getUser());
+                String mention = other.getAsMention() + ", **" + event.getUser().getName() + "** wants to pause the current game.";
+                String note = "Both players' unplaced cards will keep their order when the game is resumed.";
+                event.reply(mention + "\n" + note)
+                        .addActionRow(Button.success("pause_" + other.getId(), "Accept"))
+                        .queue();
+                data.pauseValid = true;
+            }
         }
 
         @Override
@@ -208,17 +288,13 @@ public class GameCommands {
             if (data == null) {
                 return;
             }
-            if (!data.pauseValid) {
-                event.reply("This pause request has expired.").setEphemeral(true).queue();
-                return;
+            synchronized (data) {
+                if (!data.pauseValid || ChaseRedsBot.games.get(event.getUser()) != data) {
+                    event.reply("This pause request has expired.").setEphemeral(true).queue();
+                    return;
+                }
+                pause(event, data);
             }
-            LocalDateTime now = LocalDateTime.now();
-            String fileData = data.getFileData(now);
-            String hash = GameData.getFileHashString(fileData);
-            event.reply("Game paused! Use " + ChaseRedsBot.playCommandMention + " and link this attachment to continue.\n" + hash)
-                    .addFiles(FileUpload.fromData(fileData.getBytes(StandardCharsets.UTF_8), data.getFilename(now)))
-                    .queue();
-            GameData.remove(data);
         }
     };
 
@@ -230,16 +306,21 @@ public class GameCommands {
                 return;
             }
             GameData data = checkGame(event, event.getUser());
-            if (data == null || !data.checkTurn(event, event.getUser())) {
+            if (data == null) {
                 return;
             }
-            if (!data.inMenu) {
-                event.reply("You're not in an action menu.").setEphemeral(true).queue();
-                return;
+            synchronized (data) {
+                if (!data.checkTurn(event, event.getUser())) {
+                    return;
+                }
+                if (!data.inMenu) {
+                    event.reply("You're not in an action menu.").setEphemeral(true).queue();
+                    return;
+                }
+                event.reply("Menu freed.").setEphemeral(true).queue();
+                data.setBoardDisabled(false);
+                data.inMenu = false;
             }
-            event.reply("Menu freed.").setEphemeral(true).queue();
-            data.setBoardDisabled(false);
-            data.inMenu = false;
         }
     };
 
@@ -254,7 +335,9 @@ public class GameCommands {
             if (data == null) {
                 return;
             }
-            GameHandler.refreshBoard(event, data);
+            synchronized (data) {
+                GameHandler.refreshBoard(event, data);
+            }
         }
     };
 
@@ -269,8 +352,64 @@ public class GameCommands {
             if (data == null) {
                 return;
             }
-            Player player = data.getPlayer(event.getUser());
-            sendCardRow(event, player.type, player.deck.hand);
+            synchronized (data) {
+                Player player = data.getPlayer(event.getUser());
+                sendCardRow(event, player.type, player.deck.getHand());
+            }
+        }
+    };
+
+    public static String getMoveName(int id) {
+        if (id == ActionTable.DRAW) {
+            return "Draw";
+        }
+        if (id == ActionTable.END) {
+            return "End turn";
+        }
+        return "`" + ActionTable.getNotation(id) + "`";
+    }
+
+    public static String getHint(GameState state) {
+        if (ChaseRedsBot.book == null) {
+            return "There is no opening book.";
+        }
+        ActionBuffer moves = new ActionBuffer();
+        state.getAvailableMoves(moves);
+        List<String> lines = ChaseRedsBot.book.probe(state).stream()
+                .filter(entry -> moves.contains(entry.getMove()))
+                .limit(SHOWN_HINTS)
+                .map(entry -> "> " + getMoveName(entry.id()) + ": played " + entry.games() + " times, scored "
+                        + Math.round(entry.getScore() * 100) + "%")
+                .toList();
+        if (lines.isEmpty()) {
+            return "This position isn't in the opening book.";
+        }
+        return "**Book moves**\n" + String.join("\n", lines);
+    }
+
+    public static final ListenerAdapter HINT_COMMAND = new ListenerAdapter() {
+
+        @Override
+        public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+            if (!event.getName().equals("hint")) {
+                return;
+            }
+            GameData data = checkGame(event, event.getUser());
+            if (data == null) {
+                return;
+            }
+            if (!data.creative && data.bot == null) {
+                event.reply("You can only use this command in a Creative game or against the bot.").setEphemeral(true).queue();
+                return;
+            }
+            GameState state;
+            synchronized (data) {
+                if (!data.checkTurn(event, event.getUser())) {
+                    return;
+                }
+                state = GameState.of(data.game);
+            }
+            event.reply(getHint(state)).setEphemeral(true).queue();
         }
     };
 }
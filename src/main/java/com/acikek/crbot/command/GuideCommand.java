@@ -55,6 +55,9 @@ public class GuideCommand extends ListenerAdapter {
             
             You can **/pause** a game and save the file to play later. When resuming, the player who initially paused should run the **/play** command again.
             If you know you're going to lose, you can always **/leave**, which ends the game in your opponent's favor immediately.
+            
+            In a Creative game or against the bot, **/hint** shows the opening book's moves for your position, with how often each was played and how well it scored.
+            Every finished game is kept, and **/stats** shows how they went: win rates, game lengths, the best setups and the most decisive cards, for everyone or for one player.
             """;
 
     public static final String MODES = """
@@ -66,6 +69,7 @@ public class GuideCommand extends ListenerAdapter {
             You can **/clear** an individual army or the entire board.
             You can **/set** a card on an Army. This won't count as an action, and it doesn't take any game context (deck, hand, existing cards) into account.
             You can view your **/deck** similarly to how you view your hand. If you're battling yourself, this will display the current player's deck.
+            Once both decks are empty and few cards are left, **/solve** shows whether the player to move can force a win, and how.
             """;
 
     @Override
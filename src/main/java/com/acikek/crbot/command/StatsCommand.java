@@ -0,0 +1,96 @@
+package com.acikek.crbot.command;
+
+import com.acikek.crbot.ChaseRedsBot;
+import com.acikek.crbot.stats.GameStats;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StatsCommand extends ListenerAdapter {
+
+    public static final CommandData COMMAND_DATA = Commands.slash("stats", "View statistics of finished games")
+            .addOption(OptionType.USER, "player", "Only count this user's games", false);
+
+    public static final int MIN_SETUP_GAMES = 20;
+    public static final int SHOWN_SETUPS = 3;
+
+    public static String getName(Enum<?> value) {
+        String name = value.name();
+        return name.charAt(0) + name.substring(1).toLowerCase();
+    }
+
+    public static String getPercent(double value) {
+        return Math.round(value * 100) + "%";
+    }
+
+    public static String getMessage(GameStats stats, User player) {
+        long playerId = player != null ? player.getIdLong() : 0;
+        GameStats.Summary summary = stats.getSummary(playerId);
+        String title = "**STATISTICS** of " + summary.games() + " games" + (player != null ? " with " + player.getName() : "");
+        if (summary.games() == 0) {
+            return title;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(title);
+        if (player != null) {
+            lines.add("Wins " + getPercent((double) summary.wins() / summary.games())
+                    + ", losses " + getPercent((double) summary.losses() / summary.games())
+                    + ", stalemates " + getPercent((double) summary.stalemates() / summary.games()));
+        }
+        else {
+            lines.add("Black wins " + getPercent((double) summary.blackWins() / summary.games())
+                    + ", red wins " + getPercent((double) summary.redWins() / summary.games())
+                    + ", stalemates " + getPercent((double) summary.stalemates() / summary.games()));
+        }
+        lines.add(String.format("Average length: %.1f turns normally, %.1f turns in Buildup Mode",
+                summary.getAverageTurns(false), summary.getAverageTurns(true)));
+        long[] actions = stats.getActionCounts(playerId);
+        long total = 0;
+        for (long count : actions) {
+            total += count;
+        }
+        if (total > 0) {
+            List<String> shares = new ArrayList<>();
+            for (int i = 0; i < actions.length; i++) {
+                shares.add(getName(GameStats.ACTION_TYPES[i]) + " " + getPercent((double) actions[i] / total));
+            }
+            lines.add("Actions: " + String.join(", ", shares));
+        }
+        List<GameStats.SetupStats> setups = stats.getSetupWinRates(playerId, MIN_SETUP_GAMES);
+        if (!setups.isEmpty()) {
+            lines.add("\n**Best setups** (dealt " + (player != null ? "to " + player.getName() + " " : "") + "at least " + MIN_SETUP_GAMES + " times)");
+            for (GameStats.SetupStats setup : setups.subList(0, Math.min(SHOWN_SETUPS, setups.size()))) {
+                List<String> names = setup.setup().stream()
+                        .map(StatsCommand::getName)
+                        .toList();
+                lines.add("> " + String.join(", ", names) + ": won " + getPercent(setup.getWinRate()) + " of " + setup.games());
+            }
+        }
+        List<GameStats.CardStats> cards = stats.getDecisiveCardTypes(playerId);
+        if (!cards.isEmpty()) {
+            lines.add("\n**Most decisive cards** (share of " + (player != null ? player.getName() + "'s " : "") + "attacks made by the winner)");
+            List<String> shares = cards.stream()
+                    .map(card -> getName(card.type()) + " " + getPercent(card.getWinnerShare()))
+                    .toList();
+            lines.add("> " + String.join(", ", shares));
+        }
+        return String.join("\n", lines);
+    }
+
+    @Override
+    public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
+        if (!event.getName().equals("stats")) {
+            return;
+        }
+        User player = event.getOption("player", OptionMapping::getAsUser);
+        event.reply(getMessage(ChaseRedsBot.stats, player)).queue();
+    }
+}
@@ -48,7 +48,7 @@ public class Action implements Comparable<Action> {
             }
             return switch (this) {
                 case MOVE, SERVE -> true;
-                case ATTACK -> !card.isAttackingForward(target.position);
+                case ATTACK -> !card.isAttackingForward(target.position) || target.position != getImpliedTarget(card).position;
                 default -> false;
             };
         }
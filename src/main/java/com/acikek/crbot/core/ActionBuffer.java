@@ -0,0 +1,55 @@
+package com.acikek.crbot.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ActionBuffer {
+
+    public int[] actions;
+    public int size;
+
+    public ActionBuffer(int capacity) {
+        actions = new int[capacity];
+    }
+
+    public ActionBuffer() {
+        this(128);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int action) {
+        if (size == actions.length) {
+            actions = Arrays.copyOf(actions, size * 2);
+        }
+        actions[size++] = action;
+    }
+
+    public int get(int index) {
+        return actions[index];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int action) {
+        for (int i = 0; i < size; i++) {
+            if (actions[i] == action) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Action> toActions() {
+        List<Action> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(PackedAction.toAction(actions[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,127 @@
+package com.acikek.crbot.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Numbers every action a player could ever be offered, plus the Draw and End Turn buttons, with a small dense ID.
+ * <p>
+ * IDs are assigned in a fixed order, so they stay the same between runs: {@link #PASS} first, then each type with every
+ * card, position and target it can have, then {@link #DRAW} and {@link #END}. Lookups in both directions are array
+ * reads, and the notation of each action is built once.
+ */
+public class ActionTable {
+
+    public static final int PASS = 0;
+    public static final int DRAW;
+    public static final int END;
+    public static final int SIZE;
+
+    private static final int[] PACKED;
+    private static final short[] IDS = new short[1 << 16];
+    private static final String[] NOTATIONS;
+    private static final Map<String, Integer> NOTATION_IDS = new HashMap<>();
+
+    static {
+        int[] packed = new int[2048];
+        int size = 0;
+        packed[size++] = PackedAction.PASS;
+        for (Action.Type type : Action.Type.values()) {
+            if (type == Action.Type.SETUP || type == Action.Type.PASS) {
+                continue;
+            }
+            for (int slot : getSlots()) {
+                for (int position = 0; position < 4; position++) {
+                    for (int target = 0; target < 4; target++) {
+                        if (isPossible(type, slot, position, target)) {
+                            packed[size++] = PackedAction.of(type, slot, position, target);
+                        }
+                    }
+                }
+            }
+        }
+        DRAW = size;
+        packed[size++] = PackedAction.DRAW;
+        END = size;
+        packed[size++] = PackedAction.END;
+        SIZE = size;
+        PACKED = Arrays.copyOf(packed, size);
+        NOTATIONS = new String[size];
+        Arrays.fill(IDS, (short) -1);
+        for (int id = 0; id < size; id++) {
+            IDS[PACKED[id]] = (short) id;
+            if (id != DRAW && id != END) {
+                NOTATIONS[id] = id == PASS ? "-" : PackedAction.toAction(PACKED[id]).toTurnString();
+                NOTATION_IDS.put(NOTATIONS[id], id);
+            }
+        }
+    }
+
+    private static int[] getSlots() {
+        int[] result = new int[13 + 9];
+        int size = 0;
+        for (int code = 1; code <= 13; code++) {
+            result[size++] = code;
+        }
+        for (int major = 8; major <= 10; major++) {
+            for (int pawn = 2; pawn <= 4; pawn++) {
+                result[size++] = GameState.toSlot(major, pawn);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isPossible(Action.Type type, int slot, int position, int target) {
+        Card.Type cardType = Card.Type.fromPower(GameState.getSlotPower(slot));
+        boolean served = GameState.getSlotServant(slot) > 0;
+        return switch (type) {
+            case PLACE -> target == position;
+            case MOVE -> target != position;
+            case SERVE -> cardType == Card.Type.PAWN && target != position;
+            case ATTACK -> true;
+            case CHASE -> cardType == Card.Type.KING && !served && target == 0;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the ID of a {@link PackedAction}, or {@code -1} if it isn't in the table
+     */
+    public static int getId(int packed) {
+        return packed >= 0 && packed < IDS.length ? IDS[packed] : -1;
+    }
+
+    public static int getId(Action action) {
+        return getId(PackedAction.of(action));
+    }
+
+    /**
+     * @return the ID of an action in turn notation, such as {@code 8+4:3p}, or {@code -1} if there is none
+     */
+    public static int getId(String notation) {
+        return NOTATION_IDS.getOrDefault(notation, -1);
+    }
+
+    public static boolean isValid(int id) {
+        return id >= 0 && id < SIZE;
+    }
+
+    public static int getPacked(int id) {
+        return PACKED[id];
+    }
+
+    /**
+     * Creates the action for an ID. Actions are mutable, so each call returns a new one.
+     */
+    public static Action toAction(int id) {
+        return PackedAction.toAction(PACKED[id]);
+    }
+
+    /**
+     * @return the turn notation of an action, or {@code null} for {@link #DRAW} and {@link #END}, which have none
+     */
+    public static String getNotation(int id) {
+        return NOTATIONS[id];
+    }
+}
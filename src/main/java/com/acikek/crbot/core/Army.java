@@ -28,9 +28,18 @@ public class Army  {
         return card;
     }
 
+    /**
+     * Fills the army in position order. A chase can draw fewer cards than there are positions, which leaves the rest empty.
+     */
     public void loadPowers(List<Integer> powers) {
         for (int i = 0; i < Position.values().length; i++) {
-            addCard(powers.get(i), Position.values()[i]);
+            Position position = Position.values()[i];
+            if (i < powers.size()) {
+                addCard(powers.get(i), position);
+            }
+            else {
+                board.put(position, position.empty());
+            }
         }
     }
 
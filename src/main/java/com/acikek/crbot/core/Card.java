@@ -18,30 +18,43 @@ public class Card {
         KING,
         ACE;
 
-        public static final Map<Integer, Type> TABLE = new HashMap<>();
+        private static final Type[] POWERS = {
+                EMPTY, ACE, null, PAWN, PAWN, PAWN, MINOR, MINOR, MINOR, MAJOR, MAJOR, MAJOR, JACK, QUEEN, KING
+        };
 
-        static {
-            TABLE.put(0, ACE);
-            TABLE.put(11, JACK);
-            TABLE.put(12, QUEEN);
-            TABLE.put(13, KING);
+        public static Type fromPower(int power) {
+            return power >= -1 && power <= 13 ? POWERS[power + 1] : null;
         }
+    }
 
-        public static Type fromPower(int power) {
-            if (power == -1) {
-                return EMPTY;
-            }
-            if (power >= 2 && power <= 4) {
-                return PAWN;
-            }
-            if (power >= 5 && power <= 7) {
-                return MINOR;
-            }
-            if (power >= 8 && power <= 10) {
-                return MAJOR;
+    private static final Type[] TYPES = Type.values();
+    private static final Position[] POSITIONS = Position.values();
+
+    /**
+     * Indexed by {@link #getAttackIndex(Type, Position, boolean, boolean, boolean)}.
+     */
+    private static final List<List<Position>> ATTACK_POSITIONS;
+
+    /**
+     * Indexed by type ordinal, position ordinal and ace.
+     */
+    private static final List<List<Position>> MOVE_POSITIONS;
+
+    static {
+        List<List<Position>> attack = new ArrayList<>();
+        List<List<Position>> move = new ArrayList<>();
+        for (Type type : TYPES) {
+            for (Position position : POSITIONS) {
+                for (int flags = 0; flags < 8; flags++) {
+                    attack.add(computeAttackPositions(type, position, (flags & 4) != 0, (flags & 2) != 0, (flags & 1) != 0));
+                }
+                for (int ace = 0; ace < 2; ace++) {
+                    move.add(computeMovePositions(type, position, ace == 1));
+                }
             }
-            return TABLE.get(power);
         }
+        ATTACK_POSITIONS = List.copyOf(attack);
+        MOVE_POSITIONS = List.copyOf(move);
     }
 
     public int power;
@@ -109,7 +122,7 @@ public class Card {
         return open;
     }
 
-    public List<Position> getQueenAttackPositions() {
+    public static List<Position> getQueenAttackPositions(Position position) {
         List<Position> positions = new ArrayList<>(List.of(Position.LEFT, Position.CENTER, Position.RIGHT));
         if (!position.isCenterFile()) {
             positions.remove(position.relative());
@@ -117,25 +130,34 @@ public class Card {
         return positions;
     }
 
-    public List<Position> getPossibleAttackPositions(boolean open, boolean otherFallbackOpen, boolean ace) {
-        if (!canAttack(open, ace)) {
-            return Collections.emptyList();
-        }
-        if (canRangeAttack(ace)) {
-            return Arrays.asList(Position.values());
-        }
-        List<Position> positions = new ArrayList<>();
-        if (!ace && type == Type.QUEEN) {
-            positions.addAll(getQueenAttackPositions());
+    public List<Position> getQueenAttackPositions() {
+        return getQueenAttackPositions(position);
+    }
+
+    private static List<Position> computeAttackPositions(Type type, Position position, boolean open, boolean otherFallbackOpen, boolean ace) {
+        boolean rangeAttack = !ace && type == Type.MINOR && position == Position.FALLBACK;
+        if (!rangeAttack && !open) {
+            return List.of();
         }
-        else {
-            positions.add(position.forward(open));
+        if (rangeAttack) {
+            return List.of(POSITIONS);
         }
+        List<Position> positions = !ace && type == Type.QUEEN
+                ? getQueenAttackPositions(position)
+                : List.of(position.forward(open));
         return positions.stream()
                 .map(pos -> pos.relative().back(otherFallbackOpen))
                 .toList();
     }
 
+    private static int getAttackIndex(Type type, Position position, boolean open, boolean otherFallbackOpen, boolean ace) {
+        return (type.ordinal() * POSITIONS.length + position.ordinal()) << 3 | (open ? 4 : 0) | (otherFallbackOpen ? 2 : 0) | (ace ? 1 : 0);
+    }
+
+    public List<Position> getPossibleAttackPositions(boolean open, boolean otherFallbackOpen, boolean ace) {
+        return ATTACK_POSITIONS.get(getAttackIndex(type, position, open, otherFallbackOpen, ace));
+    }
+
     public boolean canDestroy(int power, boolean ace) {
         return (!ace && type == Type.JACK) || totalPower() >= power;
     }
@@ -162,22 +184,20 @@ public class Card {
     }
 
     public Card getPlacedCard(int power) {
-        Card card = new Card(this.power, this.position);
-        if (this.type == Type.EMPTY) {
-            card.power = power;
-            return card;
+        if (type == Type.EMPTY) {
+            return new Card(power, position);
         }
+        Card card = new Card(this.power, position);
         card.servant = power;
         return card;
     }
 
+    private static List<Position> computeMovePositions(Type type, Position position, boolean ace) {
+        return !ace && type == Type.MAJOR ? position.others() : position.adjacent();
+    }
+
     public List<Position> getMovePositions(boolean ace) {
-        if (!ace && type == Type.MAJOR) {
-            List<Position> positions = new ArrayList<>(List.of(Position.values()));
-            positions.remove(position);
-            return positions;
-        }
-        return position.adjacent();
+        return MOVE_POSITIONS.get((type.ordinal() * POSITIONS.length + position.ordinal()) << 1 | (ace ? 1 : 0));
     }
 
     public String toPowerString() {
@@ -0,0 +1,326 @@
+package com.acikek.crbot.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a {@code .chase} file in one pass, validating it and building its {@link Turn}s as it goes.
+ * <p>
+ * Lines are either {@code @key value} headers, a setup line of eight powers, {@code -} for a pass, or action sets
+ * separated by {@code ;}. Anything after {@code #} is a comment, except in header values.
+ */
+public class ChaseParser {
+
+    public static class ParseException extends IllegalArgumentException {
+
+        private static final long serialVersionUID = 1L;
+
+        public final int line;
+        public final int column;
+
+        public ParseException(String message, int line, int column) {
+            super("Line " + line + ", column " + column + ": " + message);
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    private static final int EOF = -1;
+
+    /**
+     * The last value of each header.
+     */
+    public final Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * Every value of each header, in file order.
+     */
+    public final Map<String, List<String>> headerValues = new LinkedHashMap<>();
+    public final List<Turn> turns = new ArrayList<>();
+
+    private final Reader reader;
+    private final ByteBuffer bytes;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private int column = 1;
+    private final StringBuilder builder = new StringBuilder();
+    private final List<Integer> powers = new ArrayList<>();
+
+    public ChaseParser(Reader reader) {
+        this.reader = reader;
+        this.bytes = null;
+    }
+
+    /**
+     * Reads ASCII bytes, such as a mapped file, without decoding them into a string first.
+     */
+    public ChaseParser(ByteBuffer bytes) {
+        this.reader = null;
+        this.bytes = bytes;
+    }
+
+    public static ChaseParser parse(String fileData) {
+        try {
+            return new ChaseParser(new StringReader(fileData)).parse();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Turn parseTurn(String string) {
+        ChaseParser parser = parse(string);
+        if (parser.turns.size() != 1) {
+            throw new ParseException("Expected a single turn", 1, 1);
+        }
+        return parser.turns.get(0);
+    }
+
+    public List<String> getHeaders(String key) {
+        return headerValues.getOrDefault(key, List.of());
+    }
+
+    private boolean fill() throws IOException {
+        position = 0;
+        if (bytes != null) {
+            limit = Math.min(buffer.length, bytes.remaining());
+            for (int i = 0; i < limit; i++) {
+                buffer[i] = (char) (bytes.get() & 0xFF);
+            }
+        }
+        else {
+            limit = Math.max(0, reader.read(buffer));
+        }
+        return limit > 0;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private void skip() {
+        position++;
+        column++;
+    }
+
+    private ParseException error(String message) {
+        return new ParseException(message, line, column);
+    }
+
+    private static boolean isLineEnd(int c) {
+        return c == '\n' || c == '\r' || c == EOF;
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isPower(int c) {
+        return (c >= '1' && c <= '9') || c == 'A' || c == 'J' || c == 'Q' || c == 'K';
+    }
+
+    public ChaseParser parse() throws IOException {
+        while (true) {
+            int c = peek();
+            while (isSpace(c)) {
+                skip();
+                c = peek();
+            }
+            if (c == EOF) {
+                return this;
+            }
+            if (c == '@') {
+                skip();
+                readHeader();
+            }
+            else if (c != '#' && !isLineEnd(c)) {
+                turns.add(readTurn());
+            }
+            endLine();
+        }
+    }
+
+    private void endLine() throws IOException {
+        int c = peek();
+        while (isSpace(c)) {
+            skip();
+            c = peek();
+        }
+        if (c == '#') {
+            while (!isLineEnd(c)) {
+                skip();
+                c = peek();
+            }
+        }
+        if (c == '\r') {
+            position++;
+            c = peek();
+        }
+        if (c == '\n') {
+            position++;
+        }
+        else if (c != EOF) {
+            throw error("Unexpected '" + (char) c + "'");
+        }
+        line++;
+        column = 1;
+    }
+
+    private void readHeader() throws IOException {
+        builder.setLength(0);
+        int c = peek();
+        while (!isSpace(c) && !isLineEnd(c)) {
+            builder.append((char) c);
+            skip();
+            c = peek();
+        }
+        if (builder.isEmpty()) {
+            throw error("Expected header name");
+        }
+        String key = builder.toString();
+        while (isSpace(c)) {
+            skip();
+            c = peek();
+        }
+        builder.setLength(0);
+        while (!isLineEnd(c)) {
+            builder.append((char) c);
+            skip();
+            c = peek();
+        }
+        String value = builder.toString().strip();
+        headers.put(key, value);
+        headerValues.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+    }
+
+    private int readPower() throws IOException {
+        int c = peek();
+        if (!isPower(c)) {
+            throw error(c == EOF || isLineEnd(c) ? "Expected a card" : "Expected a card, found '" + (char) c + "'");
+        }
+        skip();
+        return switch (c) {
+            case 'A' -> 0;
+            case 'J' -> 11;
+            case 'Q' -> 12;
+            case 'K' -> 13;
+            case '1' -> {
+                if (peek() == '0') {
+                    skip();
+                }
+                yield 10;
+            }
+            default -> c - '0';
+        };
+    }
+
+    private Turn readTurn() throws IOException {
+        Turn turn = new Turn();
+        int c = peek();
+        if (c == '-') {
+            skip();
+            turn.addAction(Action.PASS);
+            return turn;
+        }
+        int startColumn = column;
+        int power = readPower();
+        c = peek();
+        if (c != ':' && c != '+') {
+            readSetup(turn, power, startColumn);
+            return turn;
+        }
+        turn.actionSets.add(readActionSet(power));
+        while (peek() == ';') {
+            skip();
+            turn.actionSets.add(readActionSet(readPower()));
+        }
+        return turn;
+    }
+
+    private void readSetup(Turn turn, int first, int startColumn) throws IOException {
+        powers.clear();
+        powers.add(first);
+        int c = peek();
+        while (isPower(c) || c == '0') {
+            if (c == '0') {
+                skip();
+            }
+            else {
+                powers.add(readPower());
+            }
+            c = peek();
+        }
+        if (powers.size() != 8) {
+            throw new ParseException("Setup needs 8 cards, found " + powers.size(), line, startColumn);
+        }
+        turn.addAction(Action.Type.SETUP, new Target(List.copyOf(powers)));
+    }
+
+    private Position readRank() throws IOException {
+        int c = peek();
+        if (c < '1' || c > '4') {
+            throw error("Expected a rank from 1 to 4");
+        }
+        skip();
+        return Position.fromRank(c - '0');
+    }
+
+    private ActionSet readActionSet(int power) throws IOException {
+        int c = peek();
+        int servant = 0;
+        if (c == '+') {
+            skip();
+            if (!isDigit(peek())) {
+                throw error("Expected a servant");
+            }
+            while (isDigit(c = peek())) {
+                servant = servant * 10 + c - '0';
+                skip();
+            }
+        }
+        if (c != ':') {
+            throw error("Expected ':'");
+        }
+        skip();
+        Card card = new Card(power, readRank());
+        card.servant = servant;
+        ActionSet set = new ActionSet(card);
+        c = peek();
+        if (Action.Type.fromCharacter((char) c) == null || c == '-') {
+            throw error("Expected an action");
+        }
+        Action.Type type;
+        while (c != '-' && (type = Action.Type.fromCharacter((char) c)) != null) {
+            skip();
+            Target target;
+            if (type.targetType == Target.Type.CARDS) {
+                powers.clear();
+                while (isPower(peek())) {
+                    powers.add(readPower());
+                }
+                target = powers.isEmpty() ? type.getImpliedTarget(card) : new Target(List.copyOf(powers));
+            }
+            else {
+                target = isDigit(peek()) ? new Target(readRank()) : type.getImpliedTarget(card);
+            }
+            set.actions.add(new Action(card, type, target));
+            c = peek();
+        }
+        return set;
+    }
+}
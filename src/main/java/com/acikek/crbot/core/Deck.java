@@ -1,8 +1,13 @@
 package com.acikek.crbot.core;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
+/**
+ * The cards a player hasn't placed yet. The draw pile is a ring buffer of powers with the top card at {@code head},
+ * so drawing and putting a card back on top don't move anything. The hand keeps its order for display, with a count
+ * per power for membership checks.
+ */
 public class Deck {
 
     public static final List<Integer> POWERS = List.of(
@@ -16,42 +21,256 @@ public class Deck {
             13, .5
     );
 
-    public List<Integer> cards = new ArrayList<>();
-    public List<Integer> hand = new ArrayList<>();
+    public static final int SIZE = POWERS.size() * 2;
+    public static final int CAPACITY = 32;
+    public static final int MASK = CAPACITY - 1;
 
-    public Deck(Random random, boolean buildup) {
-        System.out.println(buildup);
-        cards.addAll(POWERS);
-        cards.addAll(POWERS);
-        Collections.shuffle(cards, random);
+    /**
+     * The last position a card of each power may be found at before buildup moves it, or {@code -1}.
+     */
+    public static final int[] BUILDUP_LIMITS = new int[14];
+
+    /**
+     * The first position buildup may move a card of each power to.
+     */
+    public static final int[] BUILDUP_STARTS = new int[14];
+
+    static {
+        Arrays.fill(BUILDUP_LIMITS, -1);
+        for (Map.Entry<Integer, Double> entry : BUILDUP_MAP.entrySet()) {
+            double area = entry.getValue();
+            int limit = -1;
+            for (int i = 0; i < SIZE / 2 && (double) i / SIZE <= area; i++) {
+                limit = i;
+            }
+            BUILDUP_LIMITS[entry.getKey()] = limit;
+            BUILDUP_STARTS[entry.getKey()] = (int) ((SIZE - 1) * area);
+        }
+    }
+
+    private final byte[] cards = new byte[CAPACITY];
+    private int head;
+    private int size;
+
+    private final byte[] hand = new byte[CAPACITY];
+    private final byte[] counts = new byte[14];
+    private int handSize;
+
+    public Deck() {
+    }
+
+    public Deck(Deck other) {
+        set(other);
+    }
+
+    public Deck(RandomGenerator random, boolean buildup) {
+        byte[] order = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            order[i] = POWERS.get(i % POWERS.size()).byteValue();
+        }
+        shuffle(order, random);
         if (buildup) {
-            for (int i = 0; i < cards.size() / 2; i++) {
-                int power = cards.get(i);
-                if (!BUILDUP_MAP.containsKey(power)) {
-                    continue;
-                }
-                double area = BUILDUP_MAP.get(power);
-                if ((double) i / cards.size() <= area) {
-                    cards.remove(i);
-                    int index = ThreadLocalRandom.current().nextInt((int) (cards.size() * area), cards.size());
-                    cards.add(index, power);
-                    i--;
-                }
+            buildup(order, random);
+        }
+        for (byte power : order) {
+            addCard(power);
+        }
+    }
+
+    /**
+     * Shuffles the same way as {@link Collections#shuffle(List, Random)}, so a {@link Random} gives the same order as it.
+     */
+    public static void shuffle(byte[] order, RandomGenerator random) {
+        for (int i = order.length; i > 1; i--) {
+            int j = random.nextInt(i);
+            byte power = order[i - 1];
+            order[i - 1] = order[j];
+            order[j] = power;
+        }
+    }
+
+    /**
+     * Moves the strong cards out of the top of the deck. Positions before the scan are final, so each eligible card is
+     * placed once at a uniform position in its area that is past the scan, and the cards in between shift up by one.
+     */
+    public static void buildup(byte[] order, RandomGenerator random) {
+        for (int i = 0; i < order.length / 2; ) {
+            int power = order[i];
+            if (i > BUILDUP_LIMITS[power]) {
+                i++;
+                continue;
+            }
+            int index = random.nextInt(Math.max(BUILDUP_STARTS[power], i + 1), order.length - 1);
+            System.arraycopy(order, i + 1, order, i, index - i);
+            order[index] = (byte) power;
+        }
+    }
+
+    public void set(Deck other) {
+        System.arraycopy(other.cards, 0, cards, 0, CAPACITY);
+        head = other.head;
+        size = other.size;
+        System.arraycopy(other.hand, 0, hand, 0, CAPACITY);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        handSize = other.handSize;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        clearHand();
+    }
+
+    public int getCardCount() {
+        return size;
+    }
+
+    public int getCard(int index) {
+        return cards[(head + index) & MASK];
+    }
+
+    public List<Integer> getCards() {
+        List<Integer> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(getCard(i));
+        }
+        return result;
+    }
+
+    public void addCard(int power) {
+        cards[(head + size++) & MASK] = (byte) power;
+    }
+
+    /**
+     * Puts a card back on top of the deck, undoing {@link #draw()}.
+     */
+    public void undraw(int power) {
+        head = (head - 1) & MASK;
+        cards[head] = (byte) power;
+        size++;
+    }
+
+    public void undraw(List<Integer> powers) {
+        for (int i = powers.size() - 1; i >= 0; i--) {
+            undraw(powers.get(i));
+        }
+    }
+
+    public int indexOfCard(int power) {
+        for (int i = 0; i < size; i++) {
+            if (getCard(i) == power) {
+                return i;
             }
         }
+        return -1;
+    }
+
+    public void insertCard(int index, int power) {
+        for (int i = size; i > index; i--) {
+            cards[(head + i) & MASK] = cards[(head + i - 1) & MASK];
+        }
+        cards[(head + index) & MASK] = (byte) power;
+        size++;
+    }
+
+    public void removeCardAt(int index) {
+        size--;
+        for (int i = index; i < size; i++) {
+            cards[(head + i) & MASK] = cards[(head + i + 1) & MASK];
+        }
+    }
+
+    /**
+     * @return the index the card was removed from, or {@code -1} if the deck doesn't have it
+     */
+    public int removeCard(int power) {
+        int index = indexOfCard(power);
+        if (index != -1) {
+            removeCardAt(index);
+        }
+        return index;
+    }
+
+    public int getHandSize() {
+        return handSize;
+    }
+
+    public int getHandCard(int index) {
+        return hand[index];
+    }
+
+    public List<Integer> getHand() {
+        List<Integer> result = new ArrayList<>(handSize);
+        for (int i = 0; i < handSize; i++) {
+            result.add((int) hand[i]);
+        }
+        return result;
+    }
+
+    public int getHandCount(int power) {
+        return counts[power];
+    }
+
+    public boolean hasInHand(int power) {
+        return counts[power] != 0;
+    }
+
+    public void addHand(int power) {
+        hand[handSize++] = (byte) power;
+        counts[power]++;
+    }
+
+    public void insertHand(int index, int power) {
+        System.arraycopy(hand, index, hand, index + 1, handSize - index);
+        hand[index] = (byte) power;
+        handSize++;
+        counts[power]++;
+    }
+
+    /**
+     * @return the index the card was removed from, or {@code -1} if the hand doesn't have it
+     */
+    public int removeHand(int power) {
+        if (counts[power] == 0) {
+            return -1;
+        }
+        int index = 0;
+        while (hand[index] != power) {
+            index++;
+        }
+        handSize--;
+        System.arraycopy(hand, index + 1, hand, index, handSize - index);
+        counts[power]--;
+        return index;
+    }
+
+    public void removeLastHand() {
+        counts[hand[--handSize]]--;
+    }
+
+    public void clearHand() {
+        handSize = 0;
+        Arrays.fill(counts, (byte) 0);
+    }
+
+    public void drawHand(int amount) {
+        for (int i = 0; i < amount && size > 0; i++) {
+            addHand(draw());
+        }
     }
 
     public void initHand() {
-        hand.addAll(draw(3));
+        drawHand(3);
     }
 
     public List<Integer> draw(int amount, boolean remove) {
         List<Integer> result = new ArrayList<>();
-        for (int i = 0; i < amount; i++) {
-            if (cards.isEmpty()) {
-                break;
-            }
-            result.add(remove ? cards.remove(0) : cards.get(i));
+        for (int i = 0; i < amount && i < size; i++) {
+            result.add(getCard(i));
+        }
+        if (remove) {
+            head = (head + result.size()) & MASK;
+            size -= result.size();
         }
         return result;
     }
@@ -60,11 +279,20 @@ public class Deck {
         return draw(amount, true);
     }
 
+    /**
+     * @throws IllegalStateException if the deck is empty
+     */
     public int draw() {
-        return draw(1).get(0);
+        if (size == 0) {
+            throw new IllegalStateException("Deck is empty");
+        }
+        int power = cards[head];
+        head = (head + 1) & MASK;
+        size--;
+        return power;
     }
 
     public boolean isEmpty() {
-        return hand.isEmpty() && cards.isEmpty();
+        return handSize == 0 && size == 0;
     }
 }
@@ -2,14 +2,56 @@ package com.acikek.crbot.core;
 
 import org.apache.commons.collections4.ListUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 public class Game {
 
-    public Random random = new Random();
+    public static final String SEED_HEADER = "seed";
+    public static final String SEALED_SEED_HEADER = "sealedseed";
+    public static final String BUILDUP_HEADER = "buildup";
+    public static final String DRAWS_HEADER = "draws";
+    public static final String SNAPSHOT_HEADER = "snapshot";
+    public static final String SEALED_SNAPSHOT_HEADER = "sealedsnapshot";
+
+    /**
+     * How many turns apart the snapshots written into game files are.
+     */
+    public static final int SNAPSHOT_INTERVAL = 32;
+
+    /**
+     * The position after a number of turns, written as the turn count and then each {@link GameState} field in hex.
+     */
+    public record Snapshot(int turn, GameState state) {
+
+        public static Snapshot parse(String string) {
+            String[] parts = string.split(" ");
+            if (parts.length != 8) {
+                throw new IllegalArgumentException("Invalid snapshot '" + string + "'");
+            }
+            GameState state = new GameState();
+            state.armies = Long.parseUnsignedLong(parts[1], 16);
+            state.hands = Long.parseUnsignedLong(parts[2], 16);
+            state.blackCards = Long.parseUnsignedLong(parts[3], 16);
+            state.blackCardsHigh = Long.parseUnsignedLong(parts[4], 16);
+            state.redCards = Long.parseUnsignedLong(parts[5], 16);
+            state.redCardsHigh = Long.parseUnsignedLong(parts[6], 16);
+            state.flags = Integer.parseUnsignedInt(parts[7], 16);
+            return new Snapshot(Integer.parseInt(parts[0]), state);
+        }
+
+        @Override
+        public String toString() {
+            return turn + " " + Long.toHexString(state.armies) + " " + Long.toHexString(state.hands)
+                    + " " + Long.toHexString(state.blackCards) + " " + Long.toHexString(state.blackCardsHigh)
+                    + " " + Long.toHexString(state.redCards) + " " + Long.toHexString(state.redCardsHigh)
+                    + " " + Integer.toHexString(state.flags);
+        }
+    }
+
+    public final long seed;
+    public final boolean buildup;
+    public SplittableRandom random;
 
     public Player black;
     public Player red;
@@ -22,25 +64,224 @@ public class Game {
     public boolean lastPlayerCouldAct = true;
     public int passes;
     public boolean turnEnded;
+    public long hash;
 
     public List<Turn> turns = new ArrayList<>();
+    public List<Snapshot> snapshots = new ArrayList<>();
+
+    /**
+     * The changes made by each call, newest first, or {@code null} while undo is off.
+     */
+    private Deque<List<Runnable>> history;
 
     public Game(List<Turn> turns, boolean buildup) {
-        black = new Player(Player.Type.BLACK, random, buildup);
-        red = new Player(Player.Type.RED, random, buildup);
-        if (turns == null) {
+        this(turns, buildup, newSeed());
+    }
+
+    /**
+     * Both decks are shuffled from their own split of the seed, so the same seed and turns always give the same game.
+     */
+    public Game(List<Turn> turns, boolean buildup, long seed) {
+        this.seed = seed;
+        this.buildup = buildup;
+        random = new SplittableRandom(seed);
+        black = new Player(Player.Type.BLACK, random.split(), buildup);
+        red = new Player(Player.Type.RED, random.split(), buildup);
+        rehash();
+        if (turns != null) {
+            replay(turns, true);
+        }
+    }
+
+    /**
+     * Resumes from the latest snapshot that is within the given turns, replaying only the turns after it.
+     * The deck order is part of each snapshot, so it doesn't depend on the seed.
+     */
+    public Game(List<Turn> turns, boolean buildup, long seed, List<Snapshot> snapshots) {
+        this(null, buildup, seed);
+        Snapshot latest = null;
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.turn() <= turns.size() && (latest == null || snapshot.turn() > latest.turn())) {
+                latest = snapshot;
+            }
+        }
+        if (latest == null || latest.turn() == 0) {
+            replay(turns, true);
             return;
         }
+        latest.state().write(this);
+        this.turns.addAll(turns.subList(0, latest.turn()));
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.turn() <= latest.turn() && snapshot.turn() % SNAPSHOT_INTERVAL == 0) {
+                this.snapshots.add(snapshot);
+            }
+        }
+        this.snapshots.sort(Comparator.comparingInt(Snapshot::turn));
+        lastAction = this.turns.get(latest.turn() - 1).getLastAction();
+        replay(turns.subList(latest.turn(), turns.size()), true);
+    }
+
+    /**
+     * Loads a parsed game file, trusting its seed. Without {@code verify}, the game resumes from its latest snapshot. With
+     * it, every turn is replayed and each snapshot is checked against the replayed position. Only skip verifying files the
+     * bot wrote itself, since a snapshot that wasn't checked is trusted as the position.
+     *
+     * @throws IllegalArgumentException if the headers are invalid or a snapshot doesn't match
+     */
+    public static Game load(ChaseParser parser, boolean buildup, boolean verify) {
+        readDraws(parser.turns, parser.headers);
+        long seed = newSeed();
+        if (parser.headers.containsKey(SEED_HEADER)) {
+            seed = Long.parseLong(parser.headers.get(SEED_HEADER));
+            buildup = Boolean.parseBoolean(parser.headers.get(BUILDUP_HEADER));
+        }
+        List<Snapshot> snapshots = parser.getHeaders(SNAPSHOT_HEADER).stream()
+                .map(Snapshot::parse)
+                .toList();
+        if (!verify && !snapshots.isEmpty()) {
+            return new Game(parser.turns, buildup, seed, snapshots);
+        }
+        return checkSnapshots(new Game(parser.turns, buildup, seed), snapshots);
+    }
+
+    /**
+     * Loads an uploaded game file. Only a seed {@linkplain #getFileData(Map, GameSeal) sealed} into the same file is used,
+     * so a file can't choose its deal. Otherwise, like a file without a seed, the turns are replayed on a fresh deal. The
+     * file's draws are then only made as far as the deal allows, and its snapshots are ignored, since they can't match it.
+     * <p>
+     * With a sealed seed, the game resumes from the latest sealed snapshot without replaying the turns before it, since
+     * only the bot could have written it for these turns. Files without one are replayed in full and checked against
+     * their plain snapshots.
+     *
+     * @throws IllegalArgumentException if the headers are invalid or a snapshot doesn't match
+     */
+    public static Game load(ChaseParser parser, boolean buildup, GameSeal seal) {
+        readDraws(parser.turns, parser.headers);
+        String sealed = parser.headers.get(SEALED_SEED_HEADER);
+        if (sealed != null) {
+            boolean sealedBuildup = Boolean.parseBoolean(parser.headers.get(BUILDUP_HEADER));
+            byte[] context = GameSeal.getContext(parser.turns, sealedBuildup);
+            Long seed = seal.openSeed(sealed, context);
+            if (seed != null) {
+                List<Snapshot> sealedSnapshots = new ArrayList<>();
+                for (String value : parser.getHeaders(SEALED_SNAPSHOT_HEADER)) {
+                    byte[] bytes = seal.open(value, context);
+                    if (bytes != null) {
+                        sealedSnapshots.add(Snapshot.parse(new String(bytes, StandardCharsets.UTF_8)));
+                    }
+                }
+                if (!sealedSnapshots.isEmpty()) {
+                    return new Game(parser.turns, sealedBuildup, seed, sealedSnapshots);
+                }
+                List<Snapshot> snapshots = parser.getHeaders(SNAPSHOT_HEADER).stream()
+                        .map(Snapshot::parse)
+                        .toList();
+                return checkSnapshots(new Game(parser.turns, sealedBuildup, seed), snapshots);
+            }
+        }
+        Game game = new Game(null, buildup);
+        game.replay(parser.turns, false);
+        return game;
+    }
+
+    private static Game checkSnapshots(Game game, List<Snapshot> snapshots) {
+        for (Snapshot snapshot : snapshots) {
+            if (!snapshot.state().equals(game.getSnapshotState(snapshot.turn()))) {
+                throw new IllegalArgumentException("Snapshot after turn " + snapshot.turn() + " doesn't match the game");
+            }
+        }
+        return game;
+    }
+
+    /**
+     * @return the position after the given number of turns, if it was recorded or is the current one, or {@code null}
+     */
+    public GameState getSnapshotState(int turn) {
+        if (turn == turns.size() && currentTurn.actionSets.isEmpty() && currentTurn.draws == 0) {
+            return GameState.of(this);
+        }
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.turn() == turn) {
+                return snapshot.state();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param exact whether the turns were played on this deal, so every draw they record has to be allowed. On another
+     * deal, the hands differ from the recorded ones and only the draws the deal allows are made.
+     * @throws IllegalArgumentException if {@code exact} and a turn draws more cards than the rules allow
+     */
+    private void replay(List<Turn> turns, boolean exact) {
         for (Turn turn : turns) {
+            for (int i = 0; i < turn.draws; i++) {
+                if (canDraw()) {
+                    draw();
+                }
+                else if (exact) {
+                    throw new IllegalArgumentException("Turn " + this.turns.size() + " can't draw " + turn.draws + " cards");
+                }
+            }
+            if (!turn.actionSets.isEmpty() && turn.actionSets.get(0).actions.get(0).type == Action.Type.PASS) {
+                pass(getAvailableActions().size() + (canDraw() ? 1 : 0) > 1);
+                continue;
+            }
             for (ActionSet set : turn.actionSets) {
                 for (Action action : set.actions) {
                     submitAction(action);
+                    if (action.type == Action.Type.SETUP) {
+                        addToTurn(action);
+                    }
                 }
             }
             endTurn();
         }
     }
 
+    public static long newSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Reads the number of draws at the start of each turn from a {@code @draws} header, written as {@code turn:count}
+     * pairs separated by spaces. Draws aren't part of the turn notation, but without them a replay can't know which
+     * cards were taken from the deck. Whether the counts are allowed is only known once the turns are replayed.
+     *
+     * @throws IllegalArgumentException if a pair is malformed, its turn is out of range or its count is more than a hand
+     */
+    public static void readDraws(List<Turn> turns, Map<String, String> headers) {
+        String draws = headers.get(DRAWS_HEADER);
+        if (draws == null || draws.isEmpty()) {
+            return;
+        }
+        for (String pair : draws.split("\\s+")) {
+            String[] parts = pair.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid draws '" + pair + "', expected 'turn:count'");
+            }
+            int turn = Integer.parseInt(parts[0]);
+            if (turn < 0 || turn >= turns.size()) {
+                throw new IllegalArgumentException("Draw turn " + turn + " is out of range");
+            }
+            int count = Integer.parseInt(parts[1]);
+            if (count < 0 || count > 3) {
+                throw new IllegalArgumentException("Draw count " + count + " on turn " + turn + " is out of range");
+            }
+            turns.get(turn).draws = count;
+        }
+    }
+
+    public static String getDrawsString(List<Turn> turns) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < turns.size(); i++) {
+            if (turns.get(i).draws > 0) {
+                joiner.add(i + ":" + turns.get(i).draws);
+            }
+        }
+        return joiner.toString();
+    }
+
     public static List<String> getTurnLines(String fileData) {
         return fileData.lines()
                 .map(line -> line.replaceAll("#.*", ""))
@@ -78,7 +319,8 @@ public class Game {
 
     public List<Action> getAvailablePlaceActions(Card card, Deck current, boolean ace) {
         List<Action> result = new ArrayList<>();
-        for (int power : current.hand) {
+        for (int i = 0; i < current.getHandSize(); i++) {
+            int power = current.getHandCard(i);
             Card.Type type = Card.Type.fromPower(power);
             if (type == Card.Type.KING && hasPlacedKing) {
                 continue;
@@ -154,70 +396,217 @@ public class Game {
         STALEMATE
     }
 
+    private void beginChange() {
+        if (history == null) {
+            return;
+        }
+        Player.Type currentPlayer = this.currentPlayer;
+        Turn currentTurn = this.currentTurn;
+        Action lastAction = this.lastAction;
+        boolean hasMoved = this.hasMoved;
+        boolean hasPlacedKing = this.hasPlacedKing;
+        boolean lastPlayerCouldAct = this.lastPlayerCouldAct;
+        int passes = this.passes;
+        boolean turnEnded = this.turnEnded;
+        long hash = this.hash;
+        List<Runnable> changes = new ArrayList<>();
+        changes.add(() -> {
+            this.currentPlayer = currentPlayer;
+            this.currentTurn = currentTurn;
+            this.lastAction = lastAction;
+            this.hasMoved = hasMoved;
+            this.hasPlacedKing = hasPlacedKing;
+            this.lastPlayerCouldAct = lastPlayerCouldAct;
+            this.passes = passes;
+            this.turnEnded = turnEnded;
+            this.hash = hash;
+        });
+        history.push(changes);
+    }
+
+    private void record(Runnable revert) {
+        history.element().add(revert);
+    }
+
+    public void rehash() {
+        hash = Zobrist.hash(this);
+    }
+
+    private void put(Player player, Position position, Card card) {
+        Card previous = player.army.board.put(position, card);
+        if (isUndoEnabled()) {
+            record(() -> player.army.board.put(position, previous));
+        }
+        int index = GameState.getIndex(player.type);
+        hash ^= Zobrist.getCardKey(index, position, previous) ^ Zobrist.getCardKey(index, position, card);
+    }
+
+    private void recordArmy(Player player) {
+        if (!isUndoEnabled()) {
+            return;
+        }
+        Map<Position, Card> previous = new EnumMap<>(player.army.board);
+        record(() -> player.army.board.putAll(previous));
+    }
+
+    private long hashArmy(Player player) {
+        return Zobrist.hashArmy(GameState.getIndex(player.type), player.army);
+    }
+
+    private long hashHand(Player player) {
+        return Zobrist.hashHand(GameState.getIndex(player.type), player.deck);
+    }
+
+    private void setMoved() {
+        if (!hasMoved) {
+            hash ^= Zobrist.HAS_MOVED;
+        }
+        hasMoved = true;
+    }
+
+    private void recordDeck(Deck deck) {
+        if (!isUndoEnabled()) {
+            return;
+        }
+        Deck previous = new Deck(deck);
+        record(() -> deck.set(previous));
+    }
+
+    private void addToTurn(Action action) {
+        Turn turn = currentTurn;
+        turn.addAction(action);
+        if (isUndoEnabled()) {
+            record(turn::removeLastAction);
+        }
+    }
+
+    /**
+     * Starts or stops recording changes for {@link #undo()}. Only search and analysis step back through positions, so a
+     * live game leaves this off and doesn't keep a history for its whole length. Stopping drops the recorded changes.
+     */
+    public void setUndoEnabled(boolean enabled) {
+        if (enabled != isUndoEnabled()) {
+            history = enabled ? new ArrayDeque<>() : null;
+        }
+    }
+
+    public boolean isUndoEnabled() {
+        return history != null;
+    }
+
+    public boolean canUndo() {
+        return history != null && !history.isEmpty();
+    }
+
+    /**
+     * Reverts the last {@link #submitAction(Action)}, {@link #endTurn()}, {@link #pass(boolean)} or {@link #draw()}
+     * made since undo was enabled.
+     *
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    public void undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        List<Runnable> changes = history.pop();
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            changes.get(i).run();
+        }
+    }
+
     public ActionResult submitAction(Action action) {
+        beginChange();
         Player current = getPlayer(currentPlayer);
         Player other = getPlayer(currentPlayer.next());
         switch (action.type) {
             case SETUP -> {
                 List<List<Integer>> powers = ListUtils.partition(action.target.powers, 4);
+                recordArmy(black);
+                recordArmy(red);
+                recordDeck(black.deck);
+                recordDeck(red.deck);
                 black.army.loadPowers(powers.get(0));
                 red.army.loadPowers(powers.get(1));
-                for (Integer power : powers.get(0)) {
-                    black.deck.cards.remove(power);
+                for (int power : powers.get(0)) {
+                    black.deck.removeCard(power);
                 }
-                for (Integer power : powers.get(1)) {
-                    red.deck.cards.remove(power);
+                for (int power : powers.get(1)) {
+                    red.deck.removeCard(power);
                 }
                 black.deck.initHand();
                 red.deck.initHand();
+                rehash();
                 return ActionResult.CONTINUE;
             }
             case PLACE -> {
-                current.army.board.put(action.target.position, action.card);
-                if (action.card.type == Card.Type.KING) {
+                put(current, action.target.position, action.card);
+                if (action.card.type == Card.Type.KING && !hasPlacedKing) {
+                    hash ^= Zobrist.HAS_PLACED_KING;
                     hasPlacedKing = true;
                 }
-                Integer placePower = action.card.placePower();
-                if (!current.deck.hand.remove(placePower)) {
-                    current.deck.cards.remove(placePower);
+                int placePower = action.card.placePower();
+                Deck deck = current.deck;
+                if (deck.hasInHand(placePower)) {
+                    hash ^= Zobrist.getHandKey(GameState.getIndex(current.type), GameState.getCode(placePower), deck.getHandCount(placePower) - 1);
+                    int handIndex = deck.removeHand(placePower);
+                    if (isUndoEnabled()) {
+                        record(() -> deck.insertHand(handIndex, placePower));
+                    }
+                }
+                else {
+                    int cardIndex = deck.removeCard(placePower);
+                    if (cardIndex != -1 && isUndoEnabled()) {
+                        record(() -> deck.insertCard(cardIndex, placePower));
+                    }
                 }
             }
             case MOVE -> {
                 Card existing = current.army.board.get(action.target.position);
                 Card newExisting = new Card(existing);
                 Card newActing = new Card(action.card);
-                current.army.board.put(action.target.position, newActing);
-                current.army.board.put(action.card.position, newExisting);
+                put(current, action.target.position, newActing);
+                put(current, action.card.position, newExisting);
                 newExisting.position = action.card.position;
                 newActing.position = action.target.position;
-                hasMoved = true;
+                setMoved();
             }
             case SERVE -> {
-                Card existing = current.army.board.get(action.target.position);
-                existing.servant = action.card.power;
-                current.army.board.put(action.card.position, action.card.position.empty());
-                hasMoved = true;
+                Card served = new Card(current.army.board.get(action.target.position));
+                served.servant = action.card.power;
+                put(current, action.target.position, served);
+                put(current, action.card.position, action.card.position.empty());
+                setMoved();
             }
             case ATTACK -> {
                 Position attackingPos = action.target.position.forward(current.army.isFallbackOpen()).back(other.army.isFallbackOpen());
                 Card attacking = other.army.board.get(attackingPos);
-                other.army.board.put(attackingPos, attackingPos.empty());
+                put(other, attackingPos, attackingPos.empty());
                 if (action.card.shouldDiscard(attacking.totalPower(), other.army.hasAce())) {
-                    current.army.board.put(action.card.position, action.card.position.empty());
+                    put(current, action.card.position, action.card.position.empty());
                 }
             }
             case CHASE -> {
+                Target target = action.target;
+                if (isUndoEnabled()) {
+                    record(() -> action.target = target);
+                }
+                recordArmy(current);
+                recordArmy(other);
+                hash ^= hashArmy(current) ^ hashArmy(other) ^ hashHand(other);
                 current.army.clear(Card.Type.KING);
+                recordDeck(other.deck);
                 action.target = new Target(other.deck.draw(4));
                 other.army.clear();
                 other.army.loadPowers(action.target.powers);
-                other.deck.hand = other.deck.draw(3);
+                other.deck.clearHand();
+                other.deck.drawHand(3);
+                hash ^= hashArmy(current) ^ hashArmy(other) ^ hashHand(other);
             }
         }
         if (passes > 0) {
             passes = 0;
         }
-        currentTurn.addAction(action);
+        addToTurn(action);
         lastAction = action;
         turnEnded = action.type.endsTurn;
         boolean currentEmpty = current.isEmpty();
@@ -240,28 +629,63 @@ public class Game {
 
     public boolean canDraw() {
         Player player = getPlayer(currentPlayer);
-        return currentTurn.actionSets.isEmpty() && player.deck.hand.size() < 3 && !player.deck.cards.isEmpty();
+        return currentTurn.actionSets.isEmpty() && player.deck.getHandSize() < 3 && player.deck.getCardCount() > 0;
     }
 
     public void cycleTurn() {
+        hash ^= Zobrist.getFlagKey(currentPlayer, hasMoved, hasPlacedKing);
         currentPlayer = currentPlayer.next();
+        hash ^= Zobrist.getFlagKey(currentPlayer, false, false);
         currentTurn = new Turn();
         hasMoved = false;
         hasPlacedKing = false;
         turnEnded = false;
     }
 
-    public void endTurn() {
+    private void addTurn() {
         turns.add(currentTurn);
+        if (isUndoEnabled()) {
+            record(() -> turns.remove(turns.size() - 1));
+        }
         cycleTurn();
+        if (turns.size() % SNAPSHOT_INTERVAL == 0) {
+            snapshots.add(new Snapshot(turns.size(), GameState.of(this)));
+            if (isUndoEnabled()) {
+                record(() -> snapshots.remove(snapshots.size() - 1));
+            }
+        }
+    }
+
+    public void endTurn() {
+        beginChange();
+        addTurn();
     }
 
     public void pass(boolean couldAct) {
+        beginChange();
         lastPlayerCouldAct = couldAct;
-        currentTurn.addAction(Action.PASS);
+        addToTurn(Action.PASS);
         lastAction = Action.PASS;
         passes++;
-        endTurn();
+        addTurn();
+    }
+
+    public void draw() {
+        beginChange();
+        Player player = getPlayer(currentPlayer);
+        Deck deck = player.deck;
+        Turn turn = currentTurn;
+        turn.draws++;
+        int power = deck.draw();
+        hash ^= Zobrist.getHandKey(GameState.getIndex(player.type), GameState.getCode(power), deck.getHandCount(power));
+        deck.addHand(power);
+        if (isUndoEnabled()) {
+            record(() -> {
+                deck.removeLastHand();
+                deck.undraw(power);
+                turn.draws--;
+            });
+        }
     }
 
     public void begin() {
@@ -269,16 +693,54 @@ public class Game {
             currentTurn = new Turn();
             Action action = getSetupAction();
             submitAction(action);
-            currentTurn.addAction(action);
+            addToTurn(action);
             endTurn();
         }
     }
 
     public String getFileData(Map<String, String> headers) {
-        List<String> headerStrings = headers.entrySet().stream()
+        return getFileData(headers, null);
+    }
+
+    /**
+     * @param seal the seal to hide the seed and snapshots with, which only {@link #load(ChaseParser, boolean, GameSeal)}
+     * with the same seal can read, or {@code null} to write them in the clear
+     */
+    public String getFileData(Map<String, String> headers, GameSeal seal) {
+        Map<String, String> allHeaders = new LinkedHashMap<>(headers);
+        byte[] context = seal != null ? GameSeal.getContext(turns, buildup) : null;
+        if (seal != null) {
+            allHeaders.put(SEALED_SEED_HEADER, seal.sealSeed(seed, context));
+        }
+        else {
+            allHeaders.put(SEED_HEADER, String.valueOf(seed));
+        }
+        allHeaders.put(BUILDUP_HEADER, String.valueOf(buildup));
+        String draws = getDrawsString(turns);
+        if (!draws.isEmpty()) {
+            allHeaders.put(DRAWS_HEADER, draws);
+        }
+        List<String> headerStrings = allHeaders.entrySet().stream()
                 .map(pair -> "@" + pair.getKey() + " " + pair.getValue())
                 .toList();
-        String lines = String.join("\n", turns.stream().map(Turn::toString).toList());
-        return String.join("\n", headerStrings) + "\n\n" + lines;
+        List<String> lines = new ArrayList<>();
+        int next = 0;
+        for (int i = 0; i < turns.size(); i++) {
+            lines.add(turns.get(i).toString());
+            if (next < snapshots.size() && snapshots.get(next).turn() == i + 1) {
+                lines.add(getSnapshotLine(snapshots.get(next++), seal, context));
+            }
+        }
+        if ((snapshots.isEmpty() || snapshots.get(snapshots.size() - 1).turn() != turns.size())
+                && currentTurn.actionSets.isEmpty() && currentTurn.draws == 0) {
+            lines.add(getSnapshotLine(new Snapshot(turns.size(), GameState.of(this)), seal, context));
+        }
+        return String.join("\n", headerStrings) + "\n\n" + String.join("\n", lines);
+    }
+
+    private static String getSnapshotLine(Snapshot snapshot, GameSeal seal, byte[] context) {
+        return seal != null
+                ? "@" + SEALED_SNAPSHOT_HEADER + " " + seal.seal(snapshot.toString().getBytes(StandardCharsets.UTF_8), context)
+                : "@" + SNAPSHOT_HEADER + " " + snapshot;
     }
-}
+}
\ No newline at end of file
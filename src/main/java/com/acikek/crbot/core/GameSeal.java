@@ -0,0 +1,132 @@
+package com.acikek.crbot.core;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Seals the hidden parts of the game files the bot writes with a key only the server has. Both players get a paused
+ * file, and a seed in the clear would give away every hand and draw to either of them, or let an uploader pick the deal.
+ * <p>
+ * Values are encrypted with AES-GCM, so a sealed value can't be read, and one that was changed doesn't open. The file's
+ * turns are authenticated along with it, so a value only opens in the file it was written into.
+ */
+public class GameSeal {
+
+    public static final int KEY_LENGTH = 32;
+    public static final int IV_LENGTH = 12;
+    public static final int TAG_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    public GameSeal(byte[] key) {
+        if (key.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("Seal key must be " + KEY_LENGTH + " bytes");
+        }
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * @return a seal with a random key, whose values only open until the process exits
+     */
+    public static GameSeal generate() {
+        byte[] key = new byte[KEY_LENGTH];
+        RANDOM.nextBytes(key);
+        return new GameSeal(key);
+    }
+
+    /**
+     * Reads the key from a file, writing a new random key to it first if there is none yet.
+     */
+    public static GameSeal open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            byte[] key = new byte[KEY_LENGTH];
+            RANDOM.nextBytes(key);
+            Files.write(path, key);
+        }
+        return new GameSeal(Files.readAllBytes(path));
+    }
+
+    /**
+     * @return a digest of the turns and the deal they were played with, which sealed values are bound to
+     */
+    public static byte[] getContext(List<Turn> turns, boolean buildup) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) (buildup ? 1 : 0));
+            for (Turn turn : turns) {
+                digest.update((turn + " " + turn.draws + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return digest.digest();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the data encrypted and authenticated together with the context, in URL-safe Base64
+     */
+    public String seal(byte[] data, byte[] context) {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(context);
+            byte[] sealed = cipher.doFinal(data);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(IV_LENGTH + sealed.length).put(iv).put(sealed).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the sealed data, or {@code null} if it wasn't sealed with this key and context or was changed since
+     */
+    public byte[] open(String sealed, byte[] context) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(sealed);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length < IV_LENGTH + TAG_BITS / 8) {
+            return null;
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, 0, IV_LENGTH));
+            cipher.updateAAD(context);
+            return cipher.doFinal(bytes, IV_LENGTH, bytes.length - IV_LENGTH);
+        } catch (AEADBadTagException e) {
+            return null;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String sealSeed(long seed, byte[] context) {
+        return seal(ByteBuffer.allocate(Long.BYTES).putLong(seed).array(), context);
+    }
+
+    /**
+     * @return the sealed seed, or {@code null} if it doesn't open
+     */
+    public Long openSeed(String sealed, byte[] context) {
+        byte[] bytes = open(sealed, context);
+        return bytes != null && bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : null;
+    }
+}
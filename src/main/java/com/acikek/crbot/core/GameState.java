@@ -0,0 +1,743 @@
+package com.acikek.crbot.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A primitive encoding of a {@link Game} position.
+ * <p>
+ * Cards are stored as 4-bit power codes, where {@code 0} is an empty slot, {@code 1} is an ace and every other power maps to itself.
+ * <ul>
+ *     <li>{@link #armies}: one byte per slot (power code, servant in the high nibble), black in the low 32 bits and red in the high 32 bits.</li>
+ *     <li>{@link #hands}: up to eight power codes per player, black in the low 32 bits and red in the high 32 bits.</li>
+ *     <li>{@link #blackCards}/{@link #redCards} and their {@code High} halves: the deck in draw order, 32 codes each.</li>
+ *     <li>{@link #flags}: the current player, turn flags and pass count.</li>
+ * </ul>
+ */
+public class GameState {
+
+    public static final int BLACK = 0;
+    public static final int RED = 1;
+
+    public static final int PLAYER_MASK = 0b11;
+    public static final int HAS_MOVED = 1 << 2;
+    public static final int HAS_PLACED_KING = 1 << 3;
+    public static final int LAST_PLAYER_COULD_ACT = 1 << 4;
+    public static final int TURN_ENDED = 1 << 5;
+    public static final int TURN_STARTED = 1 << 6;
+    public static final int PASSES_SHIFT = 8;
+
+    public static final int HAND_CAPACITY = 8;
+    public static final int DECK_CAPACITY = 32;
+
+    public static final int LEFT = 0;
+    public static final int CENTER = 1;
+    public static final int RIGHT = 2;
+    public static final int FALLBACK = 3;
+
+    public static final int[][] ADJACENT = {
+            { CENTER }, { LEFT, RIGHT, FALLBACK }, { CENTER }, { CENTER }
+    };
+
+    public static final int[][] OTHERS = {
+            { CENTER, RIGHT, FALLBACK }, { LEFT, RIGHT, FALLBACK }, { LEFT, CENTER, FALLBACK }, { LEFT, CENTER, RIGHT }
+    };
+
+    private static final Card.Type[] TYPES = new Card.Type[16];
+    private static final Player.Type[] PLAYERS = Player.Type.values();
+
+    /**
+     * Bit {@code power + 1} is set if the slot can destroy a card of that total power. Indexed by {@code slot | ace << 8}.
+     */
+    private static final int[] DESTROYS = new int[2 << 8];
+
+    /**
+     * Bit {@code power + 1} is set if attacking a card of that total power discards the attacker.
+     * Indexed by {@code slot | position << 8 | ace << 10}.
+     */
+    private static final int[] DISCARDS = new int[2 << 10];
+
+    static {
+        for (int code = 0; code < TYPES.length; code++) {
+            TYPES[code] = Card.Type.fromPower(getPower(code));
+        }
+        for (int slot = 0; slot < 1 << 8; slot++) {
+            Card.Type type = getType(slot);
+            for (int ace = 0; ace < 2; ace++) {
+                for (int power = -1; power < 31; power++) {
+                    if ((ace == 0 && type == Card.Type.JACK) || getTotalPower(slot) >= power) {
+                        DESTROYS[slot | ace << 8] |= 1 << (power + 1);
+                    }
+                    for (int position = LEFT; position <= FALLBACK; position++) {
+                        boolean discard = (ace == 1 || type != Card.Type.MINOR || position != FALLBACK)
+                                && (getSlotServant(slot) > 0 || getSlotPower(slot) <= power);
+                        if (discard) {
+                            DISCARDS[slot | position << 8 | ace << 10] |= 1 << (power + 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public long armies;
+    public long hands;
+    public long blackCards;
+    public long blackCardsHigh;
+    public long redCards;
+    public long redCardsHigh;
+    public int flags = LAST_PLAYER_COULD_ACT;
+
+    public GameState() {
+    }
+
+    public GameState(GameState other) {
+        set(other);
+    }
+
+    public static GameState of(Game game) {
+        GameState state = new GameState();
+        state.read(game);
+        return state;
+    }
+
+    public static int getCode(int power) {
+        return power == -1 ? 0 : power == 0 ? 1 : power;
+    }
+
+    public static int getPower(int code) {
+        return code == 0 ? -1 : code == 1 ? 0 : code;
+    }
+
+    public static int getIndex(Player.Type player) {
+        return player.ordinal() - 1;
+    }
+
+    public static Player.Type getPlayerType(int index) {
+        return index == BLACK ? Player.Type.BLACK : Player.Type.RED;
+    }
+
+    public void set(GameState other) {
+        armies = other.armies;
+        hands = other.hands;
+        blackCards = other.blackCards;
+        blackCardsHigh = other.blackCardsHigh;
+        redCards = other.redCards;
+        redCardsHigh = other.redCardsHigh;
+        flags = other.flags;
+    }
+
+    public Player.Type getCurrentPlayer() {
+        return PLAYERS[flags & PLAYER_MASK];
+    }
+
+    public int getCurrentIndex() {
+        return (flags & PLAYER_MASK) - 1;
+    }
+
+    public void setCurrentPlayer(Player.Type player) {
+        flags = (flags & ~PLAYER_MASK) | player.ordinal();
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    public void setFlag(int flag, boolean value) {
+        flags = value ? flags | flag : flags & ~flag;
+    }
+
+    public int getPasses() {
+        return flags >>> PASSES_SHIFT;
+    }
+
+    public void setPasses(int passes) {
+        flags = (flags & ((1 << PASSES_SHIFT) - 1)) | (passes << PASSES_SHIFT);
+    }
+
+    public static int toSlot(int power, int servant) {
+        return getCode(power) | (servant << 4);
+    }
+
+    public static int getSlotPower(int slot) {
+        return getPower(slot & 0xF);
+    }
+
+    public static int getSlotServant(int slot) {
+        return slot >>> 4;
+    }
+
+    public static int getArmy(long armies, int player) {
+        return (int) (armies >>> (player << 5));
+    }
+
+    public int getSlot(int player, int position) {
+        return (int) (armies >>> ((player << 5) | (position << 3))) & 0xFF;
+    }
+
+    public void setSlot(int player, int position, int slot) {
+        int shift = (player << 5) | (position << 3);
+        armies = (armies & ~(0xFFL << shift)) | ((long) slot << shift);
+    }
+
+    public static Card.Type getType(int slot) {
+        return TYPES[slot & 0xF];
+    }
+
+    public static int getTotalPower(int slot) {
+        return getSlotPower(slot) + getSlotServant(slot);
+    }
+
+    public static int relative(int position) {
+        return position == LEFT ? RIGHT : position == RIGHT ? LEFT : position;
+    }
+
+    public static int back(int position, boolean fallbackOpen) {
+        return position == CENTER && fallbackOpen ? FALLBACK : position;
+    }
+
+    public static int forward(int position, boolean fallbackOpen) {
+        return position == FALLBACK && fallbackOpen ? CENTER : position;
+    }
+
+    public Card getCard(int player, Position position) {
+        int slot = getSlot(player, position.ordinal());
+        if (slot == 0) {
+            return position.empty();
+        }
+        Card card = new Card(getSlotPower(slot), position);
+        card.servant = getSlotServant(slot);
+        return card;
+    }
+
+    public boolean isArmyEmpty(int player) {
+        return getArmy(armies, player) == 0;
+    }
+
+    public boolean isFallbackOpen(int player) {
+        return getSlot(player, CENTER) == 0;
+    }
+
+    public boolean hasAce(int player) {
+        int army = getArmy(armies, player);
+        return (army & 0xF) == 1 || ((army >>> 8) & 0xF) == 1 || ((army >>> 16) & 0xF) == 1;
+    }
+
+    public int getHand(int player) {
+        return (int) (hands >>> (player << 5));
+    }
+
+    public void setHand(int player, int hand) {
+        int shift = player << 5;
+        hands = (hands & ~(0xFFFFFFFFL << shift)) | ((hand & 0xFFFFFFFFL) << shift);
+    }
+
+    public static int countHand(int hand) {
+        return (35 - Integer.numberOfLeadingZeros(hand)) >>> 2;
+    }
+
+    public int getHandSize(int player) {
+        return countHand(getHand(player));
+    }
+
+    public int getHandPower(int player, int index) {
+        return getPower((getHand(player) >>> (index << 2)) & 0xF);
+    }
+
+    public void addHand(int player, int power) {
+        int hand = getHand(player);
+        int size = countHand(hand);
+        if (size >= HAND_CAPACITY) {
+            throw new IllegalStateException("Hand is full");
+        }
+        setHand(player, hand | (getCode(power) << (size << 2)));
+    }
+
+    public boolean removeHand(int player, int power) {
+        int hand = getHand(player);
+        int code = getCode(power);
+        for (int i = 0; i < HAND_CAPACITY; i++) {
+            int current = (hand >>> (i << 2)) & 0xF;
+            if (current == 0) {
+                return false;
+            }
+            if (current == code) {
+                int shift = i << 2;
+                int lower = (1 << shift) - 1;
+                setHand(player, (hand & lower) | ((hand >>> 4) & ~lower));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getCards(int player) {
+        return player == BLACK ? blackCards : redCards;
+    }
+
+    public long getCardsHigh(int player) {
+        return player == BLACK ? blackCardsHigh : redCardsHigh;
+    }
+
+    public void setCards(int player, long low, long high) {
+        if (player == BLACK) {
+            blackCards = low;
+            blackCardsHigh = high;
+        }
+        else {
+            redCards = low;
+            redCardsHigh = high;
+        }
+    }
+
+    public static int countDeck(long low, long high) {
+        return high != 0
+                ? 16 + ((67 - Long.numberOfLeadingZeros(high)) >>> 2)
+                : (67 - Long.numberOfLeadingZeros(low)) >>> 2;
+    }
+
+    public int getDeckSize(int player) {
+        return countDeck(getCards(player), getCardsHigh(player));
+    }
+
+    public int getDeckPower(int player, int index) {
+        long word = index < 16 ? getCards(player) : getCardsHigh(player);
+        return getPower((int) (word >>> ((index & 15) << 2)) & 0xF);
+    }
+
+    public void addDeck(int player, int power) {
+        long low = getCards(player);
+        long high = getCardsHigh(player);
+        int size = countDeck(low, high);
+        if (size >= DECK_CAPACITY) {
+            throw new IllegalStateException("Deck is full");
+        }
+        long code = getCode(power);
+        if (size < 16) {
+            low |= code << (size << 2);
+        }
+        else {
+            high |= code << ((size - 16) << 2);
+        }
+        setCards(player, low, high);
+    }
+
+    public void removeDeckAt(int player, int index) {
+        long low = getCards(player);
+        long high = getCardsHigh(player);
+        if (index < 16) {
+            long lower = (1L << (index << 2)) - 1;
+            low = (low & lower) | ((low >>> 4) & ~lower) | (high << 60);
+            high >>>= 4;
+        }
+        else {
+            long lower = (1L << ((index - 16) << 2)) - 1;
+            high = (high & lower) | ((high >>> 4) & ~lower);
+        }
+        setCards(player, low, high);
+    }
+
+    public boolean removeDeck(int player, int power) {
+        int size = getDeckSize(player);
+        for (int i = 0; i < size; i++) {
+            if (getDeckPower(player, i) == power) {
+                removeDeckAt(player, i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int drawDeck(int player) {
+        long low = getCards(player);
+        if (low == 0) {
+            return -1;
+        }
+        long high = getCardsHigh(player);
+        setCards(player, (low >>> 4) | (high << 60), high >>> 4);
+        return getPower((int) low & 0xF);
+    }
+
+    public boolean isDeckEmpty(int player) {
+        return getHand(player) == 0 && getCards(player) == 0;
+    }
+
+    public boolean isPlayerEmpty(int player) {
+        return isArmyEmpty(player) && isDeckEmpty(player);
+    }
+
+    public void addPlaceActions(ActionBuffer buffer, int slot, int position, boolean ace) {
+        Card.Type type = getType(slot);
+        boolean servable = !ace && type == Card.Type.MAJOR && getSlotServant(slot) <= 0;
+        boolean placedKing = hasFlag(HAS_PLACED_KING);
+        for (int hand = getHand(getCurrentIndex()); hand != 0; hand >>>= 4) {
+            int code = hand & 0xF;
+            Card.Type handType = TYPES[code];
+            if (handType == Card.Type.KING && placedKing) {
+                continue;
+            }
+            if (type == Card.Type.EMPTY) {
+                buffer.add(PackedAction.of(Action.Type.PLACE, code, position, position));
+            }
+            else if (servable && handType == Card.Type.PAWN) {
+                buffer.add(PackedAction.of(Action.Type.PLACE, slot | code << 4, position, position));
+            }
+        }
+    }
+
+    public void addMoveActions(ActionBuffer buffer, int slot, int position, boolean ace) {
+        int current = getCurrentIndex();
+        Card.Type type = getType(slot);
+        int[] positions = !ace && type == Card.Type.MAJOR ? OTHERS[position] : ADJACENT[position];
+        for (int target : positions) {
+            int existing = getSlot(current, target);
+            Card.Type existingType = getType(existing);
+            if (existingType != Card.Type.KING) {
+                buffer.add(PackedAction.of(Action.Type.MOVE, slot, position, target));
+            }
+            if (existingType == Card.Type.MAJOR && getSlotServant(existing) <= 0 && type == Card.Type.PAWN) {
+                buffer.add(PackedAction.of(Action.Type.SERVE, slot, position, target));
+            }
+        }
+    }
+
+    public void addChaseAction(ActionBuffer buffer, int slot, int position) {
+        int current = getCurrentIndex();
+        for (int adjacent : ADJACENT[position]) {
+            if (getType(getSlot(current, adjacent)) == Card.Type.KING) {
+                buffer.add(PackedAction.of(Action.Type.CHASE, slot, position, 0));
+                return;
+            }
+        }
+    }
+
+    public void addAttackAction(ActionBuffer buffer, int slot, int position, int target, int other, boolean ace) {
+        int opponent = getSlot(other, target);
+        if (opponent == 0) {
+            return;
+        }
+        if (canDestroy(slot, getTotalPower(opponent), ace)) {
+            buffer.add(PackedAction.of(Action.Type.ATTACK, slot, position, target));
+        }
+    }
+
+    public void addAttackActions(ActionBuffer buffer, int slot, int position, boolean ace) {
+        int current = getCurrentIndex();
+        int other = current ^ 1;
+        Card.Type type = getType(slot);
+        boolean open = position != FALLBACK || isFallbackOpen(current);
+        boolean otherOpen = isFallbackOpen(other);
+        if (!ace && type == Card.Type.MINOR && position == FALLBACK) {
+            for (int target = LEFT; target <= FALLBACK; target++) {
+                addAttackAction(buffer, slot, position, target, other, ace);
+            }
+        }
+        else if (!open) {
+            return;
+        }
+        else if (!ace && type == Card.Type.QUEEN) {
+            boolean centerFile = position == CENTER || position == FALLBACK;
+            for (int target = LEFT; target <= RIGHT; target++) {
+                if (centerFile || target != relative(position)) {
+                    addAttackAction(buffer, slot, position, back(relative(target), otherOpen), other, ace);
+                }
+            }
+        }
+        else {
+            addAttackAction(buffer, slot, position, back(relative(forward(position, open)), otherOpen), other, ace);
+        }
+    }
+
+    /**
+     * Writes the same actions as {@link Game#getAvailableActions()}, in the same order, into the buffer.
+     * @return the amount of available actions
+     */
+    public int getAvailableActions(ActionBuffer buffer) {
+        buffer.clear();
+        int current = getCurrentIndex();
+        boolean ace = hasAce(current ^ 1);
+        boolean moved = hasFlag(HAS_MOVED);
+        for (int position = LEFT; position <= FALLBACK; position++) {
+            int slot = getSlot(current, position);
+            addPlaceActions(buffer, slot, position, ace);
+            Card.Type type = getType(slot);
+            if (type == Card.Type.EMPTY) {
+                continue;
+            }
+            if (!moved) {
+                if (type != Card.Type.KING) {
+                    addMoveActions(buffer, slot, position, ace);
+                }
+                else if (!ace) {
+                    addChaseAction(buffer, slot, position);
+                }
+            }
+            addAttackActions(buffer, slot, position, ace);
+        }
+        if (!hasFlag(TURN_STARTED) && getPasses() < 2 && hasFlag(LAST_PLAYER_COULD_ACT)) {
+            buffer.add(PackedAction.PASS);
+        }
+        return buffer.size;
+    }
+
+    /**
+     * Writes every choice the current player has, which are the available actions along with {@link PackedAction#DRAW} and {@link PackedAction#END}.
+     * @return the amount of available moves
+     */
+    public int getAvailableMoves(ActionBuffer buffer) {
+        getAvailableActions(buffer);
+        if (canDraw()) {
+            buffer.add(PackedAction.DRAW);
+        }
+        if (hasFlag(TURN_STARTED)) {
+            buffer.add(PackedAction.END);
+        }
+        return buffer.size;
+    }
+
+    /**
+     * Plays a move the way the board's buttons do, ending the turn after a turn-ending action.
+     * @param couldAct whether the current player had any move other than a pass
+     */
+    public Game.ActionResult play(int move, boolean couldAct) {
+        if (move == PackedAction.DRAW) {
+            draw();
+            return Game.ActionResult.CONTINUE;
+        }
+        if (move == PackedAction.END) {
+            endTurn();
+            return Game.ActionResult.END_TURN;
+        }
+        if (move == PackedAction.PASS) {
+            pass(couldAct);
+            return Game.ActionResult.END_TURN;
+        }
+        Game.ActionResult result = submitAction(move);
+        if (result == Game.ActionResult.END_TURN) {
+            endTurn();
+        }
+        return result;
+    }
+
+    public int getWinner(Game.ActionResult result) {
+        return switch (result) {
+            case WIN -> getCurrentIndex();
+            case LOSE -> getCurrentIndex() ^ 1;
+            default -> -1;
+        };
+    }
+
+    public static boolean canDestroy(int slot, int power, boolean ace) {
+        return (DESTROYS[slot | (ace ? 1 << 8 : 0)] >>> (power + 1) & 1) != 0;
+    }
+
+    public static boolean shouldDiscard(int slot, int position, int power, boolean ace) {
+        return (DISCARDS[slot | position << 8 | (ace ? 1 << 10 : 0)] >>> (power + 1) & 1) != 0;
+    }
+
+    /**
+     * Applies an action in place, mirroring {@link Game#submitAction(Action)}.
+     * Copy the state beforehand to be able to return to it.
+     */
+    public Game.ActionResult submitAction(int action) {
+        int current = getCurrentIndex();
+        int other = current ^ 1;
+        int slot = PackedAction.getSlot(action);
+        int position = PackedAction.getPosition(action);
+        int target = PackedAction.getTarget(action);
+        switch (PackedAction.getType(action)) {
+            case PLACE -> {
+                setSlot(current, target, slot);
+                if (getType(slot) == Card.Type.KING) {
+                    setFlag(HAS_PLACED_KING, true);
+                }
+                int placePower = getSlotServant(slot) > 0 ? getSlotServant(slot) : getSlotPower(slot);
+                if (!removeHand(current, placePower)) {
+                    removeDeck(current, placePower);
+                }
+            }
+            case MOVE -> {
+                int existing = getSlot(current, target);
+                setSlot(current, target, slot);
+                setSlot(current, position, existing);
+                setFlag(HAS_MOVED, true);
+            }
+            case SERVE -> {
+                int existing = getSlot(current, target);
+                setSlot(current, target, (existing & 0xF) | getSlotPower(slot) << 4);
+                setSlot(current, position, 0);
+                setFlag(HAS_MOVED, true);
+            }
+            case ATTACK -> {
+                int attackingPos = back(forward(target, isFallbackOpen(current)), isFallbackOpen(other));
+                int attacking = getSlot(other, attackingPos);
+                setSlot(other, attackingPos, 0);
+                if (shouldDiscard(slot, position, getTotalPower(attacking), hasAce(other))) {
+                    setSlot(current, position, 0);
+                }
+            }
+            case CHASE -> {
+                for (int i = LEFT; i <= FALLBACK; i++) {
+                    if (getType(getSlot(current, i)) == Card.Type.KING) {
+                        setSlot(current, i, 0);
+                    }
+                }
+                for (int i = LEFT; i <= FALLBACK; i++) {
+                    int power = drawDeck(other);
+                    setSlot(other, i, power == -1 ? 0 : toSlot(power, 0));
+                }
+                setHand(other, 0);
+                for (int i = 0; i < 3 && getCards(other) != 0; i++) {
+                    addHand(other, drawDeck(other));
+                }
+            }
+        }
+        setPasses(0);
+        setFlag(TURN_STARTED, true);
+        boolean turnEnded = PackedAction.getType(action).endsTurn;
+        setFlag(TURN_ENDED, turnEnded);
+        boolean currentEmpty = isPlayerEmpty(current);
+        boolean otherEmpty = isPlayerEmpty(other);
+        if (currentEmpty || otherEmpty) {
+            return otherEmpty && !currentEmpty
+                    ? Game.ActionResult.WIN
+                    : !otherEmpty
+                            ? Game.ActionResult.LOSE
+                            : Game.ActionResult.STALEMATE;
+        }
+        return turnEnded ? Game.ActionResult.END_TURN : Game.ActionResult.CONTINUE;
+    }
+
+    public void endTurn() {
+        int player = flags & PLAYER_MASK;
+        flags &= ~(PLAYER_MASK | HAS_MOVED | HAS_PLACED_KING | TURN_ENDED | TURN_STARTED);
+        flags |= player == Player.Type.BLACK.ordinal() ? Player.Type.RED.ordinal() : Player.Type.BLACK.ordinal();
+    }
+
+    public void pass(boolean couldAct) {
+        setFlag(LAST_PLAYER_COULD_ACT, couldAct);
+        setPasses(getPasses() + 1);
+        endTurn();
+    }
+
+    public boolean canDraw() {
+        int current = getCurrentIndex();
+        return !hasFlag(TURN_STARTED) && getHandSize(current) < 3 && getCards(current) != 0;
+    }
+
+    public void draw() {
+        int current = getCurrentIndex();
+        addHand(current, drawDeck(current));
+    }
+
+    /**
+     * Deals both armies and hands from the top of each deck, mirroring {@link Game#begin()}.
+     */
+    public void begin() {
+        for (int player = BLACK; player <= RED; player++) {
+            for (int position = LEFT; position <= FALLBACK; position++) {
+                setSlot(player, position, toSlot(drawDeck(player), 0));
+            }
+            for (int i = 0; i < 3; i++) {
+                addHand(player, drawDeck(player));
+            }
+        }
+        setCurrentPlayer(Player.Type.SETUP);
+        endTurn();
+    }
+
+    public void read(Game game) {
+        armies = 0;
+        hands = 0;
+        for (int player = BLACK; player <= RED; player++) {
+            Player source = game.getPlayer(getPlayerType(player));
+            for (Position position : Position.values()) {
+                Card card = source.army.board.get(position);
+                setSlot(player, position.ordinal(), card.type == Card.Type.EMPTY ? 0 : toSlot(card.power, card.servant));
+            }
+            Deck deck = source.deck;
+            for (int i = 0; i < deck.getHandSize(); i++) {
+                addHand(player, deck.getHandCard(i));
+            }
+            setCards(player, 0, 0);
+            for (int i = 0; i < deck.getCardCount(); i++) {
+                addDeck(player, deck.getCard(i));
+            }
+        }
+        flags = game.currentPlayer.ordinal();
+        setFlag(HAS_MOVED, game.hasMoved);
+        setFlag(HAS_PLACED_KING, game.hasPlacedKing);
+        setFlag(LAST_PLAYER_COULD_ACT, game.lastPlayerCouldAct);
+        setFlag(TURN_ENDED, game.turnEnded);
+        setFlag(TURN_STARTED, !game.currentTurn.actionSets.isEmpty());
+        setPasses(game.passes);
+    }
+
+    public List<Integer> getHandPowers(int player) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < getHandSize(player); i++) {
+            result.add(getHandPower(player, i));
+        }
+        return result;
+    }
+
+    public List<Integer> getDeckPowers(int player) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < getDeckSize(player); i++) {
+            result.add(getDeckPower(player, i));
+        }
+        return result;
+    }
+
+    /**
+     * Writes this position onto a game. The game's turn history, including the contents of its current turn, is left as-is.
+     */
+    public void write(Game game) {
+        for (int player = BLACK; player <= RED; player++) {
+            Player target = game.getPlayer(getPlayerType(player));
+            for (Position position : Position.values()) {
+                target.army.board.put(position, getCard(player, position));
+            }
+            target.deck.clear();
+            for (int i = 0; i < getHandSize(player); i++) {
+                target.deck.addHand(getHandPower(player, i));
+            }
+            for (int i = 0; i < getDeckSize(player); i++) {
+                target.deck.addCard(getDeckPower(player, i));
+            }
+        }
+        game.currentPlayer = getCurrentPlayer();
+        game.hasMoved = hasFlag(HAS_MOVED);
+        game.hasPlacedKing = hasFlag(HAS_PLACED_KING);
+        game.lastPlayerCouldAct = hasFlag(LAST_PLAYER_COULD_ACT);
+        game.turnEnded = hasFlag(TURN_ENDED);
+        game.passes = getPasses();
+        game.rehash();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof GameState state) {
+            return armies == state.armies && hands == state.hands
+                    && blackCards == state.blackCards && blackCardsHigh == state.blackCardsHigh
+                    && redCards == state.redCards && redCardsHigh == state.redCardsHigh
+                    && flags == state.flags;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(armies);
+        result = 31 * result + Long.hashCode(hands);
+        result = 31 * result + Long.hashCode(blackCards);
+        result = 31 * result + Long.hashCode(blackCardsHigh);
+        result = 31 * result + Long.hashCode(redCards);
+        result = 31 * result + Long.hashCode(redCardsHigh);
+        result = 31 * result + flags;
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.acikek.crbot.core;
+
+/**
+ * Encodes an {@link Action} as an int.
+ * <p>
+ * Bits 0-3 hold the type ordinal, 4-11 the acting card as a {@link GameState} slot, 12-13 its position ordinal
+ * and 14-15 the target position ordinal. {@link #DRAW} and {@link #END} stand for the board's Draw and End Turn buttons.
+ */
+public class PackedAction {
+
+    public static final int PASS = of(Action.Type.PASS, 0, 0, 0);
+    public static final int DRAW = 0xE;
+    public static final int END = 0xF;
+
+    private static final Action.Type[] TYPES = Action.Type.values();
+
+    public static int of(Action.Type type, int slot, int position, int target) {
+        return type.ordinal() | slot << 4 | position << 12 | target << 14;
+    }
+
+    public static int of(Action action) {
+        if (action.card == null) {
+            return of(action.type, 0, 0, 0);
+        }
+        int slot = action.card.type == Card.Type.EMPTY ? 0 : GameState.toSlot(action.card.power, action.card.servant);
+        int target = action.target != null && action.target.position != null ? action.target.position.ordinal() : 0;
+        return of(action.type, slot, action.card.position.ordinal(), target);
+    }
+
+    public static boolean isAction(int move) {
+        return move != DRAW && move != END;
+    }
+
+    public static Action.Type getType(int action) {
+        return TYPES[action & 0xF];
+    }
+
+    public static int getSlot(int action) {
+        return (action >>> 4) & 0xFF;
+    }
+
+    public static int getPosition(int action) {
+        return (action >>> 12) & 0b11;
+    }
+
+    public static int getTarget(int action) {
+        return (action >>> 14) & 0b11;
+    }
+
+    public static Action toAction(int action) {
+        Action.Type type = getType(action);
+        if (type == Action.Type.PASS) {
+            return Action.PASS;
+        }
+        int slot = getSlot(action);
+        Card card = new Card(GameState.getSlotPower(slot), Position.fromOrdinal(getPosition(action)));
+        card.servant = GameState.getSlotServant(slot);
+        Target target = type.targetType == Target.Type.POSITION
+                ? new Target(Position.fromOrdinal(getTarget(action)))
+                : new Target(Target.Type.CARDS);
+        return new Action(card, type, target);
+    }
+}
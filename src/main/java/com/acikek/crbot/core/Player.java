@@ -1,6 +1,6 @@
 package com.acikek.crbot.core;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class Player {
 
@@ -38,7 +38,7 @@ public class Player {
     public Army army = new Army();
     public Deck deck;
 
-    public Player(Type type, Random random, boolean buildup) {
+    public Player(Type type, RandomGenerator random, boolean buildup) {
         this.type = type;
         deck = new Deck(random, buildup);
     }
@@ -13,12 +13,31 @@ public enum Position {
             LEFT, CENTER, RIGHT
     };
 
+    private static final Position[] VALUES = values();
+    private static final Card[] EMPTY = new Card[VALUES.length];
+    private static final List<List<Position>> ADJACENT = List.of(
+            List.of(CENTER), List.of(LEFT, RIGHT, FALLBACK), List.of(CENTER), List.of(CENTER)
+    );
+    private static final List<List<Position>> OTHERS = List.of(
+            List.of(CENTER, RIGHT, FALLBACK), List.of(LEFT, RIGHT, FALLBACK), List.of(LEFT, CENTER, FALLBACK), List.of(LEFT, CENTER, RIGHT)
+    );
+
+    static {
+        for (Position position : VALUES) {
+            EMPTY[position.ordinal()] = new Card(-1, position);
+        }
+    }
+
     public final int number;
 
     Position(int number) {
         this.number = number;
     }
 
+    public static Position fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
     public static Position fromRank(int rank) {
         return switch (rank) {
             case 1 -> LEFT;
@@ -29,8 +48,11 @@ public enum Position {
         };
     }
 
+    /**
+     * @return the shared empty card at this position, which must not be modified
+     */
     public Card empty() {
-        return new Card(-1, this);
+        return EMPTY[ordinal()];
     }
 
     public Position relative() {
@@ -54,9 +76,11 @@ public enum Position {
     }
 
     public List<Position> adjacent() {
-        return this == CENTER
-                ? List.of(LEFT, RIGHT, FALLBACK)
-                : List.of(CENTER);
+        return ADJACENT.get(ordinal());
+    }
+
+    public List<Position> others() {
+        return OTHERS.get(ordinal());
     }
 
     public boolean isSameFile(Position other) {
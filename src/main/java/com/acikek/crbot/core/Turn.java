@@ -7,6 +7,7 @@ import java.util.List;
 public class Turn {
 
     public List<ActionSet> actionSets = new ArrayList<>();
+    public int draws;
 
     public void addAction(Card card, Action action) {
         if (actionSets.isEmpty() || !actionSets.get(actionSets.size() - 1).card.equals(card)) {
@@ -32,6 +33,22 @@ public class Turn {
         addAction(null, type, target);
     }
 
+    public Action getLastAction() {
+        if (actionSets.isEmpty()) {
+            return null;
+        }
+        List<Action> actions = actionSets.get(actionSets.size() - 1).actions;
+        return actions.get(actions.size() - 1);
+    }
+
+    public void removeLastAction() {
+        ActionSet last = actionSets.get(actionSets.size() - 1);
+        last.actions.remove(last.actions.size() - 1);
+        if (last.actions.isEmpty()) {
+            actionSets.remove(actionSets.size() - 1);
+        }
+    }
+
     @Override
     public String toString() {
         List<String> setStrings = actionSets.stream()
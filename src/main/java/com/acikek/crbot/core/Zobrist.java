@@ -0,0 +1,148 @@
+package com.acikek.crbot.core;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for hashing positions. Hands are hashed as multisets, so card order within a hand doesn't matter.
+ * The keys come from a fixed seed so that hashes stay comparable across runs.
+ */
+public class Zobrist {
+
+    public static final long SEED = 0x43686173655265L;
+
+    public static final long[] SLOTS = new long[2 << 10];
+    public static final long[] HANDS = new long[2 << 7];
+    public static final long[] PLAYERS = new long[Player.Type.values().length];
+    public static final long HAS_MOVED;
+    public static final long HAS_PLACED_KING;
+    public static final long[] HAND_SIZES = new long[2 * (GameState.HAND_CAPACITY + 1)];
+    public static final long[] DECK_SIZES = new long[2 * (GameState.DECK_CAPACITY + 1)];
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < SLOTS.length; i++) {
+            SLOTS[i] = (i & 0xFF) == 0 ? 0 : random.nextLong();
+        }
+        for (int i = 0; i < HANDS.length; i++) {
+            HANDS[i] = random.nextLong();
+        }
+        for (int i = 0; i < PLAYERS.length; i++) {
+            PLAYERS[i] = random.nextLong();
+        }
+        HAS_MOVED = random.nextLong();
+        HAS_PLACED_KING = random.nextLong();
+        for (int i = 0; i < HAND_SIZES.length; i++) {
+            HAND_SIZES[i] = random.nextLong();
+        }
+        for (int i = 0; i < DECK_SIZES.length; i++) {
+            DECK_SIZES[i] = random.nextLong();
+        }
+    }
+
+    public static long getSlotKey(int player, int position, int slot) {
+        return SLOTS[(player << 10) | (position << 8) | slot];
+    }
+
+    public static long getCardKey(int player, Position position, Card card) {
+        int slot = card.type == Card.Type.EMPTY ? 0 : GameState.toSlot(card.power, card.servant);
+        return getSlotKey(player, position.ordinal(), slot);
+    }
+
+    public static long getHandKey(int player, int code, int occurrence) {
+        return HANDS[(player << 7) | (code << 3) | Math.min(occurrence, 7)];
+    }
+
+    public static long getFlagKey(Player.Type player, boolean hasMoved, boolean hasPlacedKing) {
+        long result = PLAYERS[player.ordinal()];
+        if (hasMoved) {
+            result ^= HAS_MOVED;
+        }
+        if (hasPlacedKing) {
+            result ^= HAS_PLACED_KING;
+        }
+        return result;
+    }
+
+    public static long hashArmy(int player, Army army) {
+        long result = 0;
+        for (Map.Entry<Position, Card> entry : army.board.entrySet()) {
+            result ^= getCardKey(player, entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    public static long hashHand(int player, Deck deck) {
+        long result = 0;
+        for (int power : Deck.POWERS) {
+            int code = GameState.getCode(power);
+            for (int i = deck.getHandCount(power) - 1; i >= 0; i--) {
+                result ^= getHandKey(player, code, i);
+            }
+        }
+        return result;
+    }
+
+    public static long hashHand(int player, int hand) {
+        long result = 0;
+        long counts = 0;
+        for (; hand != 0; hand >>>= 4) {
+            int shift = (hand & 0xF) << 2;
+            result ^= getHandKey(player, shift >>> 2, (int) (counts >>> shift) & 0xF);
+            counts += 1L << shift;
+        }
+        return result;
+    }
+
+    public static long hash(Game game) {
+        long result = getFlagKey(game.currentPlayer, game.hasMoved, game.hasPlacedKing);
+        for (int player = GameState.BLACK; player <= GameState.RED; player++) {
+            Player source = game.getPlayer(GameState.getPlayerType(player));
+            result ^= hashArmy(player, source.army) ^ hashHand(player, source.deck);
+        }
+        return result;
+    }
+
+    public static long hash(GameState state) {
+        long result = getFlagKey(state.getCurrentPlayer(), state.hasFlag(GameState.HAS_MOVED), state.hasFlag(GameState.HAS_PLACED_KING));
+        for (int player = GameState.BLACK; player <= GameState.RED; player++) {
+            for (int position = GameState.LEFT; position <= GameState.FALLBACK; position++) {
+                result ^= getSlotKey(player, position, state.getSlot(player, position));
+            }
+            result ^= hashHand(player, state.getHand(player));
+        }
+        return result;
+    }
+
+    /**
+     * Hashes only the cards of the player to move: their army and hand, with the turn flags. Positions with the same
+     * own cards get the same hash whatever the opponent holds, so the hash repeats across deals far more often than
+     * {@link #hashVisible(GameState)}.
+     */
+    public static long hashOwn(GameState state) {
+        int current = state.getCurrentIndex();
+        long result = getFlagKey(state.getCurrentPlayer(), state.hasFlag(GameState.HAS_MOVED), state.hasFlag(GameState.HAS_PLACED_KING));
+        for (int position = GameState.LEFT; position <= GameState.FALLBACK; position++) {
+            result ^= getSlotKey(current, position, state.getSlot(current, position));
+        }
+        return result ^ hashHand(current, state.getHand(current));
+    }
+
+    /**
+     * Hashes the position as the player to move sees it: both armies and their own hand, but only the sizes of the
+     * opponent's hand and of both decks. Positions that only differ in hidden cards get the same hash.
+     */
+    public static long hashVisible(GameState state) {
+        int current = state.getCurrentIndex();
+        long result = getFlagKey(state.getCurrentPlayer(), state.hasFlag(GameState.HAS_MOVED), state.hasFlag(GameState.HAS_PLACED_KING));
+        for (int player = GameState.BLACK; player <= GameState.RED; player++) {
+            for (int position = GameState.LEFT; position <= GameState.FALLBACK; position++) {
+                result ^= getSlotKey(player, position, state.getSlot(player, position));
+            }
+            result ^= DECK_SIZES[player * (GameState.DECK_CAPACITY + 1) + state.getDeckSize(player)];
+        }
+        int other = current ^ 1;
+        return result ^ hashHand(current, state.getHand(current))
+                ^ HAND_SIZES[other * (GameState.HAND_CAPACITY + 1) + state.getHandSize(other)];
+    }
+}
@@ -0,0 +1,331 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Iterative deepening alpha-beta search over fully known {@link GameState} positions.
+ * <p>
+ * Scores are from the point of view of the player to move, and a turn of several moves is searched as several plies
+ * without changing sides. The search can be stopped at any time and keeps the result of the last finished iteration.
+ * Several searches can run together over one shared table with {@link LazySmp}.
+ */
+public class AlphaBeta {
+
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = MATE + 1;
+
+    public record Result(int[] line, int score, int depth, long nodes, long nanos) {
+
+        public int getMove() {
+            return line.length > 0 ? line[0] : 0;
+        }
+
+        public boolean isMate() {
+            return Math.abs(score) > MATE - MAX_PLY;
+        }
+
+        public String getScoreString() {
+            if (!isMate()) {
+                return (score > 0 ? "+" : "") + score;
+            }
+            int turns = MATE - Math.abs(score);
+            return (score > 0 ? "Win" : "Loss") + " in " + turns + " " + (turns == 1 ? "ply" : "plies");
+        }
+
+        @Override
+        public String toString() {
+            return "depth " + depth + ", score " + getScoreString() + ", " + nodes + " nodes in " + nanos / 1_000_000 + "ms";
+        }
+    }
+
+    public final TranspositionTable table;
+    public Evaluator evaluator = LinearEvaluator.DEFAULT;
+    public Tablebase tablebase;
+
+    private final GameState[] states = new GameState[MAX_PLY + 1];
+    private final ActionBuffer[] buffers = new ActionBuffer[MAX_PLY + 1];
+    private final int[][] scores = new int[MAX_PLY + 1][];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[] history = new int[ActionTable.SIZE];
+
+    LazySmp group;
+
+    private volatile boolean stopRequested;
+    private boolean stopped;
+    private long deadline;
+    private long nodeLimit;
+    private long nodes;
+
+    public AlphaBeta(TranspositionTable table) {
+        this.table = table;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            states[i] = new GameState();
+            buffers[i] = new ActionBuffer();
+            scores[i] = new int[buffers[i].actions.length];
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Extends the {@link Zobrist} hash with the deck orders and turn flags, which decide what can happen next.
+     */
+    public static long getKey(GameState state) {
+        return Zobrist.hash(state)
+                ^ mix(state.blackCards) ^ mix(~state.blackCardsHigh)
+                ^ mix(state.redCards + 0x9E3779B97F4A7C15L) ^ mix(state.redCardsHigh - 0x9E3779B97F4A7C15L)
+                ^ mix(state.flags * 0xD1B54A32D192ED03L + 1);
+    }
+
+    /**
+     * Stops the current search, or the next one if none is running, until {@link #clearStop()}.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Lets searches run again after {@link #stop()}. Call it before handing a search to another thread rather than
+     * from that thread, so a stop issued in between isn't lost.
+     */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * @return the nodes searched so far by the current or last search, including any unfinished iteration
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches the position until the depth or time budget runs out.
+     * @param millis the time budget, or {@code 0} for none
+     */
+    public Result search(GameState root, int maxDepth, long millis) {
+        return search(root, maxDepth, millis, 0);
+    }
+
+    /**
+     * Searches the position until the depth, time or node budget runs out.
+     * @param millis the time budget, or {@code 0} for none
+     * @param nodeLimit the node budget, or {@code 0} for none
+     */
+    public Result search(GameState root, int maxDepth, long millis, long nodeLimit) {
+        long start = System.nanoTime();
+        table.newSearch();
+        return search(root, 1, maxDepth, start, millis > 0 ? start + millis * 1_000_000 : Long.MAX_VALUE, nodeLimit);
+    }
+
+    /**
+     * Deepens from {@code firstDepth} without starting a new table search, so that {@link LazySmp} helpers can share one.
+     */
+    Result search(GameState root, int firstDepth, int maxDepth, long start, long deadline, long nodeLimit) {
+        this.deadline = deadline;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        stopped = stopRequested || (group != null && group.isStopped());
+        nodes = 0;
+        for (int[] killer : killers) {
+            Arrays.fill(killer, 0);
+        }
+        Arrays.fill(history, 0);
+        states[0].set(root);
+        Result result = null;
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = search(depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            result = new Result(Arrays.copyOf(pv[0], pvLength[0]), score, depth, nodes, System.nanoTime() - start);
+            if (result.isMate() || pvLength[0] == 0) {
+                break;
+            }
+        }
+        if (result == null) {
+            ActionBuffer moves = buffers[0];
+            root.getAvailableMoves(moves);
+            int[] line = moves.isEmpty() ? new int[0] : new int[] { moves.get(0) };
+            result = new Result(line, 0, 0, nodes, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private boolean checkStop() {
+        if ((++nodes & 1023) == 0 && (stopRequested || System.nanoTime() > deadline || nodes >= nodeLimit
+                || (group != null && group.checkStop(1024)))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    private static int toTable(int score, int ply) {
+        return score > MATE - MAX_PLY ? score + ply : score < -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score > MATE - MAX_PLY ? score - ply : score < -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    private int getOrderScore(int move, int tableMove, int ply) {
+        if (move == tableMove) {
+            return 1 << 30;
+        }
+        if (move == killers[ply][0] || move == killers[ply][1]) {
+            return 1 << 29;
+        }
+        int base = switch (move) {
+            case PackedAction.DRAW -> 1500;
+            case PackedAction.END -> 1000;
+            default -> switch (PackedAction.getType(move)) {
+                case ATTACK, CHASE -> 5000 + GameState.getTotalPower(PackedAction.getSlot(move));
+                case PLACE -> 3000;
+                case MOVE, SERVE -> 2000;
+                default -> 0;
+            };
+        };
+        return base + history[ActionTable.getId(move)];
+    }
+
+    private void orderMoves(ActionBuffer moves, int[] order, int tableMove, int ply) {
+        for (int i = 0; i < moves.size; i++) {
+            order[i] = getOrderScore(moves.actions[i], tableMove, ply);
+        }
+        for (int i = 1; i < moves.size; i++) {
+            int move = moves.actions[i];
+            int score = order[i];
+            int j = i - 1;
+            for (; j >= 0 && order[j] < score; j--) {
+                moves.actions[j + 1] = moves.actions[j];
+                order[j + 1] = order[j];
+            }
+            moves.actions[j + 1] = move;
+            order[j + 1] = score;
+        }
+    }
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (checkStop()) {
+            return 0;
+        }
+        GameState state = states[ply];
+        int player = state.getCurrentIndex();
+        if (ply > 0 && tablebase != null) {
+            int value = tablebase.probe(state);
+            if (value != Tablebase.NOT_FOUND) {
+                return value > 0 ? MATE - ply - value : value < 0 ? -MATE + ply - value : 0;
+            }
+        }
+        if (depth <= 0 || ply == MAX_PLY) {
+            return evaluator.evaluate(state, player);
+        }
+        long key = getKey(state);
+        long data = table.probe(key);
+        int tableMove = 0;
+        if (data != 0) {
+            tableMove = TranspositionTable.getMove(data);
+            if (ply > 0 && TranspositionTable.getDepth(data) >= depth) {
+                int score = fromTable(TranspositionTable.getScore(data), ply);
+                int bound = TranspositionTable.getBound(data);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        ActionBuffer moves = buffers[ply];
+        int count = state.getAvailableMoves(moves);
+        if (count == 0) {
+            return 0;
+        }
+        if (scores[ply].length < count) {
+            scores[ply] = new int[moves.actions.length];
+        }
+        orderMoves(moves, scores[ply], tableMove, ply);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        GameState child = states[ply + 1];
+        for (int i = 0; i < count; i++) {
+            int move = moves.actions[i];
+            child.set(state);
+            Game.ActionResult result = child.play(move, count > 1);
+            int score;
+            if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                int winner = child.getWinner(result);
+                score = winner == -1 ? 0 : winner == player ? MATE - ply - 1 : -MATE + ply + 1;
+                pvLength[ply + 1] = 0;
+            }
+            else if (child.getCurrentIndex() == player) {
+                score = search(depth - 1, ply + 1, alpha, beta);
+            }
+            else {
+                score = -search(depth - 1, ply + 1, -beta, -alpha);
+            }
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    pv[ply][0] = move;
+                    System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                    pvLength[ply] = pvLength[ply + 1] + 1;
+                    if (score >= beta) {
+                        if (PackedAction.isAction(move) && PackedAction.getType(move) != Action.Type.ATTACK) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = move;
+                        }
+                        history[ActionTable.getId(move)] += depth * depth;
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Groups a line of moves into turns, as they would appear in a {@code .chase} file. Draws aren't part of the notation.
+     */
+    public static List<Turn> getTurns(GameState root, int[] line) {
+        GameState state = new GameState(root);
+        ActionBuffer moves = new ActionBuffer();
+        List<Turn> turns = new ArrayList<>();
+        Turn turn = new Turn();
+        for (int move : line) {
+            int player = state.getCurrentIndex();
+            int count = state.getAvailableMoves(moves);
+            if (PackedAction.isAction(move)) {
+                turn.addAction(PackedAction.toAction(move));
+            }
+            Game.ActionResult result = state.play(move, count > 1);
+            boolean over = result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN;
+            if ((over || state.getCurrentIndex() != player) && !turn.actionSets.isEmpty()) {
+                turns.add(turn);
+                turn = new Turn();
+            }
+        }
+        if (!turn.actionSets.isEmpty()) {
+            turns.add(turn);
+        }
+        return turns;
+    }
+}
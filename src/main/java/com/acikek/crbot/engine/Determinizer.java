@@ -0,0 +1,58 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples positions that are consistent with what one player can see.
+ * <p>
+ * A player knows which cards are left in their own deck but not their order, and knows the opponent's remaining cards
+ * but not which of them are in hand. A sample shuffles the observer's deck and re-deals the opponent's hand and deck from one pool.
+ */
+public class Determinizer {
+
+    private final int[] pool = new int[GameState.DECK_CAPACITY + GameState.HAND_CAPACITY];
+
+    public void sample(GameState source, int observer, SplittableRandom random, GameState target) {
+        target.set(source);
+        int size = 0;
+        for (int i = 0; i < source.getDeckSize(observer); i++) {
+            pool[size++] = source.getDeckPower(observer, i);
+        }
+        shuffle(size, random);
+        target.setCards(observer, 0, 0);
+        for (int i = 0; i < size; i++) {
+            target.addDeck(observer, pool[i]);
+        }
+        int other = observer ^ 1;
+        int handSize = source.getHandSize(other);
+        size = 0;
+        for (int i = 0; i < handSize; i++) {
+            pool[size++] = source.getHandPower(other, i);
+        }
+        for (int i = 0; i < source.getDeckSize(other); i++) {
+            pool[size++] = source.getDeckPower(other, i);
+        }
+        shuffle(size, random);
+        target.setHand(other, 0);
+        target.setCards(other, 0, 0);
+        for (int i = 0; i < size; i++) {
+            if (i < handSize) {
+                target.addHand(other, pool[i]);
+            }
+            else {
+                target.addDeck(other, pool[i]);
+            }
+        }
+    }
+
+    private void shuffle(int size, SplittableRandom random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = pool[i];
+            pool[i] = pool[j];
+            pool[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+
+/**
+ * Scores a position without searching it. Searches call this at every leaf, so implementations shouldn't allocate.
+ */
+public interface Evaluator {
+
+    /**
+     * How many score points make the player about {@code e} times as likely to win as to lose.
+     */
+    double SCALE = 300.0;
+
+    /**
+     * @return the score of the position for the player, positive if they're ahead
+     */
+    int evaluate(GameState state, int player);
+
+    /**
+     * @return the chance of the player winning, from the logistic curve of the score
+     */
+    default double getWinProbability(GameState state, int player) {
+        return 1.0 / (1.0 + Math.exp(-evaluate(state, player) / SCALE));
+    }
+}
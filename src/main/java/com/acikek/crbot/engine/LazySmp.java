@@ -0,0 +1,132 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel {@link AlphaBeta} search that runs one searcher per pool thread over a shared {@link TranspositionTable}.
+ * <p>
+ * The searchers don't divide the tree between them. Each one deepens from the root on its own, and they speed each other
+ * up through the table: a line one of them has finished is a cutoff or a first move for the others. Every other helper
+ * starts one ply deeper, so the searchers spread over two depths instead of racing through the same one. The search
+ * stops for all of them as soon as one finishes, runs out of budget or is {@linkplain #stop() stopped}, and the deepest
+ * finished iteration wins.
+ */
+public class LazySmp {
+
+    /**
+     * @param best the deepest finished iteration, with the nodes of every thread
+     * @param threads each thread's own result, with its last finished depth and all the nodes it searched
+     */
+    public record Result(AlphaBeta.Result best, List<AlphaBeta.Result> threads) {
+
+        public int getMove() {
+            return best.getMove();
+        }
+
+        public double getNodesPerSecond() {
+            return best.nodes() * 1e9 / Math.max(1, best.nanos());
+        }
+
+        @Override
+        public String toString() {
+            return best + " on " + threads.size() + " threads (" + Math.round(getNodesPerSecond() / 1000) + "k nodes/s)";
+        }
+    }
+
+    public final TranspositionTable table;
+    public final ForkJoinPool pool;
+    public final List<AlphaBeta> searchers = new ArrayList<>();
+    public Evaluator evaluator = LinearEvaluator.DEFAULT;
+    public Tablebase tablebase;
+
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean stopRequested;
+    private volatile boolean stopped;
+    private long nodeLimit;
+
+    public LazySmp(TranspositionTable table, ForkJoinPool pool) {
+        this.table = table;
+        this.pool = pool;
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            AlphaBeta searcher = new AlphaBeta(table);
+            searcher.group = this;
+            searchers.add(searcher);
+        }
+    }
+
+    /**
+     * Stops the current search, or the next one if none is running, until {@link #clearStop()}.
+     */
+    public void stop() {
+        stopRequested = true;
+        stopped = true;
+    }
+
+    /**
+     * Lets searches run again after {@link #stop()}. Call it before queueing a search on another thread rather than
+     * from that thread, so a stop issued in between isn't lost.
+     */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Counts nodes searched by one of the threads.
+     * @return whether every thread should stop
+     */
+    boolean checkStop(int count) {
+        if (nodes.addAndGet(count) >= nodeLimit || stopRequested) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Searches the position on every thread until the depth, time or node budget runs out.
+     * @param millis the time budget, or {@code 0} for none
+     * @param nodeLimit the node budget across all threads, or {@code 0} for none
+     */
+    public Result search(GameState root, int maxDepth, long millis, long nodeLimit) {
+        long start = System.nanoTime();
+        long deadline = millis > 0 ? start + millis * 1_000_000 : Long.MAX_VALUE;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        nodes.set(0);
+        stopped = stopRequested;
+        table.newSearch();
+        List<ForkJoinTask<AlphaBeta.Result>> tasks = new ArrayList<>();
+        for (int i = 0; i < searchers.size(); i++) {
+            AlphaBeta searcher = searchers.get(i);
+            searcher.evaluator = evaluator;
+            searcher.tablebase = tablebase;
+            int firstDepth = 1 + (i & 1);
+            tasks.add(pool.submit(() -> {
+                AlphaBeta.Result result = searcher.search(root, firstDepth, maxDepth, start, deadline, 0);
+                stopped = true;
+                return new AlphaBeta.Result(result.line(), result.score(), result.depth(), searcher.getNodes(), System.nanoTime() - start);
+            }));
+        }
+        List<AlphaBeta.Result> results = new ArrayList<>();
+        AlphaBeta.Result best = null;
+        long total = 0;
+        for (ForkJoinTask<AlphaBeta.Result> task : tasks) {
+            AlphaBeta.Result result = task.join();
+            results.add(result);
+            total += result.nodes();
+            if (best == null || result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        best = new AlphaBeta.Result(best.line(), best.score(), best.depth(), total, System.nanoTime() - start);
+        return new Result(best, results);
+    }
+}
@@ -0,0 +1,140 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A weighted sum of simple features, each counted for the player and subtracted for the opponent.
+ * <p>
+ * The army, power and servant weights of every slot are summed into a table up front, so an evaluation is a few table
+ * lookups and bit tests per army. The weights are fitted to game outcomes by {@link com.acikek.crbot.sim.EvalTuner}.
+ * <p>
+ * Many positions can be scored at once from a {@link PositionBatch}. With the {@code jdk.incubator.vector} module added,
+ * whole vectors of positions are scored per step, and the scalar path gives the same scores otherwise.
+ */
+public class LinearEvaluator implements Evaluator {
+
+    public static final int ARMY = 0;
+    public static final int POWER = 1;
+    public static final int SERVANTS = 2;
+    public static final int FALLBACK_OPEN = 3;
+    public static final int FRONT_ACE = 4;
+    public static final int CHASE_THREAT = 5;
+    public static final int HAND = 6;
+    public static final int DECK = 7;
+    public static final int TEMPO = 8;
+    public static final int FEATURES = 9;
+
+    public static final String[] NAMES = {
+            "army", "power", "servants", "fallbackOpen", "frontAce", "chaseThreat", "hand", "deck", "tempo"
+    };
+
+    public static final int[] DEFAULT_WEIGHTS = { 100, 5, 0, 0, 0, 0, 100, 100, 0 };
+
+    public static final LinearEvaluator DEFAULT = new LinearEvaluator(DEFAULT_WEIGHTS);
+
+    /**
+     * Whether batches are scored with the Vector API. It needs {@code --add-modules jdk.incubator.vector}, and can be
+     * turned off with {@code -Dcrbot.vector=false}.
+     */
+    public static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && Boolean.parseBoolean(System.getProperty("crbot.vector", "true"));
+
+    private static final int KING = GameState.getCode(13);
+
+    private static LinearEvaluator[] getUnits() {
+        LinearEvaluator[] result = new LinearEvaluator[FEATURES];
+        for (int feature = 0; feature < FEATURES; feature++) {
+            int[] weights = new int[FEATURES];
+            weights[feature] = 1;
+            result[feature] = new LinearEvaluator(weights);
+        }
+        return result;
+    }
+
+    private static final LinearEvaluator[] UNITS = getUnits();
+
+    private final int[] weights;
+    private final int[] slotScores = new int[1 << 8];
+
+    public LinearEvaluator(int[] weights) {
+        if (weights.length != FEATURES) {
+            throw new IllegalArgumentException("Expected " + FEATURES + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+        for (int slot = 1; slot < slotScores.length; slot++) {
+            slotScores[slot] = weights[ARMY]
+                    + weights[POWER] * GameState.getTotalPower(slot)
+                    + (GameState.getSlotServant(slot) > 0 ? weights[SERVANTS] : 0);
+        }
+    }
+
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Writes the difference of each feature between the player and the opponent, for every position in the batch.
+     *
+     * @param features an array of scores for each feature
+     */
+    public static void getFeatures(PositionBatch batch, int[][] features) {
+        for (int feature = 0; feature < FEATURES; feature++) {
+            UNITS[feature].evaluate(batch, features[feature]);
+        }
+    }
+
+    private int getSide(int army, int hand, int deck) {
+        int left = army & 0xFF;
+        int center = (army >>> 8) & 0xFF;
+        int right = (army >>> 16) & 0xFF;
+        int fallback = army >>> 24;
+        boolean ace = (left & 0xF) == 1 || (center & 0xF) == 1 || (right & 0xF) == 1;
+        boolean chase = (center & 0xF) == KING && ((left & 0xF) == KING || (right & 0xF) == KING || (fallback & 0xF) == KING);
+        return slotScores[left] + slotScores[center] + slotScores[right] + slotScores[fallback]
+                + (center == 0 ? weights[FALLBACK_OPEN] : 0)
+                + (ace ? weights[FRONT_ACE] : 0)
+                + (chase ? weights[CHASE_THREAT] : 0)
+                + weights[HAND] * hand
+                + weights[DECK] * deck;
+    }
+
+    @Override
+    public int evaluate(GameState state, int player) {
+        int opponent = player ^ 1;
+        int tempo = state.getCurrentIndex() == player ? weights[TEMPO] : -weights[TEMPO];
+        return getSide(GameState.getArmy(state.armies, player), state.getHandSize(player), state.getDeckSize(player))
+                - getSide(GameState.getArmy(state.armies, opponent), state.getHandSize(opponent), state.getDeckSize(opponent))
+                + tempo;
+    }
+
+    /**
+     * Scores every position in the batch into the array, in the same order.
+     */
+    public void evaluate(PositionBatch batch, int[] scores) {
+        int start = VECTORIZED ? VectorEvaluation.evaluate(weights, batch, scores) : 0;
+        evaluateScalar(batch, start, scores);
+    }
+
+    /**
+     * Scores the positions of the batch from the given index onwards without the Vector API.
+     */
+    public void evaluateScalar(PositionBatch batch, int start, int[] scores) {
+        for (int i = start; i < batch.size; i++) {
+            scores[i] = getSide(batch.armies[i], batch.hands[i], batch.decks[i])
+                    - getSide(batch.opponentArmies[i], batch.opponentHands[i], batch.opponentDecks[i])
+                    + batch.tempos[i] * weights[TEMPO];
+        }
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        for (int feature = 0; feature < FEATURES; feature++) {
+            parts.add(NAMES[feature] + "=" + weights[feature]);
+        }
+        return String.join(", ", parts);
+    }
+}
@@ -0,0 +1,346 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Information set Monte Carlo tree search over {@link GameState} moves.
+ * <p>
+ * Every iteration samples a fresh {@link Determinizer determinization} of the hidden cards, so the search never looks at
+ * the opponent's hand or either deck order. Each pool thread grows its own tree, and the root statistics are merged at the end.
+ * The trees can be kept in a {@link Ponder} and grown further on the opponent's time.
+ */
+public class Mcts {
+
+    /**
+     * @param reused the playouts already in the trees from pondering or an earlier search
+     */
+    public record Result(int move, long playouts, long reused, long nanos, int threads) {
+
+        public double getPlayoutsPerSecond() {
+            return playouts * 1e9 / Math.max(1, nanos);
+        }
+
+        public double getPlayoutsPerSecondPerCore() {
+            return getPlayoutsPerSecond() / Math.min(threads, Runtime.getRuntime().availableProcessors());
+        }
+
+        @Override
+        public String toString() {
+            return playouts + " playouts (" + reused + " reused) in " + nanos / 1_000_000 + "ms on " + threads + " threads ("
+                    + Math.round(getPlayoutsPerSecondPerCore()) + "/s per core)";
+        }
+    }
+
+    public static class Node {
+
+        public Node parent;
+        public final int move;
+        public final int player;
+        public final List<Node> children = new ArrayList<>(4);
+        public int visits;
+        public int availability = 1;
+        public double reward;
+
+        public Node(Node parent, int move, int player) {
+            this.parent = parent;
+            this.move = move;
+            this.player = player;
+        }
+
+        public Node getChild(int move) {
+            for (Node child : children) {
+                if (child.move == move) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+
+    public final ForkJoinPool pool;
+    public double exploration = 0.7;
+    public int rolloutLimit = 400;
+    public Evaluator evaluator = LinearEvaluator.DEFAULT;
+
+    public Mcts(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static double getReward(GameState state, Game.ActionResult result) {
+        int winner = state.getWinner(result);
+        return winner == GameState.BLACK ? 1.0 : winner == GameState.RED ? 0.0 : 0.5;
+    }
+
+    /**
+     * Searches for the current player's best move until either budget runs out.
+     * @param millis the time budget, or {@code 0} for none
+     * @param iterations the total playout budget across all threads, or {@code 0} for none
+     */
+    public Result search(GameState root, long seed, long millis, long iterations) {
+        return search(root, seed, millis, iterations, newPonder(root, root.getCurrentIndex(), seed));
+    }
+
+    /**
+     * @param observer the player whose moves the trees will be searched for
+     */
+    public Ponder newPonder(GameState root, int observer, long seed) {
+        return new Ponder(root, observer, seed);
+    }
+
+    /**
+     * Searches like {@link #search(GameState, long, long, long)}, continuing from the pondered trees if they were grown
+     * from the same position. The trees are kept in the ponder afterwards.
+     */
+    public Result search(GameState root, long seed, long millis, long iterations, Ponder ponder) {
+        long start = System.nanoTime();
+        ActionBuffer moves = new ActionBuffer();
+        if (root.getAvailableMoves(moves) == 0) {
+            throw new IllegalStateException("No moves available");
+        }
+        if (moves.size == 1) {
+            return new Result(moves.get(0), 0, 0, System.nanoTime() - start, 1);
+        }
+        int threads = pool.getParallelism();
+        long deadline = millis > 0 ? start + millis * 1_000_000 : Long.MAX_VALUE;
+        long perThread = iterations > 0 ? (iterations + threads - 1) / threads : Long.MAX_VALUE;
+        ponder.interrupted = true;
+        synchronized (ponder) {
+            ponder.interrupted = false;
+            if (!root.equals(ponder.root) || ponder.workers.length != threads) {
+                ponder.reset(root, seed);
+            }
+            long reused = ponder.getVisits();
+            List<ForkJoinTask<Node>> tasks = new ArrayList<>();
+            for (Worker worker : ponder.workers) {
+                tasks.add(pool.submit(() -> worker.run(deadline, perThread)));
+            }
+            Map<Integer, Integer> visits = new HashMap<>();
+            long playouts = 0;
+            for (ForkJoinTask<Node> task : tasks) {
+                Node tree = task.join();
+                playouts += tree.visits;
+                for (Node child : tree.children) {
+                    visits.merge(child.move, child.visits, Integer::sum);
+                }
+            }
+            ponder.nanos += (System.nanoTime() - start) * threads;
+            int best = moves.get(0);
+            int bestVisits = -1;
+            for (Map.Entry<Integer, Integer> entry : visits.entrySet()) {
+                // Reused trees may hold moves from positions the opponent's moves have since ruled out
+                if (entry.getValue() > bestVisits && moves.contains(entry.getKey())) {
+                    best = entry.getKey();
+                    bestVisits = entry.getValue();
+                }
+            }
+            return new Result(best, playouts - reused, reused, System.nanoTime() - start, threads);
+        }
+    }
+
+    /**
+     * Search trees for one player that are kept between moves, so that thinking done before a move isn't thrown away.
+     * <p>
+     * While the opponent is to move, {@link #think} grows the trees from the observer's point of view. Each move actually
+     * played {@linkplain #advance advances} the trees to the matching child and drops the rest, and the next search
+     * continues from whatever is left. All methods can be called from different threads.
+     */
+    public class Ponder {
+
+        public final int observer;
+
+        private final GameState root = new GameState();
+        private final ActionBuffer moves = new ActionBuffer();
+        private Worker[] workers;
+        private long nanos;
+        private volatile boolean interrupted;
+
+        private Ponder(GameState root, int observer, long seed) {
+            this.observer = observer;
+            reset(root, seed);
+        }
+
+        private void reset(GameState state, long seed) {
+            root.set(state);
+            SplittableRandom random = new SplittableRandom(seed);
+            workers = new Worker[pool.getParallelism()];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(root, observer, random.split());
+            }
+            nanos = 0;
+        }
+
+        private long getVisits() {
+            long result = 0;
+            for (Worker worker : workers) {
+                result += worker.tree.visits;
+            }
+            return result;
+        }
+
+        /**
+         * Grows the trees on the calling thread, one playout per tree in turn.
+         * @param budget the {@linkplain #getCredit() credit} after which more thinking is wasted
+         * @return whether pondering longer would still help
+         */
+        public synchronized boolean think(long millis, long budget) {
+            long start = System.nanoTime();
+            long deadline = start + millis * 1_000_000;
+            if (nanos >= budget || root.getAvailableMoves(moves) == 0) {
+                return false;
+            }
+            for (int i = 0; !interrupted && System.nanoTime() < deadline; i = (i + 1) % workers.length) {
+                workers[i].iterate();
+            }
+            nanos += System.nanoTime() - start;
+            return nanos < budget;
+        }
+
+        /**
+         * Follows a move that was played, keeping only the subtrees below it.
+         * @param state the position after the move
+         */
+        public void advance(GameState state, int move) {
+            interrupted = true;
+            synchronized (this) {
+                interrupted = false;
+                long before = getVisits();
+                for (Worker worker : workers) {
+                    worker.advance(move);
+                }
+                nanos = before > 0 ? nanos * getVisits() / before : 0;
+                root.set(state);
+            }
+        }
+
+        /**
+         * @return the thinking time in nanoseconds of one thread, pondering and searching, behind the trees that are left
+         */
+        public synchronized long getCredit() {
+            return nanos;
+        }
+    }
+
+    private class Worker {
+
+        final GameState root;
+        final SplittableRandom random;
+        final int observer;
+        Node tree = new Node(null, 0, -1);
+        final Determinizer determinizer = new Determinizer();
+        final GameState state = new GameState();
+        final ActionBuffer moves = new ActionBuffer();
+        final ActionBuffer untried = new ActionBuffer();
+        Node[] legal = new Node[128];
+
+        Worker(GameState root, int observer, SplittableRandom random) {
+            this.root = root;
+            this.observer = observer;
+            this.random = random;
+        }
+
+        void advance(int move) {
+            Node child = tree.getChild(move);
+            if (child != null) {
+                child.parent = null;
+                tree = child;
+            }
+            else {
+                tree = new Node(null, 0, -1);
+            }
+        }
+
+        Node run(long deadline, long iterations) {
+            for (long i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+                iterate();
+            }
+            return tree;
+        }
+
+        double play(int move, int count) {
+            Game.ActionResult result = state.play(move, count > 1);
+            return result == Game.ActionResult.CONTINUE || result == Game.ActionResult.END_TURN ? -1 : getReward(state, result);
+        }
+
+        void iterate() {
+            determinizer.sample(root, observer, random, state);
+            Node node = tree;
+            double result;
+            while (true) {
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    result = 0.5;
+                    break;
+                }
+                if (legal.length < count) {
+                    legal = new Node[count];
+                }
+                untried.clear();
+                int legalCount = 0;
+                for (int i = 0; i < count; i++) {
+                    Node child = node.getChild(moves.get(i));
+                    if (child == null) {
+                        untried.add(moves.get(i));
+                    }
+                    else {
+                        child.availability++;
+                        legal[legalCount++] = child;
+                    }
+                }
+                if (!untried.isEmpty()) {
+                    int move = untried.get(random.nextInt(untried.size));
+                    Node child = new Node(node, move, state.getCurrentIndex());
+                    node.children.add(child);
+                    node = child;
+                    result = play(move, count);
+                    if (result < 0) {
+                        result = rollout();
+                    }
+                    break;
+                }
+                Node best = legal[0];
+                double bestValue = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < legalCount; i++) {
+                    Node child = legal[i];
+                    double value = child.reward / child.visits + exploration * Math.sqrt(Math.log(child.availability) / child.visits);
+                    if (value > bestValue) {
+                        best = child;
+                        bestValue = value;
+                    }
+                }
+                node = best;
+                result = play(best.move, count);
+                if (result >= 0) {
+                    break;
+                }
+            }
+            for (; node != null; node = node.parent) {
+                node.visits++;
+                node.reward += node.player == GameState.BLACK ? result : 1.0 - result;
+            }
+        }
+
+        double rollout() {
+            for (int i = 0; i < rolloutLimit; i++) {
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    return 0.5;
+                }
+                double result = play(moves.get(random.nextInt(count)), count);
+                if (result >= 0) {
+                    return result;
+                }
+            }
+            return evaluator.getWinProbability(state, GameState.BLACK);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.Action;
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.ActionTable;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.core.PackedAction;
+import com.acikek.crbot.core.Zobrist;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Move statistics for early positions, compiled from finished games by {@link com.acikek.crbot.sim.BookCompiler}.
+ * <p>
+ * Positions are keyed by {@link Zobrist#hashOwn(GameState)}, the cards of the player to move. Every game is dealt
+ * differently, so a key that also covered the opponent's cards would almost never come up again; this one lets a move
+ * learned in one deal be played in another with the same own cards, when it's available there. Since the key can't tell
+ * what an attack or a chase would hit, the book only keeps moves that don't involve the opponent's cards, and leaves
+ * the rest to the search. The file is
+ * a header followed by fixed-size entries, one per position and move, sorted by key and then by most games. It is
+ * mapped into memory and searched in place, so opening it reads nothing and a lookup only touches the pages it lands on.
+ */
+public class OpeningBook {
+
+    public static final byte[] MAGIC = { 'C', 'R', 'B', 'K' };
+
+    /**
+     * The version of the position keys and {@linkplain #isBookMove(int) kept moves}, which books compiled with others
+     * don't match.
+     */
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 16;
+    public static final int ENTRY_SIZE = 20;
+
+    /**
+     * @param id the move's {@link ActionTable} ID
+     * @param points two for each win and one for each stalemate, for the player who made the move
+     */
+    public record Entry(long key, int id, int games, int points) {
+
+        public int getMove() {
+            return ActionTable.getPacked(id);
+        }
+
+        /**
+         * @return the average result for the player who made the move, from {@code 0} for all losses to {@code 1} for all wins
+         */
+        public double getScore() {
+            return points / (2.0 * games);
+        }
+
+        /**
+         * The score with a win and a loss added, so moves from a few games don't look as certain as moves from many.
+         */
+        public double getWeightedScore() {
+            return OpeningBook.getWeightedScore(games, points);
+        }
+    }
+
+    public static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::key)
+            .thenComparing(Comparator.comparingInt(Entry::games).reversed())
+            .thenComparingInt(Entry::id);
+
+    private final ByteBuffer buffer;
+    public final int maxTurns;
+    public final int size;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.capacity() >= HEADER_SIZE) {
+            buffer.get(0, magic);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an opening book file");
+        }
+        if (buffer.getInt(12) != VERSION) {
+            throw new IOException("Opening book file has version " + buffer.getInt(12) + ", not " + VERSION + "; compile it again");
+        }
+        maxTurns = buffer.getInt(4);
+        size = buffer.getInt(8);
+        if (size < 0 || buffer.capacity() < HEADER_SIZE + (long) size * ENTRY_SIZE) {
+            throw new IOException("Opening book file is truncated");
+        }
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a book file.
+     *
+     * @param maxTurns how many turns after the setup the entries cover
+     */
+    public static void write(Path path, int maxTurns, List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(ORDER);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.write(MAGIC);
+            output.writeInt(maxTurns);
+            output.writeInt(sorted.size());
+            output.writeInt(VERSION);
+            for (Entry entry : sorted) {
+                output.writeLong(entry.key());
+                output.writeInt(entry.id());
+                output.writeInt(entry.games());
+                output.writeInt(entry.points());
+            }
+        }
+    }
+
+    public static double getWeightedScore(int games, int points) {
+        return (points + 2) / (2.0 * games + 4);
+    }
+
+    public static long getKey(GameState state) {
+        return Zobrist.hashOwn(state);
+    }
+
+    /**
+     * @return whether the book keeps statistics for the move, which it doesn't for attacks and chases, since their
+     * results depend on the opponent's cards
+     */
+    public static boolean isBookMove(int move) {
+        if (!PackedAction.isAction(move)) {
+            return true;
+        }
+        Action.Type type = PackedAction.getType(move);
+        return type == Action.Type.PLACE || type == Action.Type.MOVE || type == Action.Type.SERVE;
+    }
+
+    private static int getOffset(int index) {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    private long getKey(int index) {
+        return buffer.getLong(getOffset(index));
+    }
+
+    private Entry getEntry(int index) {
+        int offset = getOffset(index);
+        return new Entry(buffer.getLong(offset), buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getInt(offset + 16));
+    }
+
+    /**
+     * @return the index of the first entry with the key, or of the first one after it if there is none
+     */
+    private int findFirst(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return every entry for the position, most played first
+     */
+    public List<Entry> probe(GameState state) {
+        long key = getKey(state);
+        List<Entry> result = new ArrayList<>();
+        for (int i = findFirst(key); i < size && getKey(i) == key; i++) {
+            result.add(getEntry(i));
+        }
+        return result;
+    }
+
+    /**
+     * Picks the available move with the best {@linkplain Entry#getWeightedScore() weighted score}.
+     *
+     * @param moves the moves available in the position
+     * @param minGames how many games a move needs to be considered
+     * @return the move, or {@code -1} if the book has none for the position
+     */
+    public int choose(GameState state, ActionBuffer moves, int minGames) {
+        long key = getKey(state);
+        int best = -1;
+        double bestScore = -1;
+        for (int i = findFirst(key); i < size && getKey(i) == key; i++) {
+            int offset = getOffset(i);
+            int id = buffer.getInt(offset + 8);
+            int games = buffer.getInt(offset + 12);
+            if (games < minGames || !ActionTable.isValid(id)) {
+                continue;
+            }
+            double score = getWeightedScore(games, buffer.getInt(offset + 16));
+            int move = ActionTable.getPacked(id);
+            if (score > bestScore && moves.contains(move)) {
+                best = move;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+}
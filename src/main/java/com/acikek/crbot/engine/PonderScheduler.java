@@ -0,0 +1,176 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Grows one game's {@link Mcts.Ponder} while the opponent is to move, in short slices on an executor shared by every
+ * game. Each slice queues the next one behind the other games' slices, until the trees hold {@link #budget} of
+ * thinking, the player is to move again or the game is no longer active.
+ * <p>
+ * The trees are kept for the player's next search, but they are dropped as soon as the game is no longer active, and
+ * once pondering has stopped and the opponent hasn't moved for {@link #idleMillis}. Games that are over or abandoned
+ * don't hold on to them.
+ */
+public class PonderScheduler {
+
+    public final Mcts mcts;
+    public final long sliceMillis;
+    public final long budget;
+    public final long idleMillis;
+
+    private final ScheduledExecutorService executor;
+    private final BooleanSupplier active;
+
+    private volatile Mcts.Ponder ponder;
+    private volatile boolean waiting;
+    private final AtomicBoolean pondering = new AtomicBoolean();
+    private final AtomicInteger observed = new AtomicInteger();
+    private final AtomicInteger waits = new AtomicInteger();
+
+    /**
+     * @param executor the shared executor, or {@code null} to never ponder
+     * @param budget the {@linkplain Mcts.Ponder#getCredit() credit} after which pondering stops
+     * @param active whether the game is still being played, checked from the executor's threads
+     */
+    public PonderScheduler(Mcts mcts, ScheduledExecutorService executor, long sliceMillis, long budget, long idleMillis, BooleanSupplier active) {
+        this.mcts = mcts;
+        this.executor = executor;
+        this.sliceMillis = sliceMillis;
+        this.budget = budget;
+        this.idleMillis = idleMillis;
+        this.active = active;
+    }
+
+    /**
+     * @return the trees to search the position with, grown for the player to move if there are none
+     */
+    public Mcts.Ponder getPonder(GameState state, long seed) {
+        Mcts.Ponder current = ponder;
+        if (current == null) {
+            current = mcts.newPonder(state, state.getCurrentIndex(), seed);
+            ponder = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return whether the trees are held, so the next search can reuse them
+     */
+    public boolean hasPonder() {
+        return ponder != null;
+    }
+
+    /**
+     * @return the thinking time behind the trees, in nanoseconds of one thread, or {@code 0} if there are none
+     */
+    public long getCredit() {
+        Mcts.Ponder current = ponder;
+        return current != null ? current.getCredit() : 0;
+    }
+
+    public boolean isPondering() {
+        return pondering.get();
+    }
+
+    /**
+     * Starts pondering once the player's turn is over.
+     */
+    public void startWaiting() {
+        waiting = true;
+        waits.incrementAndGet();
+        start();
+    }
+
+    /**
+     * Stops pondering once the player is to move, after the current slice.
+     */
+    public void stopWaiting() {
+        waiting = false;
+        waits.incrementAndGet();
+    }
+
+    /**
+     * Follows a move made by the player, so the trees below it can be reused.
+     * @param state the position after the move
+     */
+    public void advance(GameState state, int move) {
+        Mcts.Ponder current = ponder;
+        if (current != null) {
+            current.advance(state, move);
+        }
+    }
+
+    /**
+     * Follows a move made by the opponent, and keeps pondering if they are still to move.
+     * @param state the position after the move
+     */
+    public void observe(GameState state, int move, boolean opponentToMove) {
+        Mcts.Ponder current = ponder;
+        if (current == null) {
+            return;
+        }
+        current.advance(state, move);
+        observed.incrementAndGet();
+        if (opponentToMove) {
+            start();
+        }
+    }
+
+    /**
+     * Drops the trees. The next search starts from scratch.
+     */
+    public void release() {
+        ponder = null;
+    }
+
+    private void start() {
+        if (executor != null && ponder != null && waiting && pondering.compareAndSet(false, true)) {
+            executor.execute(this::slice);
+        }
+    }
+
+    private void slice() {
+        int seen = observed.get();
+        try {
+            if (!active.getAsBoolean()) {
+                release();
+                pondering.set(false);
+                return;
+            }
+            Mcts.Ponder current = ponder;
+            if (waiting && current != null && current.think(sliceMillis, budget)) {
+                executor.execute(this::slice);
+                return;
+            }
+        }
+        catch (RuntimeException e) {
+            release();
+            pondering.set(false);
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            return;
+        }
+        pondering.set(false);
+        // A move observed during the last slice may have left the trees worth growing again
+        if (observed.get() != seen) {
+            start();
+            return;
+        }
+        if (waiting) {
+            int wait = waits.get();
+            executor.schedule(() -> releaseIfIdle(wait, seen), idleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void releaseIfIdle(int wait, int seen) {
+        if (waiting && waits.get() == wait && observed.get() == seen && !pondering.get()) {
+            release();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+
+import java.util.Arrays;
+
+/**
+ * Positions laid out side by side for {@link LinearEvaluator#evaluate(PositionBatch, int[])}, one array per field.
+ * Each position is stored from the point of view of the player it's scored for, with its hand and deck sizes counted.
+ */
+public class PositionBatch {
+
+    public int[] armies;
+    public int[] opponentArmies;
+    public int[] hands;
+    public int[] opponentHands;
+    public int[] decks;
+    public int[] opponentDecks;
+
+    /**
+     * {@code 1} if the player is to move, and {@code -1} otherwise.
+     */
+    public int[] tempos;
+    public int size;
+
+    public PositionBatch(int capacity) {
+        armies = new int[capacity];
+        opponentArmies = new int[capacity];
+        hands = new int[capacity];
+        opponentHands = new int[capacity];
+        decks = new int[capacity];
+        opponentDecks = new int[capacity];
+        tempos = new int[capacity];
+    }
+
+    private void grow(int minimum) {
+        int capacity = Math.max(minimum, Math.max(16, armies.length * 2));
+        armies = Arrays.copyOf(armies, capacity);
+        opponentArmies = Arrays.copyOf(opponentArmies, capacity);
+        hands = Arrays.copyOf(hands, capacity);
+        opponentHands = Arrays.copyOf(opponentHands, capacity);
+        decks = Arrays.copyOf(decks, capacity);
+        opponentDecks = Arrays.copyOf(opponentDecks, capacity);
+        tempos = Arrays.copyOf(tempos, capacity);
+    }
+
+    public void add(GameState state, int player) {
+        if (size == armies.length) {
+            grow(size + 1);
+        }
+        int opponent = player ^ 1;
+        armies[size] = GameState.getArmy(state.armies, player);
+        opponentArmies[size] = GameState.getArmy(state.armies, opponent);
+        hands[size] = state.getHandSize(player);
+        opponentHands[size] = state.getHandSize(opponent);
+        decks[size] = state.getDeckSize(player);
+        opponentDecks[size] = state.getDeckSize(opponent);
+        tempos[size] = state.getCurrentIndex() == player ? 1 : -1;
+        size++;
+    }
+
+    public void addAll(PositionBatch other) {
+        if (size + other.size > armies.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.armies, 0, armies, size, other.size);
+        System.arraycopy(other.opponentArmies, 0, opponentArmies, size, other.size);
+        System.arraycopy(other.hands, 0, hands, size, other.size);
+        System.arraycopy(other.opponentHands, 0, opponentHands, size, other.size);
+        System.arraycopy(other.decks, 0, decks, size, other.size);
+        System.arraycopy(other.opponentDecks, 0, opponentDecks, size, other.size);
+        System.arraycopy(other.tempos, 0, tempos, size, other.size);
+        size += other.size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
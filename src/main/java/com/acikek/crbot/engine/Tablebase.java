@@ -0,0 +1,283 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.core.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Solved endgames, generated by {@link com.acikek.crbot.sim.TablebaseGenerator}.
+ * <p>
+ * Once both decks are empty nothing is hidden or random, so every position with few enough cards left can be solved
+ * exactly. Positions are stored with Black to move, since the rules don't depend on color, and with sorted hands. The
+ * file has a header, the sorted list of every combination of armies and hands it covers, and then a value for each
+ * combination and {@linkplain #getTurnState(GameState) turn state}. It is mapped into memory, and a probe is a binary
+ * search over the combinations.
+ * <p>
+ * Values are from the point of view of the player to move: {@code n > 0} wins in {@code n} plies, {@code n < 0} loses in
+ * {@code -n} plies, and {@code 0} means neither player can force a win.
+ */
+public class Tablebase {
+
+    public static final byte[] MAGIC = { 'C', 'R', 'T', 'B' };
+    public static final int HEADER_SIZE = 16;
+    public static final int MATERIAL_SIZE = 16;
+
+    /**
+     * Six states at the start of a turn, for each pass count and whether the last player could act, and eight once
+     * the turn has started, for whether a card has moved, a king has been placed and the last player could act.
+     */
+    public static final int TURN_STATES = 14;
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    public final int maxCards;
+    public final int size;
+    private final int valuesOffset;
+
+    private Tablebase(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.capacity() >= HEADER_SIZE) {
+            buffer.get(0, magic);
+        }
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt(12) != TURN_STATES) {
+            throw new IOException("Not a tablebase file");
+        }
+        maxCards = buffer.getInt(4);
+        size = buffer.getInt(8);
+        valuesOffset = HEADER_SIZE + size * MATERIAL_SIZE;
+        if (size < 0 || buffer.capacity() < valuesOffset + (long) size * TURN_STATES * 2) {
+            throw new IOException("Tablebase file is truncated");
+        }
+    }
+
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static boolean isEndgame(GameState state) {
+        return (state.blackCards | state.blackCardsHigh | state.redCards | state.redCardsHigh) == 0;
+    }
+
+    /**
+     * @return the cards in both armies and hands, counting a servant as its own card
+     */
+    public static int countCards(GameState state) {
+        int result = state.getHandSize(GameState.BLACK) + state.getHandSize(GameState.RED);
+        for (long armies = state.armies; armies != 0; armies >>>= 8) {
+            int slot = (int) armies & 0xFF;
+            if (slot != 0) {
+                result += GameState.getSlotServant(slot) > 0 ? 2 : 1;
+            }
+        }
+        return result;
+    }
+
+    public static int getTurnState(GameState state) {
+        int couldAct = state.hasFlag(GameState.LAST_PLAYER_COULD_ACT) ? 1 : 0;
+        if (!state.hasFlag(GameState.TURN_STARTED)) {
+            return state.getPasses() * 2 + couldAct;
+        }
+        return 6 + (state.hasFlag(GameState.HAS_MOVED) ? 1 : 0) + (state.hasFlag(GameState.HAS_PLACED_KING) ? 2 : 0) + couldAct * 4;
+    }
+
+    /**
+     * Sets the flags of a turn state, with Black to move.
+     */
+    public static void setTurnState(GameState state, int turnState) {
+        state.flags = 0;
+        state.setCurrentPlayer(Player.Type.BLACK);
+        if (turnState < 6) {
+            state.setPasses(turnState / 2);
+            state.setFlag(GameState.LAST_PLAYER_COULD_ACT, (turnState & 1) != 0);
+            return;
+        }
+        int started = turnState - 6;
+        state.setFlag(GameState.TURN_STARTED, true);
+        state.setFlag(GameState.HAS_MOVED, (started & 1) != 0);
+        state.setFlag(GameState.HAS_PLACED_KING, (started & 2) != 0);
+        state.setFlag(GameState.LAST_PLAYER_COULD_ACT, (started & 4) != 0);
+    }
+
+    /**
+     * @return the hand with its power codes in ascending order
+     */
+    public static int sortHand(int hand) {
+        int result = 0;
+        int shift = 0;
+        for (int code = 1; code < 16; code++) {
+            for (int rest = hand; rest != 0; rest >>>= 4) {
+                if ((rest & 0xF) == code) {
+                    result |= code << shift;
+                    shift += 4;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long swap(long value) {
+        return (value >>> 32) | (value << 32);
+    }
+
+    /**
+     * @return both armies as they are stored, with the player to move as Black
+     */
+    public static long getArmies(GameState state) {
+        return state.getCurrentIndex() == GameState.RED ? swap(state.armies) : state.armies;
+    }
+
+    /**
+     * @return both sorted hands as they are stored, with the player to move as Black
+     */
+    public static long getHands(GameState state) {
+        int current = state.getCurrentIndex();
+        return (sortHand(state.getHand(current)) & 0xFFFFFFFFL) | (long) sortHand(state.getHand(current ^ 1)) << 32;
+    }
+
+    /**
+     * @return the index of a combination of armies and hands in the sorted arrays, or {@code -1}
+     */
+    public static int find(long[] armies, long[] hands, long army, long hand) {
+        int low = 0;
+        int high = armies.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = armies[middle] != army ? Long.compare(armies[middle], army) : Long.compare(hands[middle], hand);
+            if (compare < 0) {
+                low = middle + 1;
+            }
+            else if (compare > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int find(long army, long hand) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_SIZE + middle * MATERIAL_SIZE;
+            long midArmy = buffer.getLong(offset);
+            int compare = midArmy != army ? Long.compare(midArmy, army) : Long.compare(buffer.getLong(offset + 8), hand);
+            if (compare < 0) {
+                low = middle + 1;
+            }
+            else if (compare > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value of the position, or {@link #NOT_FOUND} if the decks aren't empty or it has too many cards
+     */
+    public int probe(GameState state) {
+        if (!isEndgame(state) || countCards(state) > maxCards) {
+            return NOT_FOUND;
+        }
+        int material = find(getArmies(state), getHands(state));
+        if (material == -1) {
+            return NOT_FOUND;
+        }
+        return buffer.getShort(valuesOffset + (material * TURN_STATES + getTurnState(state)) * 2);
+    }
+
+    /**
+     * @return the value of playing a move, from the point of view of the player making it, or {@link #NOT_FOUND}
+     */
+    public int getMoveValue(GameState state, int move, boolean couldAct, GameState child) {
+        int player = state.getCurrentIndex();
+        child.set(state);
+        Game.ActionResult result = child.play(move, couldAct);
+        return switch (result) {
+            case WIN -> 1;
+            case LOSE -> -1;
+            case STALEMATE -> 0;
+            default -> {
+                int value = probe(child);
+                if (value == NOT_FOUND) {
+                    yield NOT_FOUND;
+                }
+                yield toParent(child.getCurrentIndex() == player ? value : -value);
+            }
+        };
+    }
+
+    /**
+     * Adds the ply that leads to a position to its value.
+     */
+    public static int toParent(int value) {
+        return value > 0 ? value + 1 : value < 0 ? value - 1 : 0;
+    }
+
+    /**
+     * Compares values by preference: the fastest win, then holding on, then the slowest loss.
+     */
+    public static int getRank(int value) {
+        return value > 0 ? 0x10000 - value : value < 0 ? -0x10000 - value : 0;
+    }
+
+    /**
+     * @return a move that keeps the position's value, or {@code -1} if the position isn't in the tablebase
+     */
+    public int getBestMove(GameState state) {
+        ActionBuffer moves = new ActionBuffer();
+        GameState child = new GameState();
+        int count = state.getAvailableMoves(moves);
+        int best = -1;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int value = getMoveValue(state, moves.get(i), count > 1, child);
+            if (value == NOT_FOUND) {
+                return -1;
+            }
+            if (getRank(value) > bestRank) {
+                best = moves.get(i);
+                bestRank = getRank(value);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the best moves from the position until the game ends or the line reaches the maximum length
+     */
+    public int[] getLine(GameState root, int maxPlies) {
+        GameState state = new GameState(root);
+        ActionBuffer moves = new ActionBuffer();
+        int[] line = new int[maxPlies];
+        int length = 0;
+        while (length < maxPlies) {
+            int move = getBestMove(state);
+            if (move == -1) {
+                break;
+            }
+            line[length++] = move;
+            Game.ActionResult result = state.play(move, state.getAvailableMoves(moves) > 1);
+            if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                break;
+            }
+        }
+        return Arrays.copyOf(line, length);
+    }
+}
@@ -0,0 +1,177 @@
+package com.acikek.crbot.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, off-heap transposition table that can be shared between search threads without locking.
+ * <p>
+ * Each entry is two longs: the data word and the position key XORed with the data word. Writers store both words
+ * without coordination, and readers discard any entry whose words don't agree, which catches torn writes.
+ * Entries are grouped into buckets of four, one cache line each. A bucket replaces the shallowest or oldest entry.
+ */
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    public static final int ENTRY_BYTES = 16;
+    public static final int BUCKET_ENTRIES = 4;
+    public static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+    public static final int MAX_MEGABYTES = 1024;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long VALID = 1L << 48;
+
+    public final ByteBuffer buffer;
+    public final int buckets;
+
+    public final LongAdder hits = new LongAdder();
+    public final LongAdder misses = new LongAdder();
+    /**
+     * How many stores overwrote an entry for a different position.
+     */
+    public final LongAdder replacements = new LongAdder();
+
+    private volatile int age;
+
+    public TranspositionTable(int megabytes) {
+        if (megabytes <= 0 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("Table size must be between 1 and " + MAX_MEGABYTES + " MB");
+        }
+        buckets = Integer.highestOneBit(megabytes * (1 << 20) / BUCKET_BYTES);
+        buffer = ByteBuffer.allocateDirect(buckets * BUCKET_BYTES + BUCKET_BYTES)
+                .alignedSlice(BUCKET_BYTES)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    public static int getMove(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int getScore(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> 40) & 0b11;
+    }
+
+    public static int getAge(long data) {
+        return (int) (data >>> 42) & 0x3F;
+    }
+
+    /**
+     * Depths are clamped to {@code [0, 255]}, so a negative depth from quiescence or a reduction is stored as {@code 0}.
+     */
+    public static long pack(int move, int score, int depth, int bound, int age) {
+        return (move & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) Math.max(0, Math.min(depth, 0xFF)) << 32
+                | (long) (bound & 0b11) << 40
+                | (long) (age & 0x3F) << 42
+                | VALID;
+    }
+
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    public void clear() {
+        for (int i = 0; i < buffer.capacity(); i += 8) {
+            LONGS.setOpaque(buffer, i, 0L);
+        }
+    }
+
+    private int getBucket(long key) {
+        return (int) (key ^ (key >>> 32)) & (buckets - 1);
+    }
+
+    /**
+     * @return the data word stored for the key, or {@code 0} if there is none
+     */
+    public long probe(long key) {
+        int offset = getBucket(key) * BUCKET_BYTES;
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = (long) LONGS.getAcquire(buffer, offset + 8);
+            long check = (long) LONGS.getAcquire(buffer, offset);
+            if (data != 0 && (check ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int current = age;
+        int victim = 0;
+        int victimValue = Integer.MAX_VALUE;
+        long victimData = 0;
+        int offset = getBucket(key) * BUCKET_BYTES;
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = (long) LONGS.getAcquire(buffer, offset + 8);
+            long check = (long) LONGS.getAcquire(buffer, offset);
+            if (data != 0 && (check ^ data) == key) {
+                if (depth < getDepth(data) && bound != EXACT && getAge(data) == current) {
+                    return;
+                }
+                if (move == 0) {
+                    move = getMove(data);
+                }
+                victim = offset;
+                victimData = 0;
+                break;
+            }
+            int value = data == 0 ? Integer.MIN_VALUE : getDepth(data) - 8 * ((current - getAge(data)) & 0x3F);
+            if (value < victimValue) {
+                victim = offset;
+                victimValue = value;
+                victimData = data;
+            }
+        }
+        if (victimData != 0) {
+            replacements.increment();
+        }
+        long data = pack(move, score, depth, bound, current);
+        LONGS.setRelease(buffer, victim + 8, data);
+        LONGS.setRelease(buffer, victim, key ^ data);
+    }
+
+    /**
+     * @return the per-mille share of sampled entries written during the current search
+     */
+    public int getUsage() {
+        int sampled = Math.min(buckets, 250) * BUCKET_ENTRIES;
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = (long) LONGS.getOpaque(buffer, i * ENTRY_BYTES + 8);
+            if (data != 0 && getAge(data) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        replacements.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TT[" + (buckets * (long) BUCKET_BYTES >> 20) + "MB, hits=" + hits.sum() + ", misses=" + misses.sum()
+                + ", replacements=" + replacements.sum() + ", usage=" + getUsage() + "/1000]";
+    }
+}
@@ -0,0 +1,120 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.GameState;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API path of {@link LinearEvaluator#evaluate(PositionBatch, int[])}, scoring a full vector of positions per
+ * step. Instead of looking up each slot, the four slots of an army are handled as the four bytes of one lane: a byte is
+ * tested for zero by adding {@code 0x7F} and keeping the top bit, which can't carry since no slot is above {@code 0x4D},
+ * and the bytes are summed with one multiplication. This class is only loaded when {@link LinearEvaluator#VECTORIZED}
+ * is set, since the incubator module may be missing.
+ */
+final class VectorEvaluation {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final IntVector ZERO = IntVector.zero(SPECIES);
+
+    private static final int NIBBLES = 0x0F0F0F0F;
+    private static final int ONES = 0x01010101;
+    private static final int HALF = 0x7F7F7F7F;
+    private static final int TOPS = 0x80808080;
+    private static final int KINGS = GameState.getCode(13) * ONES;
+
+    private VectorEvaluation() {
+    }
+
+    /**
+     * @return the top bit of every byte that isn't zero
+     */
+    private static IntVector getNonZero(IntVector bytes) {
+        return bytes.add(HALF).and(TOPS);
+    }
+
+    /**
+     * @return the amount of top bits set, from {@link #getNonZero(IntVector)}
+     */
+    private static IntVector count(IntVector tops) {
+        return tops.lanewise(VectorOperators.LSHR, 7).mul(ONES).lanewise(VectorOperators.LSHR, 24);
+    }
+
+    /**
+     * @return the weighted cards, power and servants of the armies
+     */
+    private static IntVector getMaterial(int[] weights, IntVector army) {
+        IntVector codes = army.and(NIBBLES);
+        IntVector servants = army.lanewise(VectorOperators.LSHR, 4).and(NIBBLES);
+        IntVector aces = getNonZero(codes.lanewise(VectorOperators.XOR, ONES)).lanewise(VectorOperators.NOT).and(TOPS);
+        // An ace's code is one, but its power is zero
+        IntVector power = codes.add(servants).mul(ONES).lanewise(VectorOperators.LSHR, 24).sub(count(aces));
+        return count(getNonZero(army)).mul(weights[LinearEvaluator.ARMY])
+                .add(power.mul(weights[LinearEvaluator.POWER]))
+                .add(count(getNonZero(servants)).mul(weights[LinearEvaluator.SERVANTS]));
+    }
+
+    /**
+     * @return the weighted open fallbacks, front-line aces, chase threats, hands and decks
+     */
+    private static IntVector getShape(int[] weights, IntVector army, IntVector hand, IntVector deck) {
+        IntVector codes = army.and(NIBBLES);
+        IntVector aces = getNonZero(codes.lanewise(VectorOperators.XOR, ONES)).lanewise(VectorOperators.NOT).and(0x808080);
+        IntVector kings = getNonZero(codes.lanewise(VectorOperators.XOR, KINGS)).lanewise(VectorOperators.NOT).and(TOPS);
+        VectorMask<Integer> chase = kings.and(0x8000).compare(VectorOperators.NE, 0)
+                .and(kings.and(0x80800080).compare(VectorOperators.NE, 0));
+        return ZERO.blend(weights[LinearEvaluator.FALLBACK_OPEN], army.and(0xFF00).eq(0))
+                .add(ZERO.blend(weights[LinearEvaluator.FRONT_ACE], aces.compare(VectorOperators.NE, 0)))
+                .add(ZERO.blend(weights[LinearEvaluator.CHASE_THREAT], chase))
+                .add(hand.mul(weights[LinearEvaluator.HAND]))
+                .add(deck.mul(weights[LinearEvaluator.DECK]));
+    }
+
+    private static void setMaterial(int[] weights, int[] armies, int[] scores, int bound) {
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            getMaterial(weights, IntVector.fromArray(SPECIES, armies, i)).intoArray(scores, i);
+        }
+    }
+
+    private static void subtractMaterial(int[] weights, int[] armies, int[] scores, int bound) {
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, scores, i)
+                    .sub(getMaterial(weights, IntVector.fromArray(SPECIES, armies, i)))
+                    .intoArray(scores, i);
+        }
+    }
+
+    private static void addShape(int[] weights, int[] armies, int[] hands, int[] decks, int[] tempos, int[] scores, int bound) {
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector tempo = IntVector.fromArray(SPECIES, tempos, i).mul(weights[LinearEvaluator.TEMPO]);
+            IntVector.fromArray(SPECIES, scores, i)
+                    .add(getShape(weights, IntVector.fromArray(SPECIES, armies, i), IntVector.fromArray(SPECIES, hands, i), IntVector.fromArray(SPECIES, decks, i)))
+                    .add(tempo)
+                    .intoArray(scores, i);
+        }
+    }
+
+    private static void subtractShape(int[] weights, int[] armies, int[] hands, int[] decks, int[] scores, int bound) {
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, scores, i)
+                    .sub(getShape(weights, IntVector.fromArray(SPECIES, armies, i), IntVector.fromArray(SPECIES, hands, i), IntVector.fromArray(SPECIES, decks, i)))
+                    .intoArray(scores, i);
+        }
+    }
+
+    /**
+     * Scores every whole vector of positions in the batch. Each term gets its own loop in its own method, since C2
+     * stops inlining Vector API calls once a compiled method grows too large, and then allocates every vector.
+     *
+     * @return how many positions were scored, leaving the rest to the scalar path
+     */
+    static int evaluate(int[] weights, PositionBatch batch, int[] scores) {
+        int bound = SPECIES.loopBound(batch.size);
+        setMaterial(weights, batch.armies, scores, bound);
+        subtractMaterial(weights, batch.opponentArmies, scores, bound);
+        addShape(weights, batch.armies, batch.hands, batch.decks, batch.tempos, scores, bound);
+        subtractShape(weights, batch.opponentArmies, batch.opponentHands, batch.opponentDecks, scores, bound);
+        return bound;
+    }
+}
@@ -0,0 +1,223 @@
+package com.acikek.crbot.game;
+
+import com.acikek.crbot.ChaseRedsBot;
+import com.acikek.crbot.core.*;
+import com.acikek.crbot.engine.Mcts;
+import com.acikek.crbot.engine.OpeningBook;
+import com.acikek.crbot.engine.PonderScheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class BotPlayer {
+
+    public enum Difficulty {
+        EASY(500),
+        NORMAL(2000),
+        HARD(6000);
+
+        public final long millis;
+
+        Difficulty(long millis) {
+            this.millis = millis;
+        }
+    }
+
+    /**
+     * How many games a book move needs before the bot trusts it over its own search.
+     */
+    public static final int BOOK_MIN_GAMES = 4;
+
+    public static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * How many bot games can search at once. Concurrent searches split {@link #POOL} between them for the same wall
+     * time, so a long search in one game only weakens the others' moves instead of delaying them, and any further
+     * games queue behind these threads. Set with {@code -Dcrbot.botThreads=N}.
+     */
+    public static final int BOT_THREADS = Math.max(1, Integer.getInteger("crbot.botThreads", 4));
+    public static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(BOT_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "Bot Turn");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * How many threads every bot game shares for thinking on its opponent's time. Each game thinks in short slices and
+     * queues behind the others, so pondering never takes more than these threads away from the event threads.
+     * Set with {@code -Dcrbot.ponderThreads=N}, where {@code 0} turns pondering off.
+     */
+    public static final int PONDER_THREADS = Integer.getInteger("crbot.ponderThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+    public static final long PONDER_SLICE_MILLIS = 50;
+
+    /**
+     * How many full searches' worth of thinking the pondered trees can hold, which also bounds their memory.
+     */
+    public static final int PONDER_SEARCHES = 2;
+
+    /**
+     * How long the pondered trees are kept after pondering stops while the opponent makes no move.
+     */
+    public static final long PONDER_IDLE_MILLIS = 120_000;
+    public static final ScheduledExecutorService PONDER_EXECUTOR = PONDER_THREADS > 0 ? Executors.newScheduledThreadPool(PONDER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "Bot Ponder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.setUncaughtExceptionHandler((t, e) -> ChaseRedsBot.LOGGER.error("Bot failed to ponder!", e));
+        return thread;
+    }) : null;
+
+    public final Player.Type type;
+    public final Difficulty difficulty;
+    public final Mcts mcts = new Mcts(POOL);
+    public final PonderScheduler ponder;
+
+    public BotPlayer(GameData data, Player.Type type, Difficulty difficulty) {
+        this.type = type;
+        this.difficulty = difficulty;
+        ponder = new PonderScheduler(mcts, PONDER_EXECUTOR, PONDER_SLICE_MILLIS, getPonderBudget(), PONDER_IDLE_MILLIS, () -> isActive(data));
+    }
+
+    public static Game.ActionResult play(Game game, int move, boolean couldAct) {
+        if (move == PackedAction.DRAW) {
+            game.draw();
+            return Game.ActionResult.CONTINUE;
+        }
+        if (move == PackedAction.END) {
+            game.endTurn();
+            return Game.ActionResult.END_TURN;
+        }
+        if (move == PackedAction.PASS) {
+            game.pass(couldAct);
+            return Game.ActionResult.END_TURN;
+        }
+        return GameHandler.submitAction(game, PackedAction.toAction(move));
+    }
+
+    /**
+     * @return whether the game is still being played, which is safe to check from any thread
+     */
+    public boolean isActive(GameData data) {
+        return ChaseRedsBot.games.get(data.getPlayerData(type.next()).user()) == data;
+    }
+
+    /**
+     * @return the thinking time, in nanoseconds of one thread, after which pondering stops
+     */
+    public long getPonderBudget() {
+        return PONDER_SEARCHES * difficulty.millis * 1_000_000 * POOL.getParallelism();
+    }
+
+    /**
+     * @return the search time left for a move after the thinking already behind the trees, which is none once they
+     * hold a full search
+     */
+    public long getSearchMillis() {
+        long credit = ponder.getCredit() / 1_000_000 / POOL.getParallelism();
+        return Math.max(1, difficulty.millis - credit);
+    }
+
+    /**
+     * Follows a move played by the opponent, so the pondered trees below it can be reused. Called while holding the game.
+     */
+    public void observe(GameData data, int move) {
+        if (ponder.hasPonder()) {
+            ponder.observe(GameState.of(data.game), move, data.game.currentPlayer != type);
+        }
+    }
+
+    public void takeTurn(GameData data) {
+        ponder.stopWaiting();
+        EXECUTOR.execute(() -> {
+            try {
+                // One game's turns never overlap, since they share its search trees
+                synchronized (this) {
+                    playTurn(data);
+                }
+            }
+            catch (Exception e) {
+                ChaseRedsBot.LOGGER.error("Bot failed to play its turn!", e);
+            }
+        });
+    }
+
+    /**
+     * @return the best {@link OpeningBook} move for the position, or {@code -1} if there is no book or it has none
+     */
+    public static int getBookMove(Game game, GameState state, ActionBuffer moves) {
+        OpeningBook book = ChaseRedsBot.book;
+        if (book == null || game.turns.size() > book.maxTurns || moves.size < 2) {
+            return -1;
+        }
+        return book.choose(state, moves, BOOK_MIN_GAMES);
+    }
+
+    /**
+     * Plays the bot's moves until its turn ends. The game is only held while reading and changing it, not while
+     * searching, so commands stay responsive; a position changed during a search (by a creative command) is searched
+     * again.
+     */
+    public void playTurn(GameData data) {
+        ActionBuffer moves = new ActionBuffer();
+        while (true) {
+            GameState state;
+            long hash;
+            long seed = 0;
+            int move;
+            synchronized (data) {
+                Game game = data.game;
+                if (!isActive(data)) {
+                    return;
+                }
+                if (game.currentPlayer != type) {
+                    break;
+                }
+                state = GameState.of(game);
+                if (state.getAvailableMoves(moves) == 0) {
+                    data.end(null);
+                    GameData.remove(data);
+                    return;
+                }
+                hash = game.hash;
+                move = getBookMove(game, state, moves);
+                if (move == -1) {
+                    seed = game.random.nextLong();
+                }
+            }
+            if (move != -1) {
+                ChaseRedsBot.LOGGER.info("Bot (" + difficulty + ") played a book move");
+            }
+            else {
+                Mcts.Result result = mcts.search(state, seed, getSearchMillis(), 0, ponder.getPonder(state, seed));
+                ChaseRedsBot.LOGGER.info("Bot (" + difficulty + ") searched " + result);
+                move = result.move();
+            }
+            synchronized (data) {
+                Game game = data.game;
+                if (!isActive(data)) {
+                    return;
+                }
+                if (game.hash != hash) {
+                    continue;
+                }
+                Game.ActionResult actionResult = play(game, move, moves.size > 1);
+                if (GameHandler.isGameOver(actionResult)) {
+                    data.end(data.getPlayerData(game.getWinningPlayer(actionResult)).user());
+                    GameData.remove(data);
+                    return;
+                }
+                ponder.advance(GameState.of(game), move);
+            }
+        }
+        synchronized (data) {
+            var edit = data.currentBoard.editMessageAttachments(data.getBoard());
+            GameHandler.addMenuButtons(edit, data.game);
+            data.currentBoard = edit.complete();
+            data.inMenu = false;
+            data.pauseValid = false;
+        }
+        ponder.startWaiting();
+    }
+}
@@ -2,6 +2,7 @@ package com.acikek.crbot.game;
 
 import com.acikek.crbot.ChaseRedsBot;
 import com.acikek.crbot.core.*;
+import com.acikek.crbot.record.GameRecord;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
@@ -23,6 +24,11 @@ import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A game in progress and its board message. Commands and buttons run on JDA's event threads and bot moves on
+ * {@link BotPlayer#EXECUTOR}, so each of them reads or changes the game and its message only while synchronized on
+ * the instance.
+ */
 public class GameData {
 
     public static final int CARD_WIDTH = 200;
@@ -34,8 +40,9 @@ public class GameData {
     public static final int BOARD_HEIGHT = CARD_HEIGHT * 4 + CARD_BORDER * 2 + ARMY_BORDER;
 
     public static final Font FONT = new Font("Arial", Font.BOLD, 70);
+
     public static final DateTimeFormatter FILE_FORMAT =  DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
-    public static final DateTimeFormatter HEADER_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    public static final DateTimeFormatter HEADER_FORMAT = GameRecord.DATE_FORMAT;
 
     public static final String[] QUOTES = {
             "At the end of the game the kind and the pawn go back in the same box.",
@@ -57,6 +64,7 @@ public class GameData {
 
     public Game game;
     public boolean creative;
+    public BotPlayer bot;
 
     public Message currentBoard;
     public boolean inMenu;
@@ -76,6 +84,13 @@ public class GameData {
         this.creative = creative;
     }
 
+    public GameData(PlayerData black, PlayerData red, Game game, boolean creative) {
+        this.black = black;
+        this.red = red;
+        this.game = game;
+        this.creative = creative;
+    }
+
     public static Image getCircleAvatar(Image image, Color outlineColor) {
         int width = image.getWidth(null);
         BufferedImage bufferedImage = new BufferedImage(width + 6, width + 6, BufferedImage.TYPE_INT_ARGB);
@@ -200,8 +215,8 @@ public class GameData {
 
     public void drawAvatar(Graphics2D g2d, Player.Type player, int x, int y) {
         g2d.drawImage(getPlayerData(player).avatar(), x, y, 250, 250, null);
-        drawOutlineText(g2d, game.getPlayer(player).deck.hand.size() + "H", x + 290, y + 90);
-        drawOutlineText(g2d, game.getPlayer(player).deck.cards.size() + "D", x + 290, y + 210);
+        drawOutlineText(g2d, game.getPlayer(player).deck.getHandSize() + "H", x + 290, y + 90);
+        drawOutlineText(g2d, game.getPlayer(player).deck.getCardCount() + "D", x + 290, y + 210);
     }
 
     public void drawAvatars(Graphics2D g2d) {
@@ -221,39 +236,60 @@ public class GameData {
         return FileUpload.fromData(image, "board.png");
     }
 
-    public static boolean validateFile(IReplyCallback event, List<String> lines) {
-        System.out.println(lines);
-        for (int i = 0; i < lines.size(); i ++) {
-            try {
-                Turn.parse(lines.get(i));
-            } catch (Exception e) {
-                event.reply("Failed to validate game file. Invalid turn #" + (i + 1) + ": `" + lines.get(i) + "`").setEphemeral(true).queue();
-                return false;
-            }
+    /**
+     * Parses a game file, replying with the location of the first error if it's invalid.
+     * @return the parsed file, or {@code null} if it's invalid
+     */
+    public static ChaseParser parseFile(IReplyCallback event, String fileData) {
+        try {
+            ChaseParser parser = ChaseParser.parse(fileData);
+            Game.readDraws(parser.turns, parser.headers);
+            return parser;
+        } catch (Exception e) {
+            event.reply("Failed to validate game file. " + e.getMessage()).setEphemeral(true).queue();
+            return null;
         }
-        return true;
     }
 
-    public static void begin(IReplyCallback event, User user, User opponent, boolean buildup, boolean creative, String fileData) {
-        List<Turn> turns = null;
-        if (fileData != null) {
-            List<String> lines = Game.getTurnLines(fileData);
-            if (!validateFile(event, lines)) {
+    public static void begin(IReplyCallback event, User user, User opponent, boolean buildup, boolean creative, ChaseParser parser) {
+        begin(event, user, opponent, buildup, creative, parser, null);
+    }
+
+    /**
+     * @param parser the parsed file to resume, or {@code null} for a new game
+     */
+    public static void begin(IReplyCallback event, User user, User opponent, boolean buildup, boolean creative, ChaseParser parser, BotPlayer.Difficulty difficulty) {
+        Game game = new Game(null, buildup);
+        if (parser != null) {
+            try {
+                // Uploaded files could carry any seed or snapshot, so only the ones the bot sealed are trusted
+                game = Game.load(parser, buildup, ChaseRedsBot.seal);
+            } catch (Exception e) {
+                event.reply("Failed to load game file. " + e.getMessage()).setEphemeral(true).queue();
                 return;
             }
-            turns = lines.stream()
-                    .map(Turn::parse)
-                    .toList();
         }
         event.deferReply().queue();
-        Game game = new Game(turns, buildup);
         GameData data = new GameData(user, opponent != null ? opponent : user, game, creative);
+        if (difficulty != null) {
+            Player.Type type = data.black.user.getIdLong() == opponent.getIdLong() ? Player.Type.BLACK : Player.Type.RED;
+            data.bot = new BotPlayer(data, type, difficulty);
+        }
         game.begin();
         var reply = event.getHook().editOriginalAttachments(data.getBoard());
         GameHandler.addMenuButtons(reply, game);
         data.currentBoard = reply.complete();
         ChaseRedsBot.games.put(user, data);
-        ChaseRedsBot.games.put(opponent, data);
+        if (data.bot == null) {
+            ChaseRedsBot.games.put(opponent, data);
+        }
+        data.checkBot();
+    }
+
+    public void checkBot() {
+        if (bot != null && game.currentPlayer == bot.type) {
+            bot.takeTurn(this);
+        }
     }
 
     public String getEndMessage(User winningPlayer) {
@@ -273,7 +309,7 @@ public class GameData {
                 "red", red.user.getName(),
                 "date", HEADER_FORMAT.format(now)
         );
-        return game.getFileData(headers);
+        return game.getFileData(headers, ChaseRedsBot.seal);
     }
 
     public static String getFileHashString(String data) {
@@ -287,16 +323,61 @@ public class GameData {
         }
     }
 
+    public String getEndContent(User winningPlayer) {
+        return getEndMessage(winningPlayer) + "\n*" + QUOTES[game.random.nextInt(QUOTES.length)] + "*";
+    }
+
+    public FileUpload getGameFile(LocalDateTime now) {
+        return FileUpload.fromData(getFileData(now).getBytes(StandardCharsets.UTF_8), getFilename(now));
+    }
+
+    public GameRecord getRecord(User winningPlayer, LocalDateTime now) {
+        GameRecord record = GameRecord.of(game, black.user().getName(), red.user().getName(), now.toLocalDate(), Map.of());
+        record.blackId = black.user().getIdLong();
+        record.redId = red.user().getIdLong();
+        record.result = winningPlayer == null
+                ? GameRecord.Result.STALEMATE
+                : winningPlayer.getIdLong() == black.user().getIdLong() ? GameRecord.Result.BLACK : GameRecord.Result.RED;
+        record.creative = creative;
+        record.bot = bot != null;
+        return record;
+    }
+
+    public void archive(User winningPlayer) {
+        if (ChaseRedsBot.archive == null) {
+            return;
+        }
+        GameRecord record = getRecord(winningPlayer, LocalDateTime.now());
+        ChaseRedsBot.archive.append(record)
+                .thenAccept(entry -> ChaseRedsBot.stats.add(record))
+                .exceptionally(e -> {
+                    ChaseRedsBot.LOGGER.error("Failed to archive game!", e);
+                    return null;
+                });
+    }
+
     public void end(IReplyCallback event, User winningPlayer) {
-        String message = getEndMessage(winningPlayer);
-        LocalDateTime now = LocalDateTime.now();
-        event.reply(message + "\n*" + QUOTES[game.random.nextInt(QUOTES.length)] + "*")
-                .addFiles(FileUpload.fromData(getFileData(now).getBytes(StandardCharsets.UTF_8), getFilename(now)))
+        archive(winningPlayer);
+        event.reply(getEndContent(winningPlayer))
+                .addFiles(getGameFile(LocalDateTime.now()))
                 .queue();
     }
 
+    public void end(User winningPlayer) {
+        archive(winningPlayer);
+        currentBoard.getChannel().sendMessage(getEndContent(winningPlayer))
+                .addFiles(getGameFile(LocalDateTime.now()))
+                .queue();
+    }
+
+    /**
+     * Removes the game for both players, leaving alone any newer game either of them has started since.
+     */
     public static void remove(GameData data) {
-        ChaseRedsBot.games.remove(data.black.user());
-        ChaseRedsBot.games.remove(data.red.user());
+        ChaseRedsBot.games.remove(data.black.user(), data);
+        ChaseRedsBot.games.remove(data.red.user(), data);
+        if (data.bot != null) {
+            data.bot.ponder.release();
+        }
     }
 }
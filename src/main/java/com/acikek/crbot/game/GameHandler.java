@@ -27,7 +27,7 @@ public class GameHandler extends ListenerAdapter {
             case PLACE -> Button.secondary("game_menu_place", "Place...");
             case MOVE -> Button.primary("game_menu_move", "Move...");
             case ATTACK -> Button.success("game_menu_attack", "Attack...");
-            case CHASE -> Button.danger("game_action_" + action.toTurnString(), "Chase!");
+            case CHASE -> Button.danger("game_action_" + ActionTable.getId(action), "Chase!");
             case PASS -> Button.danger("game_pass", "Pass");
             default -> null;
         };
@@ -102,7 +102,7 @@ public class GameHandler extends ListenerAdapter {
     }
 
     public static Button getActionButton(Action action, Function<Action, String> transform) {
-        return Button.primary("game_action_" + action.toTurnString(), transform.apply(action));
+        return Button.primary("game_action_" + ActionTable.getId(action), transform.apply(action));
     }
 
     public static void addActionButtons(ReplyCallbackAction reply, List<Action> actions, Function<Action, String> transform) {
@@ -112,6 +112,46 @@ public class GameHandler extends ListenerAdapter {
         addButtons(reply, buttons, true);
     }
 
+    public static int parseActionId(String string) {
+        try {
+            return Integer.parseInt(string);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Checks an action button against the current position, since ephemeral menus can outlive the board they came from.
+     */
+    public static boolean isAvailable(Game game, int id) {
+        if (!ActionTable.isValid(id) || id == ActionTable.DRAW || id == ActionTable.END) {
+            return false;
+        }
+        ActionBuffer moves = new ActionBuffer();
+        GameState.of(game).getAvailableMoves(moves);
+        return moves.contains(ActionTable.getPacked(id));
+    }
+
+    public static boolean isGameOver(Game.ActionResult result) {
+        return result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN;
+    }
+
+    /**
+     * Submits an action the way the board's buttons do, ending the turn if the action ends it or nothing else can be done.
+     */
+    public static Game.ActionResult submitAction(Game game, Action action) {
+        Game.ActionResult result = game.submitAction(action);
+        if (isGameOver(result)) {
+            game.turns.add(game.currentTurn);
+            return result;
+        }
+        if (result == Game.ActionResult.END_TURN || game.getAvailableActions().isEmpty()) {
+            game.endTurn();
+            return Game.ActionResult.END_TURN;
+        }
+        return result;
+    }
+
     public static void refreshBoard(IReplyCallback event, GameData data) {
         event.deferReply().queue();
         var reply = event.getHook().editOriginalAttachments(data.getBoard());
@@ -134,7 +174,7 @@ public class GameHandler extends ListenerAdapter {
             reply.complete();
             return;
         }
-        List<String> hand = game.getPlayer(game.currentPlayer).deck.hand.stream()
+        List<String> hand = game.getPlayer(game.currentPlayer).deck.getHand().stream()
                 .distinct()
                 .filter(power -> actions.stream().anyMatch(action -> action.card.placePower() == power))
                 .map(Card::getCharacter)
@@ -230,6 +270,16 @@ public class GameHandler extends ListenerAdapter {
             event.reply("You don't belong to this game.").setEphemeral(true).queue();
             return;
         }
+        synchronized (data) {
+            handleButton(event, args, data);
+        }
+    }
+
+    public void handleButton(ButtonInteractionEvent event, String[] args, GameData data) {
+        if (ChaseRedsBot.games.get(event.getUser()) != data) {
+            event.reply("This game has ended.").setEphemeral(true).queue();
+            return;
+        }
         if (!data.inMenu && data.currentBoard.getIdLong() != event.getMessageIdLong()) {
             event.reply("This action menu has expired.").setEphemeral(true).queue();
             return;
@@ -237,6 +287,7 @@ public class GameHandler extends ListenerAdapter {
         if (!data.checkTurn(event, event.getUser())) {
             return;
         }
+        int move = -1;
         switch (args[0]) {
             case "cancel" -> {
                 event.reply("Action cancelled.")
@@ -264,28 +315,39 @@ public class GameHandler extends ListenerAdapter {
                 return;
             }
             case "action" -> {
-                Action action = Action.parseTurnString(args[1]);
-                Game.ActionResult result = data.game.submitAction(action);
-                if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
-                    data.game.turns.add(data.game.currentTurn);
+                int id = parseActionId(args[1]);
+                if (!isAvailable(data.game, id)) {
+                    event.reply("This action is no longer available.").setEphemeral(true).queue();
+                    return;
+                }
+                Game.ActionResult result = submitAction(data.game, ActionTable.toAction(id));
+                if (isGameOver(result)) {
                     data.end(event, data.getPlayerData(data.game.getWinningPlayer(result)).user());
                     GameData.remove(data);
                     return;
                 }
-                if (result == Game.ActionResult.END_TURN || data.game.getAvailableActions().isEmpty()) {
-                    data.game.endTurn();
-                }
-                else {
+                if (result == Game.ActionResult.CONTINUE) {
                     data.setBoardDisabled(false);
                 }
+                move = ActionTable.getPacked(id);
             }
             case "draw" -> {
-                Deck deck = data.game.getPlayer(data.game.currentPlayer).deck;
-                deck.hand.add(deck.draw());
+                data.game.draw();
+                move = PackedAction.DRAW;
+            }
+            case "pass" -> {
+                data.game.pass(event.getMessage().getButtons().size() > 1);
+                move = PackedAction.PASS;
             }
-            case "pass" -> data.game.pass(event.getMessage().getButtons().size() > 1);
-            case "end" -> data.game.endTurn();
+            case "end" -> {
+                data.game.endTurn();
+                move = PackedAction.END;
+            }
+        }
+        if (data.bot != null && move != -1) {
+            data.bot.observe(data, move);
         }
         refreshBoard(event, data);
+        data.checkBot();
     }
 }
@@ -0,0 +1,388 @@
+package com.acikek.crbot.record;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * An append-only store of finished games on disk.
+ * <p>
+ * Records are appended to segment files of up to {@link #SEGMENT_SIZE} bytes by default, in the format {@link RecordWriter} writes,
+ * and read back through memory-mapped views of them. Each record also gets a fixed-size entry in the catalog file with
+ * its location and the fields games are looked up by. The catalog is read when the archive opens and indexed in memory
+ * by player, date and result, so lookups don't touch the segments.
+ * <p>
+ * Appends are queued and written by one thread, which writes every queued record and then forces each file to disk
+ * once. Games that end together share an fsync, and the threads that queue them never wait for it.
+ * <p>
+ * An archive {@linkplain #openReadOnly(Path) opened read-only} leaves the files as they are and has no writer, so
+ * tools can read one that the bot is still appending to.
+ */
+public class GameArchive implements Closeable {
+
+    public static final int SEGMENT_SIZE = 64 << 20;
+    public static final int ENTRY_SIZE = 40;
+    public static final String CATALOG_FILE = "catalog.bin";
+
+    /**
+     * The epoch day of games without a date.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    public record Entry(int index, int segment, int position, int length, int epochDay, long blackId, long redId,
+                        int turns, GameRecord.Result result, int flags) {
+
+        public LocalDate getDate() {
+            return epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+        }
+
+        public boolean hasPlayer(long id) {
+            return blackId == id || redId == id;
+        }
+
+        public boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        private void write(ByteBuffer buffer) {
+            buffer.putInt(segment).putInt(position).putInt(length).putInt(epochDay)
+                    .putLong(blackId).putLong(redId).putInt(turns)
+                    .put((byte) result.ordinal()).put((byte) flags).putShort((short) 0);
+        }
+
+        private static Entry read(int index, ByteBuffer buffer) throws IOException {
+            int segment = buffer.getInt();
+            int position = buffer.getInt();
+            int length = buffer.getInt();
+            int epochDay = buffer.getInt();
+            long blackId = buffer.getLong();
+            long redId = buffer.getLong();
+            int turns = buffer.getInt();
+            int result = buffer.get();
+            int flags = buffer.get() & 0xFF;
+            buffer.getShort();
+            if (result < 0 || result >= GameRecord.Result.VALUES.length) {
+                throw new IOException("Invalid result in catalog entry " + index);
+            }
+            return new Entry(index, segment, position, length, epochDay, blackId, redId, turns, GameRecord.Result.VALUES[result], flags);
+        }
+    }
+
+    private record Pending(GameRecord record, CompletableFuture<Entry> future) {}
+
+    private static final Pending STOP = new Pending(null, null);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean readOnly;
+    private final FileChannel catalog;
+    private FileChannel segment;
+    private int segmentIndex;
+    private int segmentPosition;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Long, List<Entry>> byPlayer = new HashMap<>();
+    private final TreeMap<Integer, List<Entry>> byDate = new TreeMap<>();
+    private final Map<GameRecord.Result, List<Entry>> byResult = new EnumMap<>(GameRecord.Result.class);
+
+    private final List<MappedByteBuffer> maps = new ArrayList<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private boolean closed;
+
+    private GameArchive(Path directory, int segmentSize, boolean readOnly) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.readOnly = readOnly;
+        if (readOnly) {
+            catalog = FileChannel.open(directory.resolve(CATALOG_FILE), StandardOpenOption.READ);
+            readCatalog();
+            writer = null;
+            return;
+        }
+        Files.createDirectories(directory);
+        catalog = FileChannel.open(directory.resolve(CATALOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readCatalog();
+        openSegment(segmentIndex, segmentPosition);
+        writer = new Thread(this::run, "Game Archive");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static GameArchive open(Path directory, int segmentSize) throws IOException {
+        return new GameArchive(directory, segmentSize, false);
+    }
+
+    public static GameArchive open(Path directory) throws IOException {
+        return open(directory, SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens an archive for reading only. The files are never changed: entries left behind by an interrupted write are
+     * skipped rather than cut off, and records can't be appended.
+     */
+    public static GameArchive openReadOnly(Path directory) throws IOException {
+        return new GameArchive(directory, SEGMENT_SIZE, true);
+    }
+
+    public Path getSegmentPath(int index) {
+        return directory.resolve(String.format("games-%05d.crb", index));
+    }
+
+    /**
+     * Reads every catalog entry, dropping a partly written last entry and any entries whose record didn't reach its
+     * segment. Either can be left behind if the bot stops during a write, and is cut off unless the archive is read-only.
+     */
+    private void readCatalog() throws IOException {
+        long size = catalog.size() / ENTRY_SIZE * ENTRY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        catalog.read(buffer, 0);
+        buffer.flip();
+        List<Entry> read = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            read.add(Entry.read(read.size(), buffer));
+        }
+        while (!read.isEmpty()) {
+            Entry last = read.get(read.size() - 1);
+            Path path = getSegmentPath(last.segment());
+            if (Files.exists(path) && Files.size(path) >= (long) last.position() + last.length()) {
+                break;
+            }
+            read.remove(read.size() - 1);
+        }
+        if (!readOnly) {
+            catalog.truncate((long) read.size() * ENTRY_SIZE);
+        }
+        for (Entry entry : read) {
+            index(entry);
+        }
+        if (!read.isEmpty()) {
+            Entry last = read.get(read.size() - 1);
+            segmentIndex = last.segment();
+            segmentPosition = last.position() + last.length();
+        }
+    }
+
+    /**
+     * Opens a segment for appending at the given position, cutting off anything past it.
+     */
+    private void openSegment(int index, int position) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segment = FileChannel.open(getSegmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentIndex = index;
+        if (position < RecordWriter.MAGIC.length) {
+            segment.truncate(0);
+            segment.write(ByteBuffer.wrap(RecordWriter.MAGIC), 0);
+            position = RecordWriter.MAGIC.length;
+        }
+        segment.truncate(position);
+        segmentPosition = position;
+    }
+
+    private synchronized void index(Entry entry) {
+        entries.add(entry);
+        if (entry.blackId() != 0) {
+            byPlayer.computeIfAbsent(entry.blackId(), k -> new ArrayList<>()).add(entry);
+        }
+        if (entry.redId() != 0 && entry.redId() != entry.blackId()) {
+            byPlayer.computeIfAbsent(entry.redId(), k -> new ArrayList<>()).add(entry);
+        }
+        byDate.computeIfAbsent(entry.epochDay(), k -> new ArrayList<>()).add(entry);
+        byResult.computeIfAbsent(entry.result(), k -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * Queues a record to be written.
+     *
+     * @return a future completed with its entry once it is on disk
+     */
+    public CompletableFuture<Entry> append(GameRecord record) {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        synchronized (queue) {
+            if (readOnly) {
+                future.completeExceptionally(new IllegalStateException("Archive is read-only"));
+            }
+            else if (closed) {
+                future.completeExceptionally(new IllegalStateException("Archive is closed"));
+            }
+            else {
+                queue.add(new Pending(record, future));
+            }
+        }
+        return future;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            boolean stop = batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        int startIndex = segmentIndex;
+        int startPosition = segmentPosition;
+        List<Entry> written = new ArrayList<>(batch.size());
+        ByteArrayOutputStream length = new ByteArrayOutputStream();
+        try {
+            int index;
+            synchronized (this) {
+                index = entries.size();
+            }
+            for (Pending pending : batch) {
+                byte[] body;
+                try {
+                    body = RecordWriter.encode(pending.record());
+                } catch (IllegalArgumentException e) {
+                    pending.future().completeExceptionally(e);
+                    continue;
+                }
+                length.reset();
+                RecordWriter.writeVarint(length, body.length);
+                if ((long) segmentPosition + length.size() + body.length > segmentSize && segmentPosition > RecordWriter.MAGIC.length) {
+                    segment.force(false);
+                    openSegment(segmentIndex + 1, 0);
+                }
+                segment.write(ByteBuffer.wrap(length.toByteArray()), segmentPosition);
+                int position = segmentPosition + length.size();
+                segment.write(ByteBuffer.wrap(body), position);
+                segmentPosition = position + body.length;
+                GameRecord record = pending.record();
+                written.add(new Entry(index + written.size(), segmentIndex, position, body.length,
+                        record.date != null ? (int) record.date.toEpochDay() : NO_DATE, record.blackId, record.redId,
+                        record.turns.size(), record.result, RecordWriter.getFlags(record) & 0xFF));
+            }
+            segment.force(false);
+            ByteBuffer buffer = ByteBuffer.allocate(written.size() * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (Entry entry : written) {
+                entry.write(buffer);
+            }
+            buffer.flip();
+            long catalogPosition = (long) index * ENTRY_SIZE;
+            while (buffer.hasRemaining()) {
+                catalogPosition += catalog.write(buffer, catalogPosition);
+            }
+            catalog.force(false);
+        } catch (IOException e) {
+            for (Pending pending : batch) {
+                pending.future().completeExceptionally(e);
+            }
+            try {
+                openSegment(startIndex, startPosition);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        int next = 0;
+        for (Pending pending : batch) {
+            if (!pending.future().isDone()) {
+                Entry entry = written.get(next++);
+                index(entry);
+                pending.future().complete(entry);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return List.copyOf(entries);
+    }
+
+    public synchronized List<Entry> findByPlayer(long id) {
+        return List.copyOf(byPlayer.getOrDefault(id, List.of()));
+    }
+
+    /**
+     * @return the games played between the two dates, inclusive, in date order
+     */
+    public synchronized List<Entry> findByDate(LocalDate from, LocalDate to) {
+        List<Entry> result = new ArrayList<>();
+        for (List<Entry> day : byDate.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).values()) {
+            result.addAll(day);
+        }
+        return result;
+    }
+
+    public synchronized List<Entry> findByResult(GameRecord.Result result) {
+        return List.copyOf(byResult.getOrDefault(result, List.of()));
+    }
+
+    /**
+     * @return a read-only view of an entry's record bytes
+     */
+    public ByteBuffer getBytes(Entry entry) throws IOException {
+        MappedByteBuffer map;
+        synchronized (maps) {
+            while (maps.size() <= entry.segment()) {
+                maps.add(null);
+            }
+            map = maps.get(entry.segment());
+            if (map == null || map.capacity() < entry.position() + entry.length()) {
+                try (FileChannel channel = FileChannel.open(getSegmentPath(entry.segment()), StandardOpenOption.READ)) {
+                    map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                maps.set(entry.segment(), map);
+            }
+        }
+        return map.slice(entry.position(), entry.length());
+    }
+
+    public GameRecord read(Entry entry) throws IOException {
+        return RecordReader.decode(getBytes(entry));
+    }
+
+    /**
+     * Writes every queued record and closes the files.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (readOnly) {
+                catalog.close();
+                return;
+            }
+            queue.add(STOP);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+        catalog.close();
+    }
+}
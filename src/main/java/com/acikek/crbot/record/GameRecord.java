@@ -0,0 +1,163 @@
+package com.acikek.crbot.record;
+
+import com.acikek.crbot.core.ChaseParser;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.Turn;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A game as it is stored, independent of whether it came from a {@code .chase} file or a binary record.
+ * The headers the bot writes are kept as fields, and any others are kept as they are in {@link #headers}.
+ */
+public class GameRecord {
+
+    public enum Result {
+        UNKNOWN,
+        BLACK,
+        RED,
+        STALEMATE;
+
+        public static final Result[] VALUES = values();
+
+        public String getName() {
+            return name().toLowerCase();
+        }
+
+        public static Result fromName(String name) {
+            for (Result result : VALUES) {
+                if (result.getName().equals(name)) {
+                    return result;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    public static final String BLACK_HEADER = "black";
+    public static final String RED_HEADER = "red";
+    public static final String DATE_HEADER = "date";
+    public static final String RESULT_HEADER = "result";
+
+    /**
+     * Headers that are stored as fields, or not stored at all since they can be rebuilt from the turns.
+     */
+    public static final Set<String> KNOWN_HEADERS = Set.of(
+            BLACK_HEADER, RED_HEADER, DATE_HEADER, RESULT_HEADER, Game.SEED_HEADER, Game.SEALED_SEED_HEADER, Game.BUILDUP_HEADER, Game.DRAWS_HEADER, Game.SNAPSHOT_HEADER, Game.SEALED_SNAPSHOT_HEADER
+    );
+
+    public String black;
+    public String red;
+    public LocalDate date;
+    public Long seed;
+    public boolean buildup;
+    public Result result = Result.UNKNOWN;
+
+    /**
+     * The Discord user IDs of the players, or {@code 0} if unknown. These, {@link #creative} and {@link #bot} are only
+     * kept in binary records.
+     */
+    public long blackId;
+    public long redId;
+    public boolean creative;
+    public boolean bot;
+
+    public Map<String, String> headers = new LinkedHashMap<>();
+    public List<Turn> turns = new ArrayList<>();
+
+    public static GameRecord of(Game game, String black, String red, LocalDate date, Map<String, String> headers) {
+        GameRecord record = new GameRecord();
+        record.black = black;
+        record.red = red;
+        record.date = date;
+        record.seed = game.seed;
+        record.buildup = game.buildup;
+        record.headers.putAll(headers);
+        record.turns.addAll(game.turns);
+        return record;
+    }
+
+    public static GameRecord fromChase(ChaseParser parser) {
+        Game.readDraws(parser.turns, parser.headers);
+        GameRecord record = new GameRecord();
+        for (Map.Entry<String, String> header : parser.headers.entrySet()) {
+            if (!KNOWN_HEADERS.contains(header.getKey())) {
+                record.headers.put(header.getKey(), header.getValue());
+            }
+        }
+        record.black = parser.headers.get(BLACK_HEADER);
+        record.red = parser.headers.get(RED_HEADER);
+        String date = parser.headers.get(DATE_HEADER);
+        if (date != null) {
+            try {
+                record.date = LocalDate.parse(date, DATE_FORMAT);
+            } catch (DateTimeParseException e) {
+                record.headers.put(DATE_HEADER, date);
+            }
+        }
+        if (parser.headers.containsKey(Game.SEED_HEADER)) {
+            record.seed = Long.parseLong(parser.headers.get(Game.SEED_HEADER));
+        }
+        record.buildup = Boolean.parseBoolean(parser.headers.get(Game.BUILDUP_HEADER));
+        String result = parser.headers.get(RESULT_HEADER);
+        if (result != null) {
+            record.result = Result.fromName(result);
+            if (record.result == null) {
+                throw new IllegalArgumentException("Invalid result '" + result + "'");
+            }
+        }
+        record.turns.addAll(parser.turns);
+        return record;
+    }
+
+    public static GameRecord fromChase(String fileData) {
+        return fromChase(ChaseParser.parse(fileData));
+    }
+
+    public Map<String, String> getHeaders() {
+        Map<String, String> result = new LinkedHashMap<>(headers);
+        if (black != null) {
+            result.put(BLACK_HEADER, black);
+        }
+        if (red != null) {
+            result.put(RED_HEADER, red);
+        }
+        if (date != null) {
+            result.put(DATE_HEADER, DATE_FORMAT.format(date));
+        }
+        if (this.result != Result.UNKNOWN) {
+            result.put(RESULT_HEADER, this.result.getName());
+        }
+        if (seed != null) {
+            result.put(Game.SEED_HEADER, String.valueOf(seed));
+            result.put(Game.BUILDUP_HEADER, String.valueOf(buildup));
+        }
+        String draws = Game.getDrawsString(turns);
+        if (!draws.isEmpty()) {
+            result.put(Game.DRAWS_HEADER, draws);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the game as a {@code .chase} file. Snapshots aren't stored in records, so none are written.
+     */
+    public String toChase() {
+        List<String> headerStrings = getHeaders().entrySet().stream()
+                .map(pair -> "@" + pair.getKey() + " " + pair.getValue())
+                .toList();
+        List<String> lines = turns.stream()
+                .map(Turn::toString)
+                .toList();
+        return String.join("\n", headerStrings) + "\n\n" + String.join("\n", lines);
+    }
+}
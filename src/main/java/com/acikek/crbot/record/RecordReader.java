@@ -0,0 +1,295 @@
+package com.acikek.crbot.record;
+
+import com.acikek.crbot.core.Action;
+import com.acikek.crbot.core.ActionSet;
+import com.acikek.crbot.core.ActionTable;
+import com.acikek.crbot.core.Card;
+import com.acikek.crbot.core.Position;
+import com.acikek.crbot.core.Target;
+import com.acikek.crbot.core.Turn;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a stream of records written by {@link RecordWriter} one at a time, so a whole archive never has to be in memory.
+ */
+public class RecordReader implements Closeable {
+
+    private static final Action.Type[] TYPES = Action.Type.values();
+
+    private final InputStream input;
+    private byte[] record = new byte[4096];
+    private int position;
+    private int limit;
+
+    /**
+     * @throws IOException if the stream doesn't start with {@link RecordWriter#MAGIC}
+     */
+    public RecordReader(InputStream input) throws IOException {
+        this.input = input;
+        byte[] magic = input.readNBytes(RecordWriter.MAGIC.length);
+        if (!Arrays.equals(magic, RecordWriter.MAGIC)) {
+            throw new IOException("Not a game record file");
+        }
+    }
+
+    private RecordReader(byte[] record) {
+        this.input = null;
+        this.record = record;
+        this.limit = record.length;
+    }
+
+    public static GameRecord decode(byte[] record) {
+        return new RecordReader(record).readRecord();
+    }
+
+    public static GameRecord decode(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        return decode(bytes);
+    }
+
+    /**
+     * @return the number of bytes in the next record, or {@code -1} at the end of the stream
+     * @throws IllegalArgumentException if the length is negative or above {@link RecordWriter#MAX_LENGTH}
+     */
+    private int readLength() throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.read();
+            if (b == -1) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("Truncated record length");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (length < 0 || length > RecordWriter.MAX_LENGTH) {
+                    throw new IllegalArgumentException("Invalid record length " + Integer.toUnsignedString(length));
+                }
+                return length;
+            }
+        }
+        throw new IOException("Record length is too long");
+    }
+
+    private boolean next() throws IOException {
+        int length = readLength();
+        if (length == -1) {
+            return false;
+        }
+        if (record.length < length) {
+            record = new byte[Math.max(length, record.length * 2)];
+        }
+        if (input.readNBytes(record, 0, length) != length) {
+            throw new EOFException("Truncated record");
+        }
+        position = 0;
+        limit = length;
+        return true;
+    }
+
+    /**
+     * @return the next record, or {@code null} at the end of the stream
+     */
+    public GameRecord read() throws IOException {
+        return next() ? readRecord() : null;
+    }
+
+    /**
+     * Skips the next record without decoding it.
+     *
+     * @return {@code false} at the end of the stream
+     */
+    public boolean skip() throws IOException {
+        int length = readLength();
+        if (length == -1) {
+            return false;
+        }
+        input.skipNBytes(length);
+        return true;
+    }
+
+    private GameRecord readRecord() {
+        GameRecord result = new GameRecord();
+        long flags = readVarint();
+        int code = (int) (flags >>> RecordWriter.RESULT_SHIFT);
+        if (code >= GameRecord.Result.VALUES.length) {
+            throw new IllegalArgumentException("Invalid result " + code);
+        }
+        result.result = GameRecord.Result.VALUES[code];
+        result.buildup = (flags & RecordWriter.BUILDUP) != 0;
+        result.creative = (flags & RecordWriter.CREATIVE) != 0;
+        result.bot = (flags & RecordWriter.BOT) != 0;
+        if ((flags & RecordWriter.HAS_BLACK) != 0) {
+            result.black = readString();
+        }
+        if ((flags & RecordWriter.HAS_RED) != 0) {
+            result.red = readString();
+        }
+        if ((flags & RecordWriter.HAS_DATE) != 0) {
+            long epochDay = unzigzag(readVarint());
+            try {
+                result.date = LocalDate.ofEpochDay(epochDay);
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Invalid date " + epochDay);
+            }
+        }
+        if ((flags & RecordWriter.HAS_SEED) != 0) {
+            result.seed = readLong();
+        }
+        if ((flags & RecordWriter.HAS_IDS) != 0) {
+            result.blackId = readLong();
+            result.redId = readLong();
+        }
+        int headers = readCount();
+        for (int i = 0; i < headers; i++) {
+            result.headers.put(readString(), readString());
+        }
+        int turns = readCount();
+        for (int i = 0; i < turns; i++) {
+            result.turns.add(readTurn());
+        }
+        if (position != limit) {
+            throw new IllegalArgumentException("Unexpected data after record");
+        }
+        return result;
+    }
+
+    private Turn readTurn() {
+        Turn turn = new Turn();
+        long header = readVarint();
+        if ((header & 1) != 0) {
+            turn.draws = (int) readVarint();
+        }
+        long actions = header >>> 1;
+        for (long i = 0; i < actions; i++) {
+            long code = readVarint();
+            if (code < RecordWriter.FIRST) {
+                if (turn.actionSets.isEmpty()) {
+                    throw new IllegalArgumentException("Action set has no first action");
+                }
+                ActionSet set = turn.actionSets.get(turn.actionSets.size() - 1);
+                set.actions.add(readAction(set.card, (int) code));
+            }
+            else {
+                Action action = readFirstAction(code - RecordWriter.FIRST);
+                ActionSet set = new ActionSet(action.card);
+                set.actions.add(action);
+                turn.actionSets.add(set);
+            }
+        }
+        return turn;
+    }
+
+    private Action readFirstAction(long id) {
+        if (id == RecordWriter.SETUP - RecordWriter.FIRST) {
+            return new Action(null, Action.Type.SETUP, new Target(readPowers()));
+        }
+        if (!ActionTable.isValid((int) id) || id == ActionTable.DRAW || id == ActionTable.END) {
+            throw new IllegalArgumentException("Invalid action ID " + id);
+        }
+        if (id == ActionTable.PASS) {
+            return Action.PASS;
+        }
+        Action action = ActionTable.toAction((int) id);
+        if (action.type == Action.Type.CHASE) {
+            action.target = readChaseTarget();
+        }
+        return action;
+    }
+
+    private Action readAction(Card card, int code) {
+        Action.Type type = code >> 2 < TYPES.length ? TYPES[code >> 2] : null;
+        if (card == null || type == null || type == Action.Type.SETUP || type == Action.Type.PASS) {
+            throw new IllegalArgumentException("Invalid action code " + code);
+        }
+        Target target = type == Action.Type.CHASE
+                ? readChaseTarget()
+                : new Target(Position.fromOrdinal(code & 3));
+        return new Action(card, type, target);
+    }
+
+    private Target readChaseTarget() {
+        List<Integer> powers = readPowers();
+        return powers.isEmpty() ? null : new Target(powers);
+    }
+
+    private List<Integer> readPowers() {
+        long count = readVarint();
+        if ((count + 1) / 2 > limit - position) {
+            throw new IllegalArgumentException("Count " + count + " is larger than the record");
+        }
+        List<Integer> powers = new ArrayList<>((int) count);
+        for (int i = 0; i < count; i += 2) {
+            int b = readByte();
+            powers.add(b & 0xF);
+            if (i + 1 < count) {
+                powers.add(b >>> 4);
+            }
+        }
+        return List.copyOf(powers);
+    }
+
+    private int readByte() {
+        if (position == limit) {
+            throw new IllegalArgumentException("Truncated record");
+        }
+        return record[position++] & 0xFF;
+    }
+
+    private long readLong() {
+        long result = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            result |= (long) readByte() << (i * 8);
+        }
+        return result;
+    }
+
+    private long readVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    private int readCount() {
+        long count = readVarint();
+        if (count > limit - position) {
+            throw new IllegalArgumentException("Count " + count + " is larger than the record");
+        }
+        return (int) count;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private String readString() {
+        int length = readCount();
+        String result = new String(record, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
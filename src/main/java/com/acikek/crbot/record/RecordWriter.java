@@ -0,0 +1,212 @@
+package com.acikek.crbot.record;
+
+import com.acikek.crbot.core.Action;
+import com.acikek.crbot.core.ActionSet;
+import com.acikek.crbot.core.ActionTable;
+import com.acikek.crbot.core.Target;
+import com.acikek.crbot.core.Turn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link GameRecord}s in the binary record format, after a {@link #MAGIC} header.
+ * <p>
+ * Each record is its length as a varint, then:
+ * <ul>
+ *     <li>The flags: the game modes, the result from {@link #RESULT_SHIFT} and which of the optional fields below are present.</li>
+ *     <li>The black and red player names and the date as an epoch day, if present.</li>
+ *     <li>The seed and then the black and red user IDs as 8 little-endian bytes each, if present.</li>
+ *     <li>The count of other headers, then each key and value.</li>
+ *     <li>The count of turns, then each turn as {@code actions << 1 | drew}, the draw count if it drew, and its actions.</li>
+ * </ul>
+ * The first action of each set is {@link #FIRST} plus its {@link ActionTable} ID, or {@link #SETUP}. Later actions in
+ * the set share its card, so they are only {@code type << 2 | target}, which fits in one byte. Setups and chases are
+ * followed by a count of powers, then the powers as nibbles. Strings are a varint length and UTF-8 bytes, and every
+ * other number is a varint.
+ */
+public class RecordWriter implements Closeable {
+
+    public static final byte[] MAGIC = { 'C', 'R', 'B', 1 };
+
+    public static final int BUILDUP = 1;
+    public static final int HAS_BLACK = 1 << 1;
+    public static final int HAS_RED = 1 << 2;
+    public static final int HAS_DATE = 1 << 3;
+    public static final int HAS_SEED = 1 << 4;
+    public static final int HAS_IDS = 1 << 5;
+    public static final int CREATIVE = 1 << 6;
+    public static final int BOT = 1 << 7;
+    public static final int RESULT_SHIFT = 8;
+
+    /**
+     * Action codes below this continue the current action set.
+     */
+    public static final int FIRST = 32;
+
+    /**
+     * The action code for a setup, which has no {@link ActionTable} ID.
+     */
+    public static final int SETUP = FIRST + ActionTable.SIZE;
+
+    /**
+     * The largest record length, far above any real game, so a corrupt length is caught before it's allocated.
+     */
+    public static final int MAX_LENGTH = 1 << 24;
+
+    private final OutputStream output;
+    private final ByteArrayOutputStream length = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    public RecordWriter(OutputStream output) throws IOException {
+        this.output = output;
+        output.write(MAGIC);
+    }
+
+    public void write(GameRecord record) throws IOException {
+        body.reset();
+        encode(record, body);
+        if (body.size() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Record is " + body.size() + " bytes, more than " + MAX_LENGTH);
+        }
+        length.reset();
+        writeVarint(length, body.size());
+        length.writeTo(output);
+        body.writeTo(output);
+    }
+
+    public static byte[] encode(GameRecord record) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        encode(record, result);
+        return result.toByteArray();
+    }
+
+    public static int getFlags(GameRecord record) {
+        return (record.buildup ? BUILDUP : 0)
+                | (record.black != null ? HAS_BLACK : 0)
+                | (record.red != null ? HAS_RED : 0)
+                | (record.date != null ? HAS_DATE : 0)
+                | (record.seed != null ? HAS_SEED : 0)
+                | (record.blackId != 0 || record.redId != 0 ? HAS_IDS : 0)
+                | (record.creative ? CREATIVE : 0)
+                | (record.bot ? BOT : 0)
+                | record.result.ordinal() << RESULT_SHIFT;
+    }
+
+    /**
+     * @throws IllegalArgumentException if an action isn't in the {@link ActionTable}
+     */
+    public static void encode(GameRecord record, ByteArrayOutputStream output) {
+        int flags = getFlags(record);
+        writeVarint(output, flags);
+        if (record.black != null) {
+            writeString(output, record.black);
+        }
+        if (record.red != null) {
+            writeString(output, record.red);
+        }
+        if (record.date != null) {
+            writeVarint(output, zigzag(record.date.toEpochDay()));
+        }
+        if (record.seed != null) {
+            writeLong(output, record.seed);
+        }
+        if ((flags & HAS_IDS) != 0) {
+            writeLong(output, record.blackId);
+            writeLong(output, record.redId);
+        }
+        writeVarint(output, record.headers.size());
+        for (Map.Entry<String, String> header : record.headers.entrySet()) {
+            writeString(output, header.getKey());
+            writeString(output, header.getValue());
+        }
+        writeVarint(output, record.turns.size());
+        for (Turn turn : record.turns) {
+            int actions = 0;
+            for (ActionSet set : turn.actionSets) {
+                actions += set.actions.size();
+            }
+            writeVarint(output, (long) actions << 1 | (turn.draws > 0 ? 1 : 0));
+            if (turn.draws > 0) {
+                writeVarint(output, turn.draws);
+            }
+            for (ActionSet set : turn.actionSets) {
+                for (int i = 0; i < set.actions.size(); i++) {
+                    writeAction(output, set, set.actions.get(i), i == 0);
+                }
+            }
+        }
+    }
+
+    private static int getCode(ActionSet set, Action action, boolean first) {
+        if (action.type == Action.Type.SETUP) {
+            return SETUP;
+        }
+        if (first) {
+            int id = ActionTable.getId(action);
+            return id != -1 ? FIRST + id : -1;
+        }
+        if (!action.card.equals(set.card)) {
+            return -1;
+        }
+        if (action.type.targetType == Target.Type.CARDS) {
+            return action.type.ordinal() << 2;
+        }
+        return action.target != null && action.target.position != null
+                ? action.type.ordinal() << 2 | action.target.position.ordinal()
+                : -1;
+    }
+
+    private static void writeAction(ByteArrayOutputStream output, ActionSet set, Action action, boolean first) {
+        int code = getCode(set, action, first);
+        if (code == -1) {
+            throw new IllegalArgumentException("Can't encode action '" + action.toTurnString() + "'");
+        }
+        writeVarint(output, code);
+        if (action.type == Action.Type.SETUP || action.type == Action.Type.CHASE) {
+            writePowers(output, action.target != null ? action.target.powers : List.of());
+        }
+    }
+
+    private static void writePowers(ByteArrayOutputStream output, List<Integer> powers) {
+        writeVarint(output, powers.size());
+        for (int i = 0; i < powers.size(); i += 2) {
+            int high = i + 1 < powers.size() ? powers.get(i + 1) : 0;
+            output.write(powers.get(i) | high << 4);
+        }
+    }
+
+    public static void writeVarint(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream output, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            output.write((int) (value >>> (i * 8)));
+        }
+    }
+
+    public static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static void writeString(ByteArrayOutputStream output, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(output, bytes.length);
+        output.writeBytes(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,340 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.*;
+import com.acikek.crbot.engine.OpeningBook;
+import com.acikek.crbot.record.GameArchive;
+import com.acikek.crbot.record.GameRecord;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Compiles an {@link OpeningBook} from finished games and headless self-play.
+ * <p>
+ * Usage: {@code BookCompiler OUTPUT [--turns N] [--min-games N] [--archive DIRECTORY] [--self-play N] [--black POLICY]
+ * [--red POLICY] [--buildup] [--threads N] [--seed N] [FILE...]}, where each file is a {@code .chase} file or a
+ * directory of them. Games without a seed are skipped, since their deck order is unknown. The archive is opened
+ * read-only, so it can be compiled from while the bot is running.
+ */
+public class BookCompiler {
+
+    public static final int MAX_PLIES = 4000;
+    public static final int UNFINISHED = -2;
+
+    private record Move(long key, int id) {}
+
+    /**
+     * Gathers the moves of one thread's games. A game's moves are only counted once its result is known.
+     */
+    public static class Collector {
+
+        public final Map<Move, int[]> moves = new HashMap<>();
+        public final ActionBuffer buffer = new ActionBuffer();
+        public long games;
+        public long skipped;
+
+        private long[] keys = new long[64];
+        private int[] ids = new int[64];
+        private int[] players = new int[64];
+        private int size;
+
+        public void add(GameState state, int move) {
+            if (!OpeningBook.isBookMove(move)) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                players = Arrays.copyOf(players, size * 2);
+            }
+            keys[size] = OpeningBook.getKey(state);
+            ids[size] = ActionTable.getId(move);
+            players[size] = state.getCurrentIndex();
+            size++;
+        }
+
+        /**
+         * @param winner the winning player, {@code -1} for a stalemate or {@link #UNFINISHED} to drop the game
+         */
+        public void finish(int winner) {
+            if (winner == UNFINISHED) {
+                skipped++;
+            }
+            else {
+                games++;
+                for (int i = 0; i < size; i++) {
+                    int[] stats = moves.computeIfAbsent(new Move(keys[i], ids[i]), k -> new int[2]);
+                    stats[0]++;
+                    stats[1] += winner == -1 ? 1 : winner == players[i] ? 2 : 0;
+                }
+            }
+            size = 0;
+        }
+
+        public void merge(Collector other) {
+            games += other.games;
+            skipped += other.skipped;
+            for (Map.Entry<Move, int[]> entry : other.moves.entrySet()) {
+                int[] stats = moves.computeIfAbsent(entry.getKey(), k -> new int[2]);
+                stats[0] += entry.getValue()[0];
+                stats[1] += entry.getValue()[1];
+            }
+        }
+    }
+
+    public Path output;
+    public int turns = 8;
+    public int minGames = 2;
+    public Path archive;
+    public int selfPlayGames;
+    public String black = "greedy";
+    public String red = "greedy";
+    public boolean buildup;
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public long seed = System.nanoTime();
+    public List<Path> files = new ArrayList<>();
+
+    private static boolean isOver(Game.ActionResult result) {
+        return result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN;
+    }
+
+    private static int getWinner(GameRecord.Result result) {
+        return switch (result) {
+            case BLACK -> GameState.BLACK;
+            case RED -> GameState.RED;
+            case STALEMATE -> -1;
+            default -> UNFINISHED;
+        };
+    }
+
+    /**
+     * Receives every move of a replayed game before it's played.
+     */
+    public interface MoveVisitor {
+
+        /**
+         * @param count how many moves were available
+         * @param turn the turn of the move, starting at {@code 1} after the setup
+         */
+        void visit(GameState state, int move, int count, int turn);
+    }
+
+    /**
+     * Replays a recorded game move by move. Games without a seed can't be replayed, since their deck order is unknown.
+     *
+     * @return the winning player, {@code -1} for a stalemate or {@link #UNFINISHED} if the game can't be replayed or
+     * has no result
+     */
+    public static int replay(GameRecord record, ActionBuffer buffer, MoveVisitor visitor) {
+        if (record.seed == null || record.creative || record.turns.size() < 2) {
+            return UNFINISHED;
+        }
+        GameState state;
+        try {
+            state = GameState.of(new Game(record.turns.subList(0, 1), record.buildup, record.seed));
+        } catch (RuntimeException e) {
+            return UNFINISHED;
+        }
+        int winner = getWinner(record.result);
+        for (int i = 1; i < record.turns.size(); i++) {
+            Turn turn = record.turns.get(i);
+            int player = state.getCurrentIndex();
+            List<Integer> played = new ArrayList<>();
+            for (int draw = 0; draw < turn.draws; draw++) {
+                played.add(PackedAction.DRAW);
+            }
+            for (ActionSet set : turn.actionSets) {
+                for (Action action : set.actions) {
+                    played.add(action.type == Action.Type.PASS ? PackedAction.PASS : PackedAction.of(action));
+                }
+            }
+            for (int move : played) {
+                int count = state.getAvailableMoves(buffer);
+                if (!buffer.contains(move)) {
+                    return UNFINISHED;
+                }
+                visitor.visit(state, move, count, i);
+                Game.ActionResult result = state.play(move, count > 1);
+                if (isOver(result)) {
+                    return winner != UNFINISHED ? winner : state.getWinner(result);
+                }
+            }
+            if (state.getCurrentIndex() == player) {
+                int count = state.getAvailableMoves(buffer);
+                if (!buffer.contains(PackedAction.END)) {
+                    if (i < record.turns.size() - 1) {
+                        return UNFINISHED;
+                    }
+                    break;
+                }
+                visitor.visit(state, PackedAction.END, count, i);
+                state.play(PackedAction.END, count > 1);
+            }
+        }
+        if (winner == UNFINISHED && state.getAvailableMoves(buffer) == 0) {
+            winner = -1;
+        }
+        return winner;
+    }
+
+    /**
+     * Counts the moves made in the first {@link #turns} turns of a recorded game.
+     */
+    public void addRecord(GameRecord record, Collector collector) {
+        collector.finish(replay(record, collector.buffer, (state, move, count, turn) -> {
+            if (turn <= turns && count > 1) {
+                collector.add(state, move);
+            }
+        }));
+    }
+
+    public void playGame(SplittableRandom random, Policy[] policies, Collector collector) {
+        GameState state = new GameState();
+        SelfPlay.deal(state, new Deck(random.split(), buildup), new Deck(random.split(), buildup));
+        ActionBuffer moves = collector.buffer;
+        int turn = 1;
+        int winner = UNFINISHED;
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            int count = state.getAvailableMoves(moves);
+            if (count == 0) {
+                winner = -1;
+                break;
+            }
+            int player = state.getCurrentIndex();
+            int move = count == 1 ? moves.get(0) : policies[player].choose(state, moves, random);
+            if (turn <= turns && count > 1) {
+                collector.add(state, move);
+            }
+            Game.ActionResult result = state.play(move, count > 1);
+            if (isOver(result)) {
+                winner = state.getWinner(result);
+                break;
+            }
+            if (state.getCurrentIndex() != player) {
+                turn++;
+            }
+        }
+        collector.finish(winner);
+    }
+
+    public static GameRecord readFile(Path file) throws Exception {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            return GameRecord.fromChase(new ChaseParser(reader).parse());
+        }
+    }
+
+    /**
+     * @return the files, with each directory replaced by the {@code .chase} files in it
+     */
+    public static List<Path> findFiles(List<Path> files) throws Exception {
+        List<Path> result = new ArrayList<>();
+        for (Path path : files) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(file -> file.toString().endsWith(".chase")).sorted().forEach(result::add);
+                }
+            }
+            else {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    public Collector run() throws Exception {
+        List<Path> chaseFiles = findFiles(files);
+        GameArchive games = archive != null ? GameArchive.openReadOnly(archive) : null;
+        List<GameArchive.Entry> entries = games != null ? games.getEntries() : List.of();
+        int total = chaseFiles.size() + entries.size() + selfPlayGames;
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Collector>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                Policy[] policies = { Policy.create(black), Policy.create(red) };
+                Collector collector = new Collector();
+                for (int index; (index = next.getAndIncrement()) < total; ) {
+                    if (index >= chaseFiles.size() + entries.size()) {
+                        long game = index - chaseFiles.size() - entries.size();
+                        playGame(new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L), policies, collector);
+                        continue;
+                    }
+                    GameRecord record;
+                    try {
+                        record = index < chaseFiles.size()
+                                ? readFile(chaseFiles.get(index))
+                                : games.read(entries.get(index - chaseFiles.size()));
+                    } catch (Exception e) {
+                        System.err.println("Skipping game " + index + ": " + e.getMessage());
+                        collector.finish(UNFINISHED);
+                        continue;
+                    }
+                    addRecord(record, collector);
+                }
+                return collector;
+            }));
+        }
+        Collector result = new Collector();
+        for (Future<Collector> future : futures) {
+            result.merge(future.get());
+        }
+        executor.shutdown();
+        if (games != null) {
+            games.close();
+        }
+        return result;
+    }
+
+    public List<OpeningBook.Entry> getEntries(Collector collector) {
+        List<OpeningBook.Entry> result = new ArrayList<>();
+        for (Map.Entry<Move, int[]> entry : collector.moves.entrySet()) {
+            int[] stats = entry.getValue();
+            if (stats[0] >= minGames) {
+                result.add(new OpeningBook.Entry(entry.getKey().key(), entry.getKey().id(), stats[0], stats[1]));
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: BookCompiler OUTPUT [OPTIONS] [FILE...]");
+        }
+        BookCompiler compiler = new BookCompiler();
+        compiler.output = Path.of(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--turns" -> compiler.turns = Integer.parseInt(args[++i]);
+                case "--min-games" -> compiler.minGames = Integer.parseInt(args[++i]);
+                case "--archive" -> compiler.archive = Path.of(args[++i]);
+                case "--self-play" -> compiler.selfPlayGames = Integer.parseInt(args[++i]);
+                case "--black" -> compiler.black = args[++i];
+                case "--red" -> compiler.red = args[++i];
+                case "--buildup" -> compiler.buildup = true;
+                case "--threads" -> compiler.threads = Integer.parseInt(args[++i]);
+                case "--seed" -> compiler.seed = Long.parseLong(args[++i]);
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown argument '" + args[i] + "'");
+                    }
+                    compiler.files.add(Path.of(args[i]));
+                }
+            }
+        }
+        long start = System.nanoTime();
+        Collector collector = compiler.run();
+        List<OpeningBook.Entry> entries = compiler.getEntries(collector);
+        OpeningBook.write(compiler.output, compiler.turns, entries);
+        long positions = entries.stream().mapToLong(OpeningBook.Entry::key).distinct().count();
+        System.out.printf("Compiled %d games (%d skipped) into %d moves in %d positions, %d bytes, in %.1fs%n",
+                collector.games, collector.skipped, entries.size(), positions, Files.size(compiler.output),
+                (System.nanoTime() - start) / 1e9);
+    }
+}
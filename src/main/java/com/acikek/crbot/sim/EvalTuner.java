@@ -0,0 +1,337 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.*;
+import com.acikek.crbot.engine.Evaluator;
+import com.acikek.crbot.engine.LinearEvaluator;
+import com.acikek.crbot.engine.PositionBatch;
+import com.acikek.crbot.record.GameArchive;
+import com.acikek.crbot.record.GameRecord;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Fits the weights of a {@link LinearEvaluator} to the results of finished games.
+ * <p>
+ * Usage: {@code EvalTuner [--archive DIRECTORY] [--self-play N] [--black POLICY] [--red POLICY] [--buildup]
+ * [--threads N] [--seed N] [--epochs N] [--rate R] [FILE...]}. One position is sampled from every turn of every game,
+ * and the weights are fitted by logistic regression, so that {@link Evaluator#getWinProbability} predicts how the game
+ * ended for the player to move. The positions are kept as a {@link PositionBatch}, so their features and the held out
+ * scores are counted in bulk. Gradients are summed over chunks of positions in parallel, and every tenth game is held
+ * out to check the fit. The fitted weights are printed to be copied into {@link LinearEvaluator#DEFAULT_WEIGHTS}.
+ * The archive is opened read-only, so it can be tuned on while the bot is running.
+ */
+public class EvalTuner {
+
+    public static final int MAX_PLIES = 4000;
+    public static final int CHUNK_SIZE = 4096;
+    public static final int TEST_GAMES = 10;
+
+    /**
+     * The positions sampled from one thread's games. A game's positions are only kept once its result is known.
+     */
+    public static class Samples {
+
+        public final PositionBatch positions = new PositionBatch(1024);
+        public float[] results = new float[1024];
+        public long games;
+        public long skipped;
+
+        /**
+         * Each feature of every position, filled in by {@link #countFeatures()}.
+         */
+        public int[][] features;
+
+        private int[] players = new int[1024];
+        private int gameStart;
+
+        public int size() {
+            return positions.size;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (results.length < capacity) {
+                int length = Math.max(capacity, results.length * 2);
+                results = Arrays.copyOf(results, length);
+                players = Arrays.copyOf(players, length);
+            }
+        }
+
+        public void add(GameState state) {
+            ensureCapacity(positions.size + 1);
+            players[positions.size] = state.getCurrentIndex();
+            positions.add(state, state.getCurrentIndex());
+        }
+
+        /**
+         * @param winner the winning player, {@code -1} for a stalemate or {@link BookCompiler#UNFINISHED} to drop the game
+         */
+        public void finish(int winner) {
+            if (winner == BookCompiler.UNFINISHED) {
+                skipped++;
+                positions.size = gameStart;
+                return;
+            }
+            games++;
+            for (int i = gameStart; i < positions.size; i++) {
+                results[i] = winner == -1 ? 0.5f : winner == players[i] ? 1.0f : 0.0f;
+            }
+            gameStart = positions.size;
+        }
+
+        public void merge(Samples other) {
+            ensureCapacity(positions.size + other.positions.size);
+            System.arraycopy(other.results, 0, results, positions.size, other.positions.size);
+            System.arraycopy(other.players, 0, players, positions.size, other.positions.size);
+            positions.addAll(other.positions);
+            gameStart = positions.size;
+            games += other.games;
+            skipped += other.skipped;
+        }
+
+        public void countFeatures() {
+            features = new int[LinearEvaluator.FEATURES][positions.size];
+            LinearEvaluator.getFeatures(positions, features);
+        }
+
+        private double predict(double[] weights, int index) {
+            double score = 0;
+            for (int feature = 0; feature < LinearEvaluator.FEATURES; feature++) {
+                score += weights[feature] * features[feature][index];
+            }
+            return 1.0 / (1.0 + Math.exp(-score / Evaluator.SCALE));
+        }
+
+        private static double getLoss(double prediction, double actual) {
+            prediction = Math.min(Math.max(prediction, 1e-9), 1 - 1e-9);
+            return -(actual * Math.log(prediction) + (1 - actual) * Math.log(1 - prediction));
+        }
+
+        /**
+         * @return the summed log loss followed by the summed gradient of each weight, over one chunk of positions
+         */
+        private double[] getGradient(double[] weights, int chunk) {
+            double[] result = new double[LinearEvaluator.FEATURES + 1];
+            int end = Math.min(positions.size, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                double prediction = predict(weights, i);
+                result[0] += getLoss(prediction, results[i]);
+                double error = (prediction - results[i]) / Evaluator.SCALE;
+                for (int feature = 0; feature < LinearEvaluator.FEATURES; feature++) {
+                    result[feature + 1] += error * features[feature][i];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return the mean log loss followed by the mean gradient of each weight
+         */
+        public double[] getGradient(double[] weights) {
+            int chunks = (positions.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            double[] result = IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> getGradient(weights, chunk))
+                    .reduce(new double[LinearEvaluator.FEATURES + 1], (a, b) -> {
+                        double[] sum = new double[a.length];
+                        for (int i = 0; i < sum.length; i++) {
+                            sum[i] = a[i] + b[i];
+                        }
+                        return sum;
+                    });
+            for (int i = 0; i < result.length; i++) {
+                result[i] /= Math.max(1, positions.size);
+            }
+            return result;
+        }
+
+        /**
+         * Scores every position with the evaluator.
+         *
+         * @return the mean log loss and the share of decisive positions where the predicted winner won
+         */
+        public double[] test(LinearEvaluator evaluator) {
+            int[] scores = new int[positions.size];
+            evaluator.evaluate(positions, scores);
+            double loss = 0;
+            long correct = 0;
+            long decisive = 0;
+            for (int i = 0; i < positions.size; i++) {
+                double prediction = 1.0 / (1.0 + Math.exp(-scores[i] / Evaluator.SCALE));
+                loss += getLoss(prediction, results[i]);
+                if (results[i] != 0.5f) {
+                    decisive++;
+                    if ((prediction > 0.5) == (results[i] == 1.0f)) {
+                        correct++;
+                    }
+                }
+            }
+            return new double[] { loss / Math.max(1, positions.size), (double) correct / Math.max(1, decisive) };
+        }
+    }
+
+    public Path archive;
+    public int selfPlayGames;
+    public String black = "greedy";
+    public String red = "greedy";
+    public boolean buildup;
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public long seed = System.nanoTime();
+    public int epochs = 500;
+    public double rate = 2.0;
+    public List<Path> files = new ArrayList<>();
+
+    public void addRecord(GameRecord record, Samples samples) {
+        int[] lastTurn = { 0 };
+        samples.finish(BookCompiler.replay(record, new ActionBuffer(), (state, move, count, turn) -> {
+            if (turn != lastTurn[0]) {
+                lastTurn[0] = turn;
+                samples.add(state);
+            }
+        }));
+    }
+
+    public void playGame(SplittableRandom random, Policy[] policies, ActionBuffer moves, Samples samples) {
+        GameState state = new GameState();
+        SelfPlay.deal(state, new Deck(random.split(), buildup), new Deck(random.split(), buildup));
+        int winner = BookCompiler.UNFINISHED;
+        int lastPlayer = -1;
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            int count = state.getAvailableMoves(moves);
+            if (count == 0) {
+                winner = -1;
+                break;
+            }
+            int player = state.getCurrentIndex();
+            if (player != lastPlayer) {
+                lastPlayer = player;
+                samples.add(state);
+            }
+            int move = count == 1 ? moves.get(0) : policies[player].choose(state, moves, random);
+            Game.ActionResult result = state.play(move, count > 1);
+            if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                winner = state.getWinner(result);
+                break;
+            }
+        }
+        samples.finish(winner);
+    }
+
+    /**
+     * @return the positions of the training games and of the held out games
+     */
+    public Samples[] collect() throws Exception {
+        List<Path> chaseFiles = BookCompiler.findFiles(files);
+        GameArchive games = archive != null ? GameArchive.openReadOnly(archive) : null;
+        List<GameArchive.Entry> entries = games != null ? games.getEntries() : List.of();
+        int total = chaseFiles.size() + entries.size() + selfPlayGames;
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Samples[]>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                Policy[] policies = { Policy.create(black), Policy.create(red) };
+                ActionBuffer moves = new ActionBuffer();
+                Samples[] samples = { new Samples(), new Samples() };
+                for (int index; (index = next.getAndIncrement()) < total; ) {
+                    Samples target = samples[index % TEST_GAMES == 0 ? 1 : 0];
+                    if (index >= chaseFiles.size() + entries.size()) {
+                        long game = index - chaseFiles.size() - entries.size();
+                        playGame(new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L), policies, moves, target);
+                        continue;
+                    }
+                    GameRecord record;
+                    try {
+                        record = index < chaseFiles.size()
+                                ? BookCompiler.readFile(chaseFiles.get(index))
+                                : games.read(entries.get(index - chaseFiles.size()));
+                    } catch (Exception e) {
+                        System.err.println("Skipping game " + index + ": " + e.getMessage());
+                        target.finish(BookCompiler.UNFINISHED);
+                        continue;
+                    }
+                    addRecord(record, target);
+                }
+                return samples;
+            }));
+        }
+        Samples[] result = { new Samples(), new Samples() };
+        for (Future<Samples[]> future : futures) {
+            Samples[] samples = future.get();
+            result[0].merge(samples[0]);
+            result[1].merge(samples[1]);
+        }
+        executor.shutdown();
+        if (games != null) {
+            games.close();
+        }
+        return result;
+    }
+
+    /**
+     * Fits the weights with Adam, starting from the given ones.
+     */
+    public double[] fit(Samples samples, int[] initial) {
+        double[] weights = Arrays.stream(initial).asDoubleStream().toArray();
+        double[] mean = new double[weights.length];
+        double[] variance = new double[weights.length];
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double[] gradient = samples.getGradient(weights);
+            for (int i = 0; i < weights.length; i++) {
+                double g = gradient[i + 1];
+                mean[i] = 0.9 * mean[i] + 0.1 * g;
+                variance[i] = 0.999 * variance[i] + 0.001 * g * g;
+                double step = mean[i] / (1 - Math.pow(0.9, epoch)) / (Math.sqrt(variance[i] / (1 - Math.pow(0.999, epoch))) + 1e-12);
+                weights[i] -= rate * step;
+            }
+            if (epoch % 100 == 0) {
+                System.out.printf("Epoch %d: loss %.5f%n", epoch, gradient[0]);
+            }
+        }
+        return weights;
+    }
+
+    public static void main(String[] args) throws Exception {
+        EvalTuner tuner = new EvalTuner();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--archive" -> tuner.archive = Path.of(args[++i]);
+                case "--self-play" -> tuner.selfPlayGames = Integer.parseInt(args[++i]);
+                case "--black" -> tuner.black = args[++i];
+                case "--red" -> tuner.red = args[++i];
+                case "--buildup" -> tuner.buildup = true;
+                case "--threads" -> tuner.threads = Integer.parseInt(args[++i]);
+                case "--seed" -> tuner.seed = Long.parseLong(args[++i]);
+                case "--epochs" -> tuner.epochs = Integer.parseInt(args[++i]);
+                case "--rate" -> tuner.rate = Double.parseDouble(args[++i]);
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown argument '" + args[i] + "'");
+                    }
+                    tuner.files.add(Path.of(args[i]));
+                }
+            }
+        }
+        long start = System.nanoTime();
+        Samples[] samples = tuner.collect();
+        Samples train = samples[0];
+        Samples test = samples[1];
+        train.countFeatures();
+        System.out.printf("Collected %d positions from %d games (%d skipped), %d held out, in %.1fs%n",
+                train.size(), train.games + test.games, train.skipped + test.skipped, test.size(), (System.nanoTime() - start) / 1e9);
+        double[] fitted = tuner.fit(train, LinearEvaluator.DEFAULT_WEIGHTS);
+        int[] rounded = Arrays.stream(fitted).mapToInt(weight -> (int) Math.round(weight)).toArray();
+        double[] before = test.test(LinearEvaluator.DEFAULT);
+        double[] after = test.test(new LinearEvaluator(rounded));
+        System.out.printf("Held out loss %.5f -> %.5f, accuracy %.2f%% -> %.2f%%%n", before[0], after[0], before[1] * 100, after[1] * 100);
+        System.out.println(new LinearEvaluator(rounded));
+        System.out.println("DEFAULT_WEIGHTS = " + Arrays.toString(rounded).replace('[', '{').replace(']', '}'));
+    }
+}
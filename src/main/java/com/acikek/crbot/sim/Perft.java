@@ -0,0 +1,213 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.*;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the positions reachable in exactly N moves, where a move is an available action, a draw or ending the turn.
+ * Positions where the game ends early aren't counted. Both {@link Game} and {@link GameState} are walked from the same
+ * position, so any difference between the two move generators shows up as a count mismatch.
+ * <p>
+ * Usage: {@code Perft [--file PATH | --setup POWERS] [--depth N] [--seed N] [--packed] [--verify]}. The seed fixes the deck
+ * orders, unless the file has a {@code @seed} header of its own. Files with snapshots resume from the latest one, or are
+ * replayed in full and checked against every snapshot with {@code --verify}.
+ */
+public class Perft {
+
+    public static final Action.Type[] TYPES = Action.Type.values();
+    public static final int DRAW = TYPES.length;
+    public static final int END = DRAW + 1;
+
+    public record Result(long nodes, long[] counts, long nanos) {
+
+        public double getNodesPerSecond() {
+            return nodes * 1e9 / Math.max(1, nanos);
+        }
+
+        public String getCountString() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                String name = i == DRAW ? "DRAW" : i == END ? "END_TURN" : TYPES[i].name();
+                builder.append(builder.isEmpty() ? "" : ", ").append(name).append('=').append(counts[i]);
+            }
+            return builder.toString();
+        }
+
+        public boolean matches(Result other) {
+            return nodes == other.nodes && Arrays.equals(counts, other.counts);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d nodes in %.3fs (%.0f nodes/s) [%s]", nodes, nanos / 1e9, getNodesPerSecond(), getCountString());
+        }
+    }
+
+    private final long[] counts = new long[END + 1];
+    private final GameState[] states = new GameState[64];
+    private final ActionBuffer[] buffers = new ActionBuffer[64];
+
+    public Perft() {
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new GameState();
+            buffers[i] = new ActionBuffer();
+        }
+    }
+
+    public Result run(Game game, int depth) {
+        Arrays.fill(counts, 0);
+        boolean undo = game.isUndoEnabled();
+        game.setUndoEnabled(true);
+        long start = System.nanoTime();
+        long nodes = perft(game, depth);
+        game.setUndoEnabled(undo);
+        return new Result(nodes, counts.clone(), System.nanoTime() - start);
+    }
+
+    public Result run(GameState state, int depth) {
+        if (depth >= states.length) {
+            throw new IllegalArgumentException("Depth must be below " + states.length);
+        }
+        Arrays.fill(counts, 0);
+        states[0].set(state);
+        long start = System.nanoTime();
+        long nodes = perft(0, depth);
+        return new Result(nodes, counts.clone(), System.nanoTime() - start);
+    }
+
+    private long perft(Game game, int depth) {
+        List<Action> actions = game.getAvailableActions();
+        boolean draw = game.canDraw();
+        boolean end = !game.currentTurn.actionSets.isEmpty();
+        int count = actions.size() + (draw ? 1 : 0) + (end ? 1 : 0);
+        if (depth == 1) {
+            for (Action action : actions) {
+                counts[action.type.ordinal()]++;
+            }
+            counts[DRAW] += draw ? 1 : 0;
+            counts[END] += end ? 1 : 0;
+            return count;
+        }
+        long nodes = 0;
+        for (Action action : actions) {
+            int changes = 1;
+            if (action == Action.PASS) {
+                game.pass(count > 1);
+                nodes += perft(game, depth - 1);
+            }
+            else {
+                Game.ActionResult result = game.submitAction(action);
+                if (result == Game.ActionResult.END_TURN) {
+                    game.endTurn();
+                    changes++;
+                }
+                if (result == Game.ActionResult.CONTINUE || result == Game.ActionResult.END_TURN) {
+                    nodes += perft(game, depth - 1);
+                }
+            }
+            for (; changes > 0; changes--) {
+                game.undo();
+            }
+        }
+        if (draw) {
+            game.draw();
+            nodes += perft(game, depth - 1);
+            game.undo();
+        }
+        if (end) {
+            game.endTurn();
+            nodes += perft(game, depth - 1);
+            game.undo();
+        }
+        return nodes;
+    }
+
+    private long perft(int ply, int depth) {
+        GameState state = states[ply];
+        ActionBuffer moves = buffers[ply];
+        int count = state.getAvailableMoves(moves);
+        if (depth == 1) {
+            for (int i = 0; i < count; i++) {
+                int move = moves.get(i);
+                counts[move == PackedAction.DRAW ? DRAW : move == PackedAction.END ? END : PackedAction.getType(move).ordinal()]++;
+            }
+            return count;
+        }
+        long nodes = 0;
+        GameState child = states[ply + 1];
+        for (int i = 0; i < count; i++) {
+            child.set(state);
+            Game.ActionResult result = child.play(moves.get(i), count > 1);
+            if (result == Game.ActionResult.CONTINUE || result == Game.ActionResult.END_TURN) {
+                nodes += perft(ply + 1, depth - 1);
+            }
+        }
+        return nodes;
+    }
+
+    public static Game load(String file, String setup, long seed, boolean verify) throws Exception {
+        if (file != null) {
+            ChaseParser parser;
+            try (Reader reader = Files.newBufferedReader(Path.of(file))) {
+                parser = new ChaseParser(reader).parse();
+            }
+            if (!parser.headers.containsKey(Game.SEED_HEADER)) {
+                parser.headers.put(Game.SEED_HEADER, String.valueOf(seed));
+            }
+            return Game.load(parser, false, verify);
+        }
+        if (setup != null) {
+            return new Game(List.of(Turn.parse(setup)), false, seed);
+        }
+        Game game = new Game(null, false, seed);
+        game.begin();
+        return game;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String file = null;
+        String setup = null;
+        int depth = 4;
+        long seed = 0;
+        boolean packed = false;
+        boolean verify = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--file" -> file = args[++i];
+                case "--setup" -> setup = args[++i];
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--packed" -> packed = true;
+                case "--verify" -> verify = true;
+                default -> throw new IllegalArgumentException("Unknown argument '" + args[i] + "'");
+            }
+        }
+        Game game = load(file, setup, seed, verify);
+        GameState state = GameState.of(game);
+        Perft perft = new Perft();
+        boolean matches = true;
+        for (int d = 1; d <= depth; d++) {
+            Result result = perft.run(state, d);
+            System.out.println("Depth " + d + " (packed): " + result);
+            if (!packed) {
+                Result reference = perft.run(game, d);
+                System.out.println("Depth " + d + " (game):   " + reference);
+                if (!reference.matches(result)) {
+                    System.out.println("Mismatch at depth " + d + "!");
+                    matches = false;
+                }
+            }
+        }
+        if (!matches) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.engine.AlphaBeta;
+import com.acikek.crbot.engine.Evaluator;
+import com.acikek.crbot.engine.LinearEvaluator;
+import com.acikek.crbot.engine.Mcts;
+import com.acikek.crbot.engine.PositionBatch;
+import com.acikek.crbot.engine.TranspositionTable;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Chooses a move for self-play. Instances keep per-thread search state, so each worker creates its own.
+ */
+public interface Policy {
+
+    int choose(GameState state, ActionBuffer moves, SplittableRandom random);
+
+    static Policy create(String name) {
+        String[] args = name.split(":");
+        int budget = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        return switch (args[0]) {
+            case "random" -> random();
+            case "greedy" -> greedy(LinearEvaluator.DEFAULT);
+            case "engine", "mcts" -> mcts(budget > 0 ? budget : 200);
+            case "alphabeta" -> alphaBeta(budget > 0 ? budget : 3);
+            default -> throw new IllegalArgumentException("Unknown policy '" + name + "'");
+        };
+    }
+
+    static Policy random() {
+        return (state, moves, random) -> moves.get(random.nextInt(moves.size));
+    }
+
+    /**
+     * Takes a winning move if there is one, and otherwise the move with the best evaluation afterwards. With a
+     * {@link LinearEvaluator}, the positions after every other move are scored as one {@link PositionBatch}.
+     */
+    class Greedy implements Policy {
+
+        public final Evaluator evaluator;
+
+        private final LinearEvaluator linear;
+        private final GameState child = new GameState();
+        private final PositionBatch batch = new PositionBatch(128);
+        private int[] results = new int[128];
+        private int[] scores = new int[128];
+
+        public Greedy(Evaluator evaluator) {
+            this.evaluator = evaluator;
+            linear = evaluator instanceof LinearEvaluator linearEvaluator ? linearEvaluator : null;
+        }
+
+        @Override
+        public int choose(GameState state, ActionBuffer moves, SplittableRandom random) {
+            if (results.length < moves.size) {
+                results = new int[moves.actions.length];
+                scores = new int[moves.actions.length];
+            }
+            int player = state.getCurrentIndex();
+            batch.clear();
+            for (int i = 0; i < moves.size; i++) {
+                child.set(state);
+                Game.ActionResult result = child.play(moves.get(i), moves.size > 1);
+                results[i] = switch (result) {
+                    case CONTINUE, END_TURN -> {
+                        if (linear == null) {
+                            yield evaluator.evaluate(child, player);
+                        }
+                        batch.add(child, player);
+                        yield Integer.MIN_VALUE;
+                    }
+                    default -> {
+                        int winner = child.getWinner(result);
+                        yield winner == -1 ? 0 : winner == player ? AlphaBeta.MATE : -AlphaBeta.MATE;
+                    }
+                };
+            }
+            if (linear != null) {
+                linear.evaluate(batch, scores);
+            }
+            int best = moves.get(0);
+            int bestScore = Integer.MIN_VALUE;
+            int ties = 0;
+            for (int i = 0, next = 0; i < moves.size; i++) {
+                int score = linear == null || results[i] != Integer.MIN_VALUE ? results[i] : scores[next++];
+                if (score > bestScore) {
+                    best = moves.get(i);
+                    bestScore = score;
+                    ties = 1;
+                }
+                else if (score == bestScore && random.nextInt(++ties) == 0) {
+                    best = moves.get(i);
+                }
+            }
+            return best;
+        }
+    }
+
+    static Policy greedy(Evaluator evaluator) {
+        return new Greedy(evaluator);
+    }
+
+    /**
+     * The bot's search with a fixed playout budget on the calling thread, so it only sees what a player could see.
+     */
+    static Policy mcts(int playouts) {
+        Mcts mcts = new Mcts(new ForkJoinPool(1));
+        return (state, moves, random) -> mcts.search(state, random.nextLong(), 0, playouts).move();
+    }
+
+    /**
+     * A fixed-depth alpha-beta search. It reads the deck orders, so it plays with perfect information.
+     */
+    static Policy alphaBeta(int depth) {
+        AlphaBeta search = new AlphaBeta(new TranspositionTable(4));
+        return (state, moves, random) -> search.search(state, depth, 0).getMove();
+    }
+}
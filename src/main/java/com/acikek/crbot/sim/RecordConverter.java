@@ -0,0 +1,63 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.ChaseParser;
+import com.acikek.crbot.record.GameRecord;
+import com.acikek.crbot.record.RecordReader;
+import com.acikek.crbot.record.RecordWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Converts between {@code .chase} files and binary record files.
+ * <p>
+ * Usage: {@code RecordConverter --binary OUTPUT FILE...} writes the given games into one record file, and
+ * {@code RecordConverter --chase INPUT DIRECTORY} writes each game of a record file as a {@code .chase} file.
+ */
+public class RecordConverter {
+
+    public static void toBinary(Path output, String[] files, int start) throws Exception {
+        long textBytes = 0;
+        try (RecordWriter writer = new RecordWriter(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            for (int i = start; i < files.length; i++) {
+                Path file = Path.of(files[i]);
+                textBytes += Files.size(file);
+                try (Reader reader = Files.newBufferedReader(file)) {
+                    writer.write(GameRecord.fromChase(new ChaseParser(reader).parse()));
+                }
+            }
+        }
+        long binaryBytes = Files.size(output);
+        System.out.printf("Wrote %d games: %d bytes of text, %d bytes of records (%.1fx smaller)%n",
+                files.length - start, textBytes, binaryBytes, (double) textBytes / Math.max(1, binaryBytes));
+    }
+
+    public static void toChase(Path input, Path directory) throws Exception {
+        Files.createDirectories(directory);
+        int count = 0;
+        try (RecordReader reader = new RecordReader(new BufferedInputStream(Files.newInputStream(input)))) {
+            GameRecord record;
+            while ((record = reader.read()) != null) {
+                String name = record.black + "_" + record.red + "_" + count + ".chase";
+                Files.writeString(directory.resolve(name), record.toChase());
+                count++;
+            }
+        }
+        System.out.println("Wrote " + count + " games to " + directory);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("--binary")) {
+            toBinary(Path.of(args[1]), args, 2);
+        }
+        else if (args.length == 3 && args[0].equals("--chase")) {
+            toChase(Path.of(args[1]), Path.of(args[2]));
+        }
+        else {
+            throw new IllegalArgumentException("Usage: RecordConverter --binary OUTPUT FILE... | --chase INPUT DIRECTORY");
+        }
+    }
+}
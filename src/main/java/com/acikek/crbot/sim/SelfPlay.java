@@ -0,0 +1,219 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays complete games between two policies on every core, without Discord, and prints aggregate statistics.
+ * <p>
+ * Usage: {@code SelfPlay [--games N] [--black POLICY] [--red POLICY] [--buildup] [--threads N] [--seed N] [--max-plies N]},
+ * where a policy is {@code random}, {@code greedy}, {@code engine[:playouts]} or {@code alphabeta[:depth]}.
+ */
+public class SelfPlay {
+
+    public static final int MAX_TURNS = 1024;
+
+    public static class Stats {
+
+        public long games;
+        public long blackWins;
+        public long redWins;
+        public long stalemates;
+        public long unfinished;
+        public long plies;
+        public long turns;
+        public long passes;
+        public long positions;
+        public long chasePositions;
+        public long chaseGames;
+        public long chases;
+        public final long[] turnCounts = new long[MAX_TURNS + 1];
+
+        public void merge(Stats other) {
+            games += other.games;
+            blackWins += other.blackWins;
+            redWins += other.redWins;
+            stalemates += other.stalemates;
+            unfinished += other.unfinished;
+            plies += other.plies;
+            turns += other.turns;
+            passes += other.passes;
+            positions += other.positions;
+            chasePositions += other.chasePositions;
+            chaseGames += other.chaseGames;
+            chases += other.chases;
+            for (int i = 0; i <= MAX_TURNS; i++) {
+                turnCounts[i] += other.turnCounts[i];
+            }
+        }
+
+        public int getTurnPercentile(double percentile) {
+            long target = (long) Math.ceil(games * percentile);
+            long count = 0;
+            for (int i = 0; i <= MAX_TURNS; i++) {
+                count += turnCounts[i];
+                if (count >= target) {
+                    return i;
+                }
+            }
+            return MAX_TURNS;
+        }
+
+        private static String percent(long count, long total) {
+            return String.format("%.2f%%", total == 0 ? 0.0 : count * 100.0 / total);
+        }
+
+        @Override
+        public String toString() {
+            return "Games:       " + games + "\n"
+                    + "Black wins:  " + blackWins + " (" + percent(blackWins, games) + ")\n"
+                    + "Red wins:    " + redWins + " (" + percent(redWins, games) + ")\n"
+                    + "Stalemates:  " + stalemates + " (" + percent(stalemates, games) + ")\n"
+                    + "Unfinished:  " + unfinished + " (" + percent(unfinished, games) + ")\n"
+                    + String.format("Length:      %.1f turns, %.1f plies (median %d, p90 %d, p99 %d turns)%n",
+                            (double) turns / Math.max(1, games), (double) plies / Math.max(1, games),
+                            getTurnPercentile(0.5), getTurnPercentile(0.9), getTurnPercentile(0.99))
+                    + String.format("Passes:      %.2f per game, %s of turns%n", (double) passes / Math.max(1, games), percent(passes, turns))
+                    + "Chase:       available in " + percent(chasePositions, positions) + " of positions and "
+                    + percent(chaseGames, games) + " of games, played " + chases + " times";
+        }
+    }
+
+    public int games = 100_000;
+    public String black = "random";
+    public String red = "random";
+    public boolean buildup;
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public long seed = System.nanoTime();
+    public int maxPlies = 4000;
+
+    public static void deal(GameState state, Deck black, Deck red) {
+        state.set(new GameState());
+        for (int i = 0; i < black.getCardCount(); i++) {
+            state.addDeck(GameState.BLACK, black.getCard(i));
+        }
+        for (int i = 0; i < red.getCardCount(); i++) {
+            state.addDeck(GameState.RED, red.getCard(i));
+        }
+        state.begin();
+    }
+
+    private static boolean hasChase(ActionBuffer moves) {
+        for (int i = 0; i < moves.size; i++) {
+            int move = moves.get(i);
+            if (PackedAction.isAction(move) && PackedAction.getType(move) == Action.Type.CHASE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void play(GameState state, Policy[] policies, SplittableRandom random, ActionBuffer moves, Stats stats) {
+        deal(state, new Deck(random.split(), buildup), new Deck(random.split(), buildup));
+        int turns = 1;
+        boolean chaseAvailable = false;
+        Game.ActionResult result = Game.ActionResult.CONTINUE;
+        int ply = 0;
+        for (; ply < maxPlies; ply++) {
+            int count = state.getAvailableMoves(moves);
+            if (count == 0) {
+                result = Game.ActionResult.STALEMATE;
+                break;
+            }
+            stats.positions++;
+            if (hasChase(moves)) {
+                stats.chasePositions++;
+                chaseAvailable = true;
+            }
+            int player = state.getCurrentIndex();
+            int move = count == 1 ? moves.get(0) : policies[player].choose(state, moves, random);
+            if (move == PackedAction.PASS) {
+                stats.passes++;
+            }
+            else if (PackedAction.isAction(move) && PackedAction.getType(move) == Action.Type.CHASE) {
+                stats.chases++;
+            }
+            result = state.play(move, count > 1);
+            if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                ply++;
+                break;
+            }
+            if (state.getCurrentIndex() != player) {
+                turns++;
+            }
+        }
+        stats.games++;
+        stats.plies += ply;
+        stats.turns += turns;
+        stats.turnCounts[Math.min(turns, MAX_TURNS)]++;
+        if (chaseAvailable) {
+            stats.chaseGames++;
+        }
+        switch (result) {
+            case CONTINUE, END_TURN -> stats.unfinished++;
+            case STALEMATE -> stats.stalemates++;
+            default -> {
+                if (state.getWinner(result) == GameState.BLACK) {
+                    stats.blackWins++;
+                }
+                else {
+                    stats.redWins++;
+                }
+            }
+        }
+    }
+
+    public Stats run() throws Exception {
+        AtomicLong next = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Stats>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                Policy[] policies = { Policy.create(black), Policy.create(red) };
+                GameState state = new GameState();
+                ActionBuffer moves = new ActionBuffer();
+                Stats stats = new Stats();
+                for (long game; (game = next.getAndIncrement()) < games; ) {
+                    play(state, policies, new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L), moves, stats);
+                }
+                return stats;
+            }));
+        }
+        Stats result = new Stats();
+        for (Future<Stats> future : futures) {
+            result.merge(future.get());
+        }
+        executor.shutdown();
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SelfPlay selfPlay = new SelfPlay();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games" -> selfPlay.games = Integer.parseInt(args[++i]);
+                case "--black" -> selfPlay.black = args[++i];
+                case "--red" -> selfPlay.red = args[++i];
+                case "--buildup" -> selfPlay.buildup = true;
+                case "--threads" -> selfPlay.threads = Integer.parseInt(args[++i]);
+                case "--seed" -> selfPlay.seed = Long.parseLong(args[++i]);
+                case "--max-plies" -> selfPlay.maxPlies = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument '" + args[i] + "'");
+            }
+        }
+        System.out.println("Playing " + selfPlay.games + " games of " + selfPlay.black + " (Black) against " + selfPlay.red
+                + " (Red) on " + selfPlay.threads + " threads" + (selfPlay.buildup ? " with buildup" : "") + ", seed " + selfPlay.seed);
+        long start = System.nanoTime();
+        Stats stats = selfPlay.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(stats);
+        System.out.printf("Throughput:  %.0f games/s, %.0f plies/s in %.1fs%n", stats.games / seconds, stats.plies / seconds, seconds);
+    }
+}
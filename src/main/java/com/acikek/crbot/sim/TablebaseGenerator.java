@@ -0,0 +1,292 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.engine.Tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a {@link Tablebase} of every endgame with up to a given number of cards.
+ * <p>
+ * Usage: {@code TablebaseGenerator OUTPUT [--cards N]}. Every combination of armies and hands with at least one card
+ * on each side is enumerated, with at most two cards of each power per player as in a real deck. Positions are then
+ * solved backwards from the end of the game: each pass finds the positions that win or lose one ply later than those
+ * found before, until a pass finds nothing. Whatever is left can't be forced either way.
+ */
+public class TablebaseGenerator {
+
+    public static final int CHUNK_SIZE = 4096;
+    public static final short UNSOLVED = Short.MIN_VALUE;
+
+    public record Side(int army, int hand, int cards) {}
+
+    public final int maxCards;
+    public long[] armies;
+    public long[] hands;
+    public short[] values;
+
+    public TablebaseGenerator(int maxCards) {
+        this.maxCards = maxCards;
+    }
+
+    private static int[] getSlots() {
+        int[] result = new int[13 + 9];
+        int size = 0;
+        for (int code = 1; code <= 13; code++) {
+            result[size++] = code;
+        }
+        for (int major = 8; major <= 10; major++) {
+            for (int pawn = 2; pawn <= 4; pawn++) {
+                result[size++] = GameState.toSlot(major, pawn);
+            }
+        }
+        return result;
+    }
+
+    private static final int[] SLOTS = getSlots();
+
+    /**
+     * Adds every hand of up to {@code cards} codes, in ascending order from {@code code}, to an army.
+     */
+    private static void addHands(List<Side> sides, int army, int hand, int size, int code, int used, int cards, int[] counts) {
+        sides.add(new Side(army, hand, used));
+        if (used == cards) {
+            return;
+        }
+        for (int next = code; next <= 13; next++) {
+            if (counts[next] < 2) {
+                counts[next]++;
+                addHands(sides, army, hand | next << (size << 2), size + 1, next, used + 1, cards, counts);
+                counts[next]--;
+            }
+        }
+    }
+
+    private static void addArmies(List<Side> sides, int army, int position, int used, int cards, int[] counts) {
+        if (position == 4) {
+            addHands(sides, army, 0, 0, 1, used, cards, counts);
+            return;
+        }
+        addArmies(sides, army, position + 1, used, cards, counts);
+        for (int slot : SLOTS) {
+            int code = slot & 0xF;
+            int servant = GameState.getSlotServant(slot);
+            int slotCards = servant > 0 ? 2 : 1;
+            if (used + slotCards > cards || counts[code] >= 2 || (servant > 0 && counts[servant] >= 2)) {
+                continue;
+            }
+            counts[code]++;
+            counts[servant]++;
+            addArmies(sides, army | slot << (position << 3), position + 1, used + slotCards, cards, counts);
+            counts[code]--;
+            counts[servant]--;
+        }
+    }
+
+    /**
+     * @return every army and hand of one player with between one and the given number of cards
+     */
+    public static List<Side> getSides(int cards) {
+        List<Side> result = new ArrayList<>();
+        addArmies(result, 0, 0, 0, cards, new int[16]);
+        result.removeIf(side -> side.cards() == 0);
+        return result;
+    }
+
+    public void enumerate() {
+        List<Side> sides = getSides(maxCards - 1);
+        List<long[]> materials = new ArrayList<>();
+        for (Side black : sides) {
+            for (Side red : sides) {
+                if (black.cards() + red.cards() <= maxCards) {
+                    materials.add(new long[] {
+                            (black.army() & 0xFFFFFFFFL) | (long) red.army() << 32,
+                            (black.hand() & 0xFFFFFFFFL) | (long) red.hand() << 32
+                    });
+                }
+            }
+        }
+        materials.sort(Comparator.<long[]>comparingLong(material -> material[0]).thenComparingLong(material -> material[1]));
+        armies = new long[materials.size()];
+        hands = new long[materials.size()];
+        for (int i = 0; i < materials.size(); i++) {
+            armies[i] = materials.get(i)[0];
+            hands[i] = materials.get(i)[1];
+        }
+        values = new short[materials.size() * Tablebase.TURN_STATES];
+        Arrays.fill(values, UNSOLVED);
+    }
+
+    private void setPosition(GameState state, int index) {
+        int material = index / Tablebase.TURN_STATES;
+        state.armies = armies[material];
+        state.hands = hands[material];
+        Tablebase.setTurnState(state, index % Tablebase.TURN_STATES);
+    }
+
+    private int getIndex(GameState state) {
+        int material = Tablebase.find(armies, hands, Tablebase.getArmies(state), Tablebase.getHands(state));
+        if (material == -1) {
+            throw new IllegalStateException("Position is missing from the tablebase");
+        }
+        return material * Tablebase.TURN_STATES + Tablebase.getTurnState(state);
+    }
+
+    private class Solver {
+
+        final GameState state = new GameState();
+        final GameState child = new GameState();
+        final ActionBuffer moves = new ActionBuffer();
+
+        /**
+         * @return the new value of an unsolved position, or {@link #UNSOLVED} if it can't be decided yet
+         */
+        int solve(int index, int pass) {
+            setPosition(state, index);
+            int count = state.getAvailableMoves(moves);
+            if (count == 0) {
+                return 0;
+            }
+            int player = state.getCurrentIndex();
+            int bestWin = Integer.MAX_VALUE;
+            int worstLoss = 0;
+            boolean unsolved = false;
+            boolean holds = false;
+            for (int i = 0; i < count; i++) {
+                child.set(state);
+                Game.ActionResult result = child.play(moves.get(i), count > 1);
+                int value;
+                switch (result) {
+                    case WIN -> value = 1;
+                    case LOSE -> value = -1;
+                    case STALEMATE -> value = 0;
+                    default -> {
+                        short childValue = values[getIndex(child)];
+                        if (childValue == UNSOLVED) {
+                            unsolved = true;
+                            continue;
+                        }
+                        value = Tablebase.toParent(child.getCurrentIndex() == player ? childValue : -childValue);
+                    }
+                }
+                if (value > 0) {
+                    bestWin = Math.min(bestWin, value);
+                }
+                else if (value < 0) {
+                    worstLoss = Math.min(worstLoss, value);
+                }
+                else {
+                    holds = true;
+                }
+            }
+            // Every position that wins in fewer plies has been found by now, so no unsolved move can win faster
+            if (bestWin <= pass || (!unsolved && bestWin != Integer.MAX_VALUE)) {
+                return bestWin;
+            }
+            if (unsolved || bestWin != Integer.MAX_VALUE) {
+                return UNSOLVED;
+            }
+            return holds ? 0 : worstLoss;
+        }
+    }
+
+    /**
+     * Solves every position, printing the progress of each pass.
+     */
+    public void solve() {
+        int chunks = (values.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        AtomicInteger longest = new AtomicInteger();
+        for (int pass = 1; ; pass++) {
+            AtomicLong solved = new AtomicLong();
+            int currentPass = pass;
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                Solver solver = new Solver();
+                long count = 0;
+                int end = Math.min(values.length, (chunk + 1) * CHUNK_SIZE);
+                for (int index = chunk * CHUNK_SIZE; index < end; index++) {
+                    if (values[index] != UNSOLVED) {
+                        continue;
+                    }
+                    int value = solver.solve(index, currentPass);
+                    if (value != UNSOLVED) {
+                        values[index] = (short) value;
+                        longest.accumulateAndGet(Math.abs(value), Math::max);
+                        count++;
+                    }
+                }
+                solved.addAndGet(count);
+            });
+            System.out.println("Pass " + pass + ": solved " + solved.get() + " positions");
+            if (solved.get() == 0 && pass > longest.get()) {
+                break;
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == UNSOLVED) {
+                values[i] = 0;
+            }
+        }
+    }
+
+    public void write(Path path) throws Exception {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.write(Tablebase.MAGIC);
+            output.writeInt(maxCards);
+            output.writeInt(armies.length);
+            output.writeInt(Tablebase.TURN_STATES);
+            for (int i = 0; i < armies.length; i++) {
+                output.writeLong(armies[i]);
+                output.writeLong(hands[i]);
+            }
+            for (short value : values) {
+                output.writeShort(value);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: TablebaseGenerator OUTPUT [--cards N]");
+        }
+        int cards = 3;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--cards")) {
+                cards = Integer.parseInt(args[++i]);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown argument '" + args[i] + "'");
+            }
+        }
+        long start = System.nanoTime();
+        TablebaseGenerator generator = new TablebaseGenerator(cards);
+        generator.enumerate();
+        System.out.println("Enumerated " + generator.values.length + " positions in " + generator.armies.length + " combinations");
+        generator.solve();
+        Path output = Path.of(args[0]);
+        generator.write(output);
+        long wins = 0;
+        long losses = 0;
+        for (short value : generator.values) {
+            if (value > 0) {
+                wins++;
+            }
+            else if (value < 0) {
+                losses++;
+            }
+        }
+        System.out.printf("Wins: %d, losses: %d, neither: %d. Wrote %d bytes in %.1fs%n", wins, losses,
+                generator.values.length - wins - losses, Files.size(output), (System.nanoTime() - start) / 1e9);
+    }
+}
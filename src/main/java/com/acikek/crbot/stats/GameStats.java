@@ -0,0 +1,395 @@
+package com.acikek.crbot.stats;
+
+import com.acikek.crbot.core.Action;
+import com.acikek.crbot.core.ActionSet;
+import com.acikek.crbot.core.Card;
+import com.acikek.crbot.core.Player;
+import com.acikek.crbot.record.GameArchive;
+import com.acikek.crbot.record.GameRecord;
+import com.acikek.crbot.record.RecordWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.BinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Archived games as columns of primitives, one row per game, with aggregate queries that scan them in parallel.
+ * <p>
+ * Rows are only ever appended. A query works on a {@link Columns} snapshot, which sees the rows that existed when it
+ * was taken, so games archived while it runs don't need to wait for it.
+ */
+public class GameStats {
+
+    public static final int CHUNK_SIZE = 1 << 14;
+
+    public static final Action.Type[] ACTION_TYPES = {
+            Action.Type.PLACE, Action.Type.MOVE, Action.Type.SERVE, Action.Type.ATTACK, Action.Type.CHASE
+    };
+
+    public static final Card.Type[] CARD_TYPES = Card.Type.values();
+
+    public static final int BOTH_SIDES = 0b11;
+
+    private static final int[] ACTION_INDICES = new int[Action.Type.values().length];
+
+    static {
+        Arrays.fill(ACTION_INDICES, -1);
+        for (int i = 0; i < ACTION_TYPES.length; i++) {
+            ACTION_INDICES[ACTION_TYPES[i].ordinal()] = i;
+        }
+    }
+
+    /**
+     * The rows that existed when it was taken. The arrays may be longer than {@link #size}.
+     * <ul>
+     *     <li>{@link #setups}: the sorted setup powers of black in the low 16 bits and red in the high 16 bits, one
+     *     nibble each, or {@code 0} if the game has no setup.</li>
+     *     <li>{@link #actions}: per player and {@link #ACTION_TYPES} index, how many of those actions they made.</li>
+     *     <li>{@link #cardActions} and {@link #cardAttacks}: per player and {@link Card.Type}, how many actions and
+     *     attacks cards of that type made.</li>
+     * </ul>
+     * Player columns are indexed by {@code player * types + type}, where black is {@code 0} and red is {@code 1}.
+     */
+    public record Columns(int size, int[] turns, byte[] results, byte[] flags, long[] blackIds, long[] redIds,
+                          int[] setups, short[][] actions, short[][] cardActions, short[][] cardAttacks) {
+
+        public boolean matches(int row, long playerId) {
+            return getSides(row, playerId) != 0;
+        }
+
+        /**
+         * @param playerId a user to only count the sides of, or {@code 0} for both sides
+         * @return the sides of the row to count, with bit {@code 0} for black and bit {@code 1} for red, or {@code 0} if
+         * the game doesn't count at all
+         */
+        public int getSides(int row, long playerId) {
+            if ((flags[row] & RecordWriter.CREATIVE) != 0) {
+                return 0;
+            }
+            if (playerId == 0) {
+                return BOTH_SIDES;
+            }
+            return (blackIds[row] == playerId ? 1 : 0) | (redIds[row] == playerId ? 2 : 0);
+        }
+    }
+
+    /**
+     * With a player, {@link #wins} and {@link #losses} count the games the player won and lost. Games they played
+     * against themselves count as neither.
+     */
+    public record Summary(int games, int blackWins, int redWins, int stalemates, int wins, int losses, int normalGames,
+                          long normalTurns, int buildupGames, long buildupTurns) {
+
+        public double getAverageTurns(boolean buildup) {
+            int games = buildup ? buildupGames : normalGames;
+            return games == 0 ? 0 : (double) (buildup ? buildupTurns : normalTurns) / games;
+        }
+    }
+
+    /**
+     * How a setup did, counted once for each counted side that was dealt it. The setup is the sorted {@link Card.Type}s.
+     */
+    public record SetupStats(List<Card.Type> setup, int games, int wins) {
+
+        public double getWinRate() {
+            return (double) wins / games;
+        }
+    }
+
+    /**
+     * How often a card type's attacks on the counted sides of decisive games were made by the winner.
+     */
+    public record CardStats(Card.Type type, long winnerAttacks, long attacks) {
+
+        public double getWinnerShare() {
+            return (double) winnerAttacks / attacks;
+        }
+    }
+
+    private int size;
+    private int[] turns = new int[16];
+    private byte[] results = new byte[16];
+    private byte[] flags = new byte[16];
+    private long[] blackIds = new long[16];
+    private long[] redIds = new long[16];
+    private int[] setups = new int[16];
+    private short[][] actions = new short[2 * ACTION_TYPES.length][16];
+    private short[][] cardActions = new short[2 * CARD_TYPES.length][16];
+    private short[][] cardAttacks = new short[2 * CARD_TYPES.length][16];
+
+    /**
+     * Reads every game in an archive, decoding records in parallel.
+     */
+    public static GameStats load(GameArchive archive) {
+        GameStats stats = new GameStats();
+        List<GameRecord> records = archive.getEntries().parallelStream()
+                .map(entry -> {
+                    try {
+                        return archive.read(entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .toList();
+        for (GameRecord record : records) {
+            stats.add(record);
+        }
+        return stats;
+    }
+
+    private static int getSetup(List<Integer> powers, int from) {
+        int[] sorted = new int[4];
+        for (int i = 0; i < 4; i++) {
+            sorted[i] = powers.get(from + i);
+        }
+        Arrays.sort(sorted);
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            result |= sorted[i] << (i * 4);
+        }
+        return result;
+    }
+
+    private static short[][] grow(short[][] columns, int capacity) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Arrays.copyOf(columns[i], capacity);
+        }
+        return columns;
+    }
+
+    private void ensureCapacity() {
+        if (size < turns.length) {
+            return;
+        }
+        int capacity = turns.length * 2;
+        turns = Arrays.copyOf(turns, capacity);
+        results = Arrays.copyOf(results, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        blackIds = Arrays.copyOf(blackIds, capacity);
+        redIds = Arrays.copyOf(redIds, capacity);
+        setups = Arrays.copyOf(setups, capacity);
+        actions = grow(actions.clone(), capacity);
+        cardActions = grow(cardActions.clone(), capacity);
+        cardAttacks = grow(cardAttacks.clone(), capacity);
+    }
+
+    public synchronized void add(GameRecord record) {
+        ensureCapacity();
+        int row = size;
+        turns[row] = record.turns.size();
+        results[row] = (byte) record.result.ordinal();
+        flags[row] = (byte) RecordWriter.getFlags(record);
+        blackIds[row] = record.blackId;
+        redIds[row] = record.redId;
+        for (int i = 0; i < record.turns.size(); i++) {
+            int player = Player.Type.fromTurn(i) == Player.Type.RED ? 1 : 0;
+            for (ActionSet set : record.turns.get(i).actionSets) {
+                for (Action action : set.actions) {
+                    if (action.type == Action.Type.SETUP && action.target.powers.size() == 8) {
+                        setups[row] = getSetup(action.target.powers, 0) | getSetup(action.target.powers, 4) << 16;
+                    }
+                    int type = ACTION_INDICES[action.type.ordinal()];
+                    if (type == -1 || action.card == null) {
+                        continue;
+                    }
+                    int cardType = action.card.type.ordinal();
+                    actions[player * ACTION_TYPES.length + type][row]++;
+                    cardActions[player * CARD_TYPES.length + cardType][row]++;
+                    if (action.type == Action.Type.ATTACK) {
+                        cardAttacks[player * CARD_TYPES.length + cardType][row]++;
+                    }
+                }
+            }
+        }
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Columns snapshot() {
+        return new Columns(size, turns, results, flags, blackIds, redIds, setups, actions, cardActions, cardAttacks);
+    }
+
+    /**
+     * Runs a scan over each chunk of rows in parallel and merges the results.
+     */
+    public static <T> T scan(Columns columns, ChunkScanner<T> scanner, BinaryOperator<T> merge) {
+        int chunks = (columns.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, Math.max(1, chunks))
+                .parallel()
+                .mapToObj(chunk -> scanner.scan(columns, chunk * CHUNK_SIZE, Math.min(columns.size(), (chunk + 1) * CHUNK_SIZE)))
+                .reduce(merge)
+                .orElseThrow();
+    }
+
+    @FunctionalInterface
+    public interface ChunkScanner<T> {
+        T scan(Columns columns, int from, int to);
+    }
+
+    /**
+     * @param playerId a user to only count the games of, or {@code 0} for everyone
+     */
+    public Summary getSummary(long playerId) {
+        return scan(snapshot(), (columns, from, to) -> {
+            int games = 0, blackWins = 0, redWins = 0, stalemates = 0, wins = 0, losses = 0, normalGames = 0, buildupGames = 0;
+            long normalTurns = 0, buildupTurns = 0;
+            for (int row = from; row < to; row++) {
+                int sides = columns.getSides(row, playerId);
+                if (sides == 0) {
+                    continue;
+                }
+                games++;
+                switch (GameRecord.Result.VALUES[columns.results()[row]]) {
+                    case BLACK -> {
+                        blackWins++;
+                        wins += sides == 0b01 ? 1 : 0;
+                        losses += sides == 0b10 ? 1 : 0;
+                    }
+                    case RED -> {
+                        redWins++;
+                        wins += sides == 0b10 ? 1 : 0;
+                        losses += sides == 0b01 ? 1 : 0;
+                    }
+                    case STALEMATE -> stalemates++;
+                }
+                if ((columns.flags()[row] & RecordWriter.BUILDUP) != 0) {
+                    buildupGames++;
+                    buildupTurns += columns.turns()[row];
+                }
+                else {
+                    normalGames++;
+                    normalTurns += columns.turns()[row];
+                }
+            }
+            return new Summary(games, blackWins, redWins, stalemates, wins, losses, normalGames, normalTurns, buildupGames, buildupTurns);
+        }, (a, b) -> new Summary(a.games() + b.games(), a.blackWins() + b.blackWins(), a.redWins() + b.redWins(),
+                a.stalemates() + b.stalemates(), a.wins() + b.wins(), a.losses() + b.losses(),
+                a.normalGames() + b.normalGames(), a.normalTurns() + b.normalTurns(),
+                a.buildupGames() + b.buildupGames(), a.buildupTurns() + b.buildupTurns()));
+    }
+
+    /**
+     * @return how many actions of each of the {@link #ACTION_TYPES} the counted sides made
+     */
+    public long[] getActionCounts(long playerId) {
+        int types = ACTION_TYPES.length;
+        return scan(snapshot(), (columns, from, to) -> {
+            long[] result = new long[types];
+            for (int row = from; row < to; row++) {
+                int sides = columns.getSides(row, playerId);
+                for (int side = 0; side < 2; side++) {
+                    if ((sides & 1 << side) == 0) {
+                        continue;
+                    }
+                    for (int type = 0; type < types; type++) {
+                        result[type] += columns.actions()[side * types + type][row];
+                    }
+                }
+            }
+            return result;
+        }, GameStats::sum);
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    /**
+     * Packs the card types of a setup, sorted, into one key.
+     */
+    private static int getTypeKey(int setup) {
+        int[] types = new int[4];
+        for (int i = 0; i < 4; i++) {
+            types[i] = Card.Type.fromPower((setup >>> (i * 4)) & 0xF).ordinal();
+        }
+        Arrays.sort(types);
+        return types[0] | types[1] << 3 | types[2] << 6 | types[3] << 9;
+    }
+
+    /**
+     * @return the setups dealt to the counted sides at least {@code minGames} times in decisive games, best first
+     */
+    public List<SetupStats> getSetupWinRates(long playerId, int minGames) {
+        int keys = 1 << 12;
+        long[] counts = scan(snapshot(), (columns, from, to) -> {
+            // The game count in the high 32 bits and the win count in the low 32 bits of each key
+            long[] result = new long[keys];
+            for (int row = from; row < to; row++) {
+                GameRecord.Result gameResult = GameRecord.Result.VALUES[columns.results()[row]];
+                int sides = columns.getSides(row, playerId);
+                if (sides == 0 || columns.setups()[row] == 0
+                        || (gameResult != GameRecord.Result.BLACK && gameResult != GameRecord.Result.RED)) {
+                    continue;
+                }
+                int setup = columns.setups()[row];
+                if ((sides & 0b01) != 0) {
+                    result[getTypeKey(setup & 0xFFFF)] += (1L << 32) + (gameResult == GameRecord.Result.BLACK ? 1 : 0);
+                }
+                if ((sides & 0b10) != 0) {
+                    result[getTypeKey(setup >>> 16)] += (1L << 32) + (gameResult == GameRecord.Result.RED ? 1 : 0);
+                }
+            }
+            return result;
+        }, GameStats::sum);
+        List<SetupStats> result = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            int games = (int) (counts[key] >>> 32);
+            if (games == 0 || games < minGames) {
+                continue;
+            }
+            List<Card.Type> setup = new ArrayList<>(4);
+            for (int i = 0; i < 4; i++) {
+                setup.add(CARD_TYPES[(key >>> (i * 3)) & 0x7]);
+            }
+            result.add(new SetupStats(setup, games, (int) counts[key]));
+        }
+        result.sort(Comparator.comparingDouble(SetupStats::getWinRate).reversed());
+        return result;
+    }
+
+    /**
+     * @return every card type that attacked on a counted side of a decisive game, with the ones whose attacks most often
+     * came from the winner first
+     */
+    public List<CardStats> getDecisiveCardTypes(long playerId) {
+        int types = CARD_TYPES.length;
+        long[] counts = scan(snapshot(), (columns, from, to) -> {
+            long[] result = new long[types * 2];
+            for (int row = from; row < to; row++) {
+                GameRecord.Result gameResult = GameRecord.Result.VALUES[columns.results()[row]];
+                int sides = columns.getSides(row, playerId);
+                if (sides == 0 || (gameResult != GameRecord.Result.BLACK && gameResult != GameRecord.Result.RED)) {
+                    continue;
+                }
+                int winner = gameResult == GameRecord.Result.BLACK ? 0 : 1;
+                for (int side = 0; side < 2; side++) {
+                    if ((sides & 1 << side) == 0) {
+                        continue;
+                    }
+                    for (int type = 0; type < types; type++) {
+                        int attacks = columns.cardAttacks()[side * types + type][row];
+                        result[type] += side == winner ? attacks : 0;
+                        result[types + type] += attacks;
+                    }
+                }
+            }
+            return result;
+        }, GameStats::sum);
+        List<CardStats> result = new ArrayList<>();
+        for (int type = 0; type < types; type++) {
+            if (counts[types + type] > 0) {
+                result.add(new CardStats(CARD_TYPES[type], counts[type], counts[types + type]));
+            }
+        }
+        result.sort(Comparator.comparingDouble(CardStats::getWinnerShare).reversed());
+        return result;
+    }
+}
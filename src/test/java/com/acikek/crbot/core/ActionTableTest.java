@@ -0,0 +1,75 @@
+package com.acikek.crbot.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActionTableTest {
+
+    @Test
+    public void idsRoundTrip() {
+        assertEquals(747, ActionTable.SIZE);
+        assertEquals(PackedAction.PASS, ActionTable.getPacked(ActionTable.PASS));
+        assertEquals(PackedAction.DRAW, ActionTable.getPacked(ActionTable.DRAW));
+        assertEquals(PackedAction.END, ActionTable.getPacked(ActionTable.END));
+        for (int id = 0; id < ActionTable.SIZE; id++) {
+            assertEquals(id, ActionTable.getId(ActionTable.getPacked(id)));
+            if (id != ActionTable.DRAW && id != ActionTable.END) {
+                assertEquals(id, ActionTable.getId(ActionTable.toAction(id)));
+            }
+        }
+        assertEquals(-1, ActionTable.getId(-1));
+        assertEquals(-1, ActionTable.getId(1 << 16));
+        assertFalse(ActionTable.isValid(ActionTable.SIZE));
+    }
+
+    @Test
+    public void notationsAreUniqueAndParse() {
+        Set<String> notations = new HashSet<>();
+        for (int id = 0; id < ActionTable.SIZE; id++) {
+            String notation = ActionTable.getNotation(id);
+            if (id == ActionTable.DRAW || id == ActionTable.END) {
+                assertNull(notation);
+                continue;
+            }
+            assertTrue(notations.add(notation), "duplicate notation " + notation);
+            assertEquals(id, ActionTable.getId(notation));
+            if (id != ActionTable.PASS) {
+                assertEquals(ActionTable.getPacked(id), PackedAction.of(Action.parseTurnString(notation)), notation);
+            }
+        }
+    }
+
+    /**
+     * Every move the generator offers in random games has an ID.
+     */
+    @Test
+    public void coversGeneratedMoves() {
+        SplittableRandom random = new SplittableRandom(14);
+        ActionBuffer moves = new ActionBuffer();
+        Set<Integer> seen = new HashSet<>();
+        for (int game = 0; game < 300; game++) {
+            GameState state = GameState.of(TestGames.play(random.nextLong(), 0));
+            for (int ply = 0; ply < 2000; ply++) {
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    int id = ActionTable.getId(moves.get(i));
+                    assertTrue(ActionTable.isValid(id), "no ID for move " + Integer.toHexString(moves.get(i)));
+                    seen.add(id);
+                }
+                Game.ActionResult result = state.play(moves.get(random.nextInt(count)), count > 1);
+                if (TestGames.isGameOver(result)) {
+                    break;
+                }
+            }
+        }
+        assertTrue(seen.size() > ActionTable.SIZE / 2, "only " + seen.size() + " IDs were generated");
+    }
+}
@@ -0,0 +1,73 @@
+package com.acikek.crbot.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChaseParserTest {
+
+    private static List<String> getTurnStrings(List<Turn> turns) {
+        return turns.stream().map(Turn::toString).toList();
+    }
+
+    @Test
+    public void roundTripsGameFiles() throws IOException {
+        for (long seed = 0; seed < 50; seed++) {
+            Game game = TestGames.play(seed, 10 + (int) seed * 3);
+            String fileData = game.getFileData(Map.of("rec", "Test"));
+            ChaseParser parser = ChaseParser.parse(fileData);
+            assertEquals(getTurnStrings(game.turns), getTurnStrings(parser.turns), "seed " + seed);
+            assertEquals("Test", parser.headers.get("rec"));
+            assertEquals(String.valueOf(game.seed), parser.headers.get(Game.SEED_HEADER));
+            ChaseParser bytes = new ChaseParser(ByteBuffer.wrap(fileData.getBytes(StandardCharsets.US_ASCII))).parse();
+            assertEquals(getTurnStrings(parser.turns), getTurnStrings(bytes.turns));
+            assertEquals(parser.headerValues, bytes.headerValues);
+        }
+    }
+
+    @Test
+    public void readsHeadersCommentsAndLineEndings() {
+        String fileData = "@rec Test # not a comment\r\n"
+                + "# a comment line\r\n"
+                + "\r\n"
+                + "  A2345678  # setup\r\n"
+                + "-\n"
+                + "@snapshot first\n"
+                + "@snapshot second\n"
+                + "8:3m1;2:1p";
+        ChaseParser parser = ChaseParser.parse(fileData);
+        assertEquals("Test # not a comment", parser.headers.get("rec"));
+        assertEquals(List.of("first", "second"), parser.getHeaders("snapshot"));
+        assertEquals("second", parser.headers.get("snapshot"));
+        assertEquals(3, parser.turns.size());
+        assertEquals(List.of(0, 2, 3, 4, 5, 6, 7, 8), parser.turns.get(0).actionSets.get(0).actions.get(0).target.powers);
+        assertSame(Action.PASS, parser.turns.get(1).getLastAction());
+        assertEquals(2, parser.turns.get(2).actionSets.size());
+    }
+
+    private static ChaseParser.ParseException parseError(String fileData) {
+        return assertThrows(ChaseParser.ParseException.class, () -> ChaseParser.parse(fileData));
+    }
+
+    @Test
+    public void reportsErrorLocations() {
+        ChaseParser.ParseException rank = parseError("A2345678\n8:5p");
+        assertEquals(2, rank.line);
+        assertEquals(3, rank.column);
+        assertEquals("Line 2, column 3: Expected a rank from 1 to 4", rank.getMessage());
+        ChaseParser.ParseException setup = parseError("\n  A234567");
+        assertEquals(2, setup.line);
+        assertEquals(3, setup.column);
+        ChaseParser.ParseException action = parseError("8:1z");
+        assertEquals(1, action.line);
+        assertEquals(4, action.column);
+        ChaseParser.ParseException servant = parseError("8+:1m");
+        assertEquals(3, servant.column);
+    }
+}
@@ -0,0 +1,153 @@
+package com.acikek.crbot.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeckTest {
+
+    public static final int POWERS = 14;
+    public static final int DECKS = 200_000;
+    public static final double ALPHA = 0.001;
+
+    /**
+     * The buildup pass as it was written against {@code List<Integer>}, with the same random source.
+     */
+    public static List<Integer> reference(Random random) {
+        List<Integer> cards = new ArrayList<>(Deck.POWERS);
+        cards.addAll(Deck.POWERS);
+        Collections.shuffle(cards, random);
+        for (int i = 0; i < cards.size() / 2; i++) {
+            int power = cards.get(i);
+            if (!Deck.BUILDUP_MAP.containsKey(power)) {
+                continue;
+            }
+            double area = Deck.BUILDUP_MAP.get(power);
+            if ((double) i / cards.size() <= area) {
+                cards.remove(i);
+                int index = random.nextInt((int) (cards.size() * area), cards.size());
+                cards.add(index, power);
+                i--;
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * @return the chi-square statistic of a two-row contingency table, with its degrees of freedom in {@code df[0]}
+     */
+    public static double chiSquare(long[] first, long[] second, int[] df) {
+        long firstTotal = 0;
+        long secondTotal = 0;
+        for (int i = 0; i < first.length; i++) {
+            firstTotal += first[i];
+            secondTotal += second[i];
+        }
+        double total = firstTotal + secondTotal;
+        double result = 0;
+        int columns = 0;
+        for (int i = 0; i < first.length; i++) {
+            long column = first[i] + second[i];
+            if (column == 0) {
+                continue;
+            }
+            columns++;
+            double firstExpected = column * firstTotal / total;
+            double secondExpected = column * secondTotal / total;
+            result += (first[i] - firstExpected) * (first[i] - firstExpected) / firstExpected;
+            result += (second[i] - secondExpected) * (second[i] - secondExpected) / secondExpected;
+        }
+        df[0] = Math.max(1, columns - 1);
+        return result;
+    }
+
+    /**
+     * The upper tail of the chi-square distribution, using the Wilson-Hilferty normal approximation.
+     */
+    public static double pValue(double statistic, int df) {
+        double z = (Math.cbrt(statistic / df) - (1 - 2.0 / (9 * df))) / Math.sqrt(2.0 / (9 * df));
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    private static double erfc(double x) {
+        double t = 1 / (1 + 0.5 * Math.abs(x));
+        double y = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? y : 2 - y;
+    }
+
+    @Test
+    public void shuffleMatchesCollections() {
+        for (long seed = 0; seed < 100; seed++) {
+            List<Integer> cards = new ArrayList<>(Deck.POWERS);
+            cards.addAll(Deck.POWERS);
+            Collections.shuffle(cards, new Random(seed));
+            Deck deck = new Deck(new Random(seed), false);
+            for (int i = 0; i < Deck.SIZE; i++) {
+                assertEquals((int) cards.get(i), deck.getCard(i), "seed " + seed + " position " + i);
+            }
+        }
+    }
+
+    @Test
+    public void buildupKeepsEveryCard() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Deck deck = new Deck(random, true);
+            int[] counts = new int[POWERS];
+            for (int position = 0; position < Deck.SIZE; position++) {
+                counts[deck.getCard(position)]++;
+            }
+            for (int power : Deck.POWERS) {
+                assertEquals(2, counts[power]);
+            }
+        }
+    }
+
+    /**
+     * Deals decks with buildup using both {@link Deck#buildup} and the reference algorithm, and runs a chi-square
+     * homogeneity test on the powers found at each position, with a Bonferroni correction over the positions.
+     */
+    @Test
+    public void buildupMatchesReference() {
+        Random random = new Random(0xC4A5E);
+        long[][] expected = new long[Deck.SIZE][POWERS];
+        long[][] actual = new long[Deck.SIZE][POWERS];
+        for (int i = 0; i < DECKS; i++) {
+            List<Integer> cards = reference(random);
+            for (int position = 0; position < Deck.SIZE; position++) {
+                expected[position][cards.get(position)]++;
+            }
+        }
+        for (int i = 0; i < DECKS; i++) {
+            Deck deck = new Deck(random, true);
+            for (int position = 0; position < Deck.SIZE; position++) {
+                actual[position][deck.getCard(position)]++;
+            }
+        }
+        int[] df = new int[1];
+        for (int position = 0; position < Deck.SIZE; position++) {
+            double statistic = chiSquare(expected[position], actual[position], df);
+            double p = pValue(statistic, df[0]);
+            assertTrue(p >= ALPHA / Deck.SIZE, "position " + position + ": chi2 = " + statistic + ", df = " + df[0] + ", p = " + p);
+        }
+    }
+
+    @Test
+    public void drawingFromAnEmptyDeckThrows() {
+        Deck deck = new Deck(new Random(1), false);
+        List<Integer> drawn = new ArrayList<>();
+        while (deck.getCardCount() > 0) {
+            drawn.add(deck.draw());
+        }
+        assertEquals(Deck.SIZE, drawn.size());
+        assertThrows(IllegalStateException.class, deck::draw);
+        assertEquals(0, deck.getCardCount());
+    }
+}
@@ -0,0 +1,90 @@
+package com.acikek.crbot.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameSealTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void sealedValuesOnlyOpenWithTheirKeyAndContext() {
+        GameSeal seal = GameSeal.generate();
+        byte[] context = "turns".getBytes(StandardCharsets.UTF_8);
+        String sealed = seal.sealSeed(1234, context);
+        assertEquals(1234L, seal.openSeed(sealed, context));
+        assertNotEquals(sealed, seal.sealSeed(1234, context), "every value gets its own IV");
+        assertNull(seal.openSeed(sealed, "other".getBytes(StandardCharsets.UTF_8)));
+        assertNull(GameSeal.generate().openSeed(sealed, context));
+        char last = sealed.charAt(sealed.length() - 1);
+        assertNull(seal.openSeed(sealed.substring(0, sealed.length() - 1) + (last == 'A' ? 'B' : 'A'), context));
+        assertNull(seal.openSeed("not base64!", context));
+        assertNull(seal.openSeed("", context));
+    }
+
+    @Test
+    public void keyFilesAreCreatedAndReused() throws Exception {
+        Path path = directory.resolve("seal.key");
+        GameSeal seal = GameSeal.open(path);
+        byte[] context = new byte[0];
+        assertEquals(7L, GameSeal.open(path).openSeed(seal.sealSeed(7, context), context));
+    }
+
+    @Test
+    public void sealedFilesResumeTheDeal() {
+        GameSeal seal = GameSeal.generate();
+        for (long seed = 0; seed < 20; seed++) {
+            Game game = TestGames.playTurns(seed, 20 + (int) seed * 8);
+            String fileData = game.getFileData(Map.of(), seal);
+            ChaseParser parser = ChaseParser.parse(fileData);
+            assertFalse(parser.headers.containsKey(Game.SEED_HEADER));
+            assertTrue(parser.getHeaders(Game.SNAPSHOT_HEADER).isEmpty(), "snapshots give away the hands too");
+            assertFalse(parser.getHeaders(Game.SEALED_SNAPSHOT_HEADER).isEmpty());
+            Game resumed = Game.load(parser, false, seal);
+            assertEquals(game.seed, resumed.seed, "seed " + seed);
+            assertEquals(GameState.of(game), GameState.of(resumed), "seed " + seed);
+            assertEquals(game.hash, resumed.hash, "seed " + seed);
+        }
+    }
+
+    @Test
+    public void onlySealedSnapshotsAreTrusted() {
+        GameSeal seal = GameSeal.generate();
+        Game game = TestGames.playTurns(5, 60);
+        GameState forged = GameState.of(game);
+        forged.armies ^= 1;
+        String plain = game.getFileData(Map.of(), seal) + "\n@" + Game.SNAPSHOT_HEADER + " " + new Game.Snapshot(game.turns.size(), forged);
+        assertThrows(IllegalArgumentException.class, () -> Game.load(ChaseParser.parse(plain.replaceAll("(?m)^@" + Game.SEALED_SNAPSHOT_HEADER + " .*$", "")), false, seal),
+                "plain snapshots are checked against a full replay");
+        String changed = game.getFileData(Map.of(), seal).replaceAll("(?m)^(@" + Game.SEALED_SNAPSHOT_HEADER + " )A?", "$1B");
+        assertEquals(GameState.of(game), GameState.of(Game.load(ChaseParser.parse(changed), false, seal)), "changed snapshots don't open and are replayed instead");
+    }
+
+    @Test
+    public void unsealedSeedsAreIgnored() {
+        GameSeal seal = GameSeal.generate();
+        Game game = TestGames.playTurns(3, 40);
+        Game plain = Game.load(ChaseParser.parse(game.getFileData(Map.of())), false, seal);
+        assertNotEquals(game.seed, plain.seed);
+        Game other = Game.load(ChaseParser.parse(game.getFileData(Map.of(), GameSeal.generate())), false, seal);
+        assertNotEquals(game.seed, other.seed, "seeds sealed with another key don't open");
+    }
+
+    @Test
+    public void sealedSeedsOnlyOpenWithTheirTurns() {
+        GameSeal seal = GameSeal.generate();
+        Game game = TestGames.playTurns(3, 40);
+        Game fresh = new Game(null, false, 3);
+        fresh.begin();
+        String sealed = ChaseParser.parse(game.getFileData(Map.of(), seal)).headers.get(Game.SEALED_SEED_HEADER);
+        String fileData = fresh.getFileData(Map.of(), seal).replaceAll("(?m)^@" + Game.SEALED_SEED_HEADER + " .*$", "@" + Game.SEALED_SEED_HEADER + " " + sealed);
+        assertNotEquals(game.seed, Game.load(ChaseParser.parse(fileData), false, seal).seed, "a deal can't be reused on other turns");
+    }
+}
@@ -0,0 +1,166 @@
+package com.acikek.crbot.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameTest {
+
+    @Test
+    public void undoIsOffByDefault() {
+        Game game = TestGames.play(1, 200);
+        assertFalse(game.isUndoEnabled());
+        assertFalse(game.canUndo());
+        assertThrows(IllegalStateException.class, game::undo);
+    }
+
+    /**
+     * Plays a move without ending the game's bookkeeping on a win, so every change it makes is undoable.
+     *
+     * @return how many changes the move made
+     */
+    private static int apply(Game game, int move, boolean couldAct) {
+        if (move == PackedAction.DRAW || move == PackedAction.END || move == PackedAction.PASS) {
+            TestGames.play(game, move, couldAct);
+            return 1;
+        }
+        Game.ActionResult result = game.submitAction(PackedAction.toAction(move));
+        if (!TestGames.isGameOver(result) && (result == Game.ActionResult.END_TURN || game.getAvailableActions().isEmpty())) {
+            game.endTurn();
+            return 2;
+        }
+        return 1;
+    }
+
+    @Test
+    public void undoRestoresEveryPosition() {
+        for (long seed = 0; seed < 20; seed++) {
+            Game game = TestGames.play(seed, 10 + (int) seed * 5);
+            game.setUndoEnabled(true);
+            SplittableRandom random = new SplittableRandom(seed);
+            ActionBuffer moves = new ActionBuffer();
+            List<GameState> states = new ArrayList<>();
+            List<Long> hashes = new ArrayList<>();
+            List<Integer> changes = new ArrayList<>();
+            for (int ply = 0; ply < 60; ply++) {
+                GameState state = GameState.of(game);
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                states.add(state);
+                hashes.add(game.hash);
+                changes.add(apply(game, moves.get(random.nextInt(count)), count > 1));
+                assertEquals(Zobrist.hash(game), game.hash, "seed " + seed + " ply " + ply);
+            }
+            for (int i = states.size() - 1; i >= 0; i--) {
+                for (int change = 0; change < changes.get(i); change++) {
+                    game.undo();
+                }
+                assertEquals(states.get(i), GameState.of(game), "seed " + seed + " ply " + i);
+                assertEquals((long) hashes.get(i), game.hash, "seed " + seed + " ply " + i);
+            }
+            assertFalse(game.canUndo());
+        }
+    }
+
+    /**
+     * @return the moves {@link Game} offers in the position, in the order of {@link GameState#getAvailableMoves(ActionBuffer)}
+     */
+    private static List<Integer> getGameMoves(Game game) {
+        List<Integer> result = new ArrayList<>();
+        for (Action action : game.getAvailableActions()) {
+            result.add(PackedAction.of(action));
+        }
+        if (game.canDraw()) {
+            result.add(PackedAction.DRAW);
+        }
+        if (!game.currentTurn.actionSets.isEmpty()) {
+            result.add(PackedAction.END);
+        }
+        return result;
+    }
+
+    @Test
+    public void moveGeneratorsAgreeInLockstep() {
+        ActionBuffer moves = new ActionBuffer();
+        for (long seed = 0; seed < 50; seed++) {
+            SplittableRandom random = new SplittableRandom(seed);
+            Game game = new Game(null, seed % 2 == 0, seed);
+            game.begin();
+            GameState mirror = GameState.of(game);
+            for (int ply = 0; ply < 400; ply++) {
+                GameState state = GameState.of(game);
+                assertEquals(state, mirror, "seed " + seed + " ply " + ply);
+                Game written = new Game(null, game.buildup, seed);
+                written.currentTurn = game.currentTurn;
+                state.write(written);
+                assertEquals(state, GameState.of(written), "seed " + seed + " ply " + ply);
+                assertEquals(game.hash, written.hash, "seed " + seed + " ply " + ply);
+                int count = state.getAvailableMoves(moves);
+                List<Integer> packed = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    packed.add(moves.get(i));
+                }
+                assertEquals(getGameMoves(game), packed, "seed " + seed + " ply " + ply);
+                if (count == 0) {
+                    break;
+                }
+                int move = moves.get(random.nextInt(count));
+                Game.ActionResult mirrorResult = mirror.play(move, count > 1);
+                Game.ActionResult result = TestGames.play(game, move, count > 1);
+                if (TestGames.isGameOver(result)) {
+                    assertEquals(result, mirrorResult, "seed " + seed + " ply " + ply);
+                    break;
+                }
+                // The board's buttons end the turn once no action is left, which the packed play leaves to the caller
+                if (result == Game.ActionResult.END_TURN && mirrorResult == Game.ActionResult.CONTINUE) {
+                    mirror.endTurn();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void snapshotsResumeToTheReplayedPosition() {
+        for (long seed = 0; seed < 20; seed++) {
+            Game game = TestGames.playTurns(seed, 20 + (int) seed * 8);
+            String fileData = game.getFileData(Map.of());
+            Game verified = Game.load(ChaseParser.parse(fileData), false, true);
+            Game resumed = Game.load(ChaseParser.parse(fileData), false, false);
+            assertEquals(GameState.of(game), GameState.of(verified), "seed " + seed);
+            assertEquals(GameState.of(game), GameState.of(resumed), "seed " + seed);
+            assertEquals(game.hash, resumed.hash, "seed " + seed);
+        }
+    }
+
+    @Test
+    public void verifyingRejectsForgedSnapshots() {
+        Game game = TestGames.playTurns(5, 60);
+        Game.Snapshot snapshot = new Game.Snapshot(game.turns.size(), GameState.of(game));
+        GameState forged = GameState.of(game);
+        forged.armies ^= 1;
+        String fileData = game.getFileData(Map.of()).replace(snapshot.toString(), new Game.Snapshot(snapshot.turn(), forged).toString());
+        assertThrows(IllegalArgumentException.class, () -> Game.load(ChaseParser.parse(fileData), false, true));
+        assertEquals(forged, GameState.of(Game.load(ChaseParser.parse(fileData), false, false)));
+    }
+
+    private static String withDraws(String fileData, String draws) {
+        return "@" + Game.DRAWS_HEADER + " " + draws + "\n" + fileData.replaceAll("(?m)^@" + Game.DRAWS_HEADER + " .*\n", "");
+    }
+
+    @Test
+    public void replayRejectsDrawsTheRulesDontAllow() {
+        Game game = TestGames.playTurns(5, 60);
+        String fileData = game.getFileData(Map.of());
+        assertEquals(GameState.of(game), GameState.of(Game.load(ChaseParser.parse(fileData), false, true)));
+        for (String draws : List.of("2:20", "2:3", "2:-1", "2", "2:x", "x:1")) {
+            assertThrows(IllegalArgumentException.class, () -> Game.load(ChaseParser.parse(withDraws(fileData, draws)), false, true), draws);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.acikek.crbot.core;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays seeded random games through {@link Game} for tests, the way the bot plays its moves.
+ */
+public class TestGames {
+
+    public static Game.ActionResult play(Game game, int move, boolean couldAct) {
+        if (move == PackedAction.DRAW) {
+            game.draw();
+            return Game.ActionResult.CONTINUE;
+        }
+        if (move == PackedAction.END) {
+            game.endTurn();
+            return Game.ActionResult.END_TURN;
+        }
+        if (move == PackedAction.PASS) {
+            game.pass(couldAct);
+            return Game.ActionResult.END_TURN;
+        }
+        Game.ActionResult result = game.submitAction(PackedAction.toAction(move));
+        if (isGameOver(result)) {
+            game.turns.add(game.currentTurn);
+        }
+        else if (result == Game.ActionResult.END_TURN || game.getAvailableActions().isEmpty()) {
+            game.endTurn();
+            return Game.ActionResult.END_TURN;
+        }
+        return result;
+    }
+
+    public static boolean isGameOver(Game.ActionResult result) {
+        return result == Game.ActionResult.WIN || result == Game.ActionResult.LOSE || result == Game.ActionResult.STALEMATE;
+    }
+
+    /**
+     * Plays random moves from a fresh deal until the game ends or {@code maxPlies} moves were played.
+     */
+    public static Game play(long seed, int maxPlies) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Game game = new Game(null, false, seed);
+        game.begin();
+        ActionBuffer moves = new ActionBuffer();
+        for (int ply = 0; ply < maxPlies; ply++) {
+            int count = GameState.of(game).getAvailableMoves(moves);
+            if (count == 0 || isGameOver(play(game, moves.get(random.nextInt(count)), count > 1))) {
+                break;
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Plays random moves from a fresh deal until at least {@code minPlies} moves were played and a turn has ended, so the
+     * whole game is in its turns, or until the game ends.
+     */
+    public static Game playTurns(long seed, int minPlies) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Game game = new Game(null, false, seed);
+        game.begin();
+        ActionBuffer moves = new ActionBuffer();
+        for (int ply = 0; ply < minPlies || !game.currentTurn.actionSets.isEmpty() || game.currentTurn.draws != 0; ply++) {
+            int count = GameState.of(game).getAvailableMoves(moves);
+            if (count == 0 || isGameOver(play(game, moves.get(random.nextInt(count)), count > 1))) {
+                break;
+            }
+        }
+        return game;
+    }
+}
@@ -0,0 +1,68 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.core.TestGames;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlphaBetaTest {
+
+    @Test
+    public void stopBeforeSearchIsKept() {
+        GameState state = GameState.of(TestGames.play(3, 20));
+        AlphaBeta search = new AlphaBeta(new TranspositionTable(4));
+        search.stop();
+        AlphaBeta.Result stopped = search.search(state, 6, 0, 0);
+        assertEquals(0, stopped.depth());
+        assertTrue(stopped.nodes() <= 1024);
+        assertEquals(0, search.search(state, 6, 0, 0).depth(), "a stop lasts until it is cleared");
+        search.clearStop();
+        assertEquals(4, search.search(state, 4, 0, 0).depth());
+    }
+
+    @Test
+    public void lazySmpStopBeforeSearchIsKept() {
+        GameState state = GameState.of(TestGames.play(3, 20));
+        LazySmp search = new LazySmp(new TranspositionTable(4), new ForkJoinPool(2));
+        search.stop();
+        assertEquals(0, search.search(state, 6, 0, 0).best().depth());
+        search.clearStop();
+        assertEquals(4, search.search(state, 4, 0, 0).best().depth());
+    }
+
+    @Test
+    public void lazySmpOnOneThreadMatchesPlainSearch() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        for (long seed = 0; seed < 20; seed++) {
+            GameState state = GameState.of(TestGames.play(seed, 5 + (int) seed * 4));
+            AlphaBeta.Result plain = new AlphaBeta(new TranspositionTable(4)).search(state, 5, 0, 0);
+            LazySmp.Result parallel = new LazySmp(new TranspositionTable(4), pool).search(state, 5, 0, 0);
+            String message = "seed " + seed;
+            assertEquals(1, parallel.threads().size(), message);
+            assertArrayEquals(plain.line(), parallel.best().line(), message);
+            assertEquals(plain.score(), parallel.best().score(), message);
+            assertEquals(plain.depth(), parallel.best().depth(), message);
+            assertEquals(plain.nodes(), parallel.best().nodes(), message);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void lazySmpFinishesTheDepthOnEveryThreadCount() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ActionBuffer moves = new ActionBuffer();
+        for (long seed = 0; seed < 10; seed++) {
+            GameState state = GameState.of(TestGames.play(seed, 5 + (int) seed * 4));
+            LazySmp.Result result = new LazySmp(new TranspositionTable(4), pool).search(state, 5, 0, 0);
+            state.getAvailableMoves(moves);
+            assertEquals(4, result.threads().size());
+            assertTrue(result.best().depth() >= 5, "seed " + seed);
+            assertTrue(moves.contains(result.getMove()), "seed " + seed);
+        }
+        pool.shutdown();
+    }
+}
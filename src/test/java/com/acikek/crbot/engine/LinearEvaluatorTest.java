@@ -0,0 +1,102 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.core.TestGames;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class LinearEvaluatorTest {
+
+    /**
+     * Positions from seeded random games, a few from every game.
+     */
+    private static List<GameState> getPositions() {
+        List<GameState> positions = new ArrayList<>();
+        ActionBuffer moves = new ActionBuffer();
+        for (long seed = 0; seed < 300; seed++) {
+            GameState state = GameState.of(TestGames.play(seed, 0));
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int ply = 0; ply < 120; ply++) {
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                if (ply % 7 == 0) {
+                    positions.add(new GameState(state));
+                }
+                Game.ActionResult result = state.play(moves.get(random.nextInt(count)), count > 1);
+                if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                    break;
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static int[] getRandomWeights(SplittableRandom random) {
+        int[] weights = new int[LinearEvaluator.FEATURES];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextInt(-200, 201);
+        }
+        return weights;
+    }
+
+    /**
+     * Fills random batches of the positions, checking each one's scores against the per-state scores.
+     */
+    private static void checkBatches(BatchCheck check) {
+        List<GameState> positions = getPositions();
+        SplittableRandom random = new SplittableRandom(23);
+        for (int round = 0; round < 20; round++) {
+            LinearEvaluator evaluator = round == 0 ? LinearEvaluator.DEFAULT : new LinearEvaluator(getRandomWeights(random));
+            // Sizes that aren't a multiple of any vector length, so the scalar tail runs too
+            int size = 1 + random.nextInt(positions.size());
+            PositionBatch batch = new PositionBatch(size);
+            int[] expected = new int[size];
+            for (int i = 0; i < size; i++) {
+                GameState state = positions.get(random.nextInt(positions.size()));
+                int player = random.nextInt(2);
+                batch.add(state, player);
+                expected[i] = evaluator.evaluate(state, player);
+            }
+            check.check(evaluator, batch, expected, "round " + round);
+        }
+    }
+
+    private interface BatchCheck {
+
+        void check(LinearEvaluator evaluator, PositionBatch batch, int[] expected, String message);
+    }
+
+    @Test
+    public void batchPathsMatchPerStateScores() {
+        checkBatches((evaluator, batch, expected, message) -> {
+            int[] scalar = new int[batch.size];
+            evaluator.evaluateScalar(batch, 0, scalar);
+            int[] combined = new int[batch.size];
+            evaluator.evaluate(batch, combined);
+            assertArrayEquals(expected, scalar, "scalar, " + message);
+            assertArrayEquals(expected, combined, "evaluate, " + message);
+        });
+    }
+
+    @Test
+    public void vectorPathMatchesPerStateScores() {
+        assumeTrue(LinearEvaluator.VECTORIZED, "jdk.incubator.vector isn't available");
+        checkBatches((evaluator, batch, expected, message) -> {
+            int[] vector = new int[batch.size];
+            int start = VectorEvaluation.evaluate(evaluator.getWeights(), batch, vector);
+            assertTrue(start > 0 || batch.size < 16, "no whole vectors in " + batch.size);
+            evaluator.evaluateScalar(batch, start, vector);
+            assertArrayEquals(expected, vector, "vector, " + message);
+        });
+    }
+}
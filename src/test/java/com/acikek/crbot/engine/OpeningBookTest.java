@@ -0,0 +1,112 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.ActionTable;
+import com.acikek.crbot.core.Deck;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.core.Zobrist;
+import com.acikek.crbot.sim.BookCompiler;
+import com.acikek.crbot.sim.Policy;
+import com.acikek.crbot.sim.SelfPlay;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void keyIgnoresTheOpponentsCards() {
+        for (long seed = 0; seed < 50; seed++) {
+            GameState first = new GameState();
+            GameState second = new GameState();
+            SelfPlay.deal(first, new Deck(new SplittableRandom(seed), false), new Deck(new SplittableRandom(seed + 1000), false));
+            SelfPlay.deal(second, new Deck(new SplittableRandom(seed), false), new Deck(new SplittableRandom(seed + 2000), false));
+            assertEquals(GameState.BLACK, first.getCurrentIndex());
+            assertEquals(OpeningBook.getKey(first), OpeningBook.getKey(second));
+            assertNotEquals(Zobrist.hashVisible(first), Zobrist.hashVisible(second));
+        }
+    }
+
+    @Test
+    public void findsEntriesByPosition() throws Exception {
+        GameState state = new GameState();
+        SelfPlay.deal(state, new Deck(new SplittableRandom(1), false), new Deck(new SplittableRandom(2), false));
+        ActionBuffer moves = new ActionBuffer();
+        state.getAvailableMoves(moves);
+        int first = ActionTable.getId(moves.get(0));
+        int second = ActionTable.getId(moves.get(1));
+        long key = OpeningBook.getKey(state);
+        List<OpeningBook.Entry> entries = List.of(
+                new OpeningBook.Entry(key, first, 3, 6),
+                new OpeningBook.Entry(key - 1, first, 50, 100),
+                new OpeningBook.Entry(key, second, 10, 12),
+                new OpeningBook.Entry(key + 1, second, 50, 100));
+        Path path = directory.resolve("book.bin");
+        OpeningBook.write(path, 6, entries);
+        OpeningBook book = OpeningBook.open(path);
+        assertEquals(6, book.maxTurns);
+        assertEquals(4, book.size);
+        assertEquals(List.of(entries.get(2), entries.get(0)), book.probe(state));
+        assertEquals(moves.get(0), book.choose(state, moves, 1));
+        assertEquals(moves.get(1), book.choose(state, moves, 4));
+        assertEquals(-1, book.choose(state, moves, 11));
+    }
+
+    /**
+     * Every game is dealt differently, so a book is only useful if its positions come up again in new deals.
+     */
+    @Test
+    public void hitsPositionsOfNewDeals() throws Exception {
+        BookCompiler compiler = new BookCompiler();
+        compiler.output = directory.resolve("book.bin");
+        compiler.selfPlayGames = 4000;
+        compiler.minGames = 1;
+        compiler.threads = 2;
+        compiler.seed = 1;
+        List<OpeningBook.Entry> entries = compiler.getEntries(compiler.run());
+        assertTrue(entries.stream().allMatch(entry -> OpeningBook.isBookMove(entry.getMove())), "attacks and chases are left to the search");
+        OpeningBook.write(compiler.output, compiler.turns, entries);
+        OpeningBook book = OpeningBook.open(compiler.output);
+        Policy policy = Policy.create("greedy");
+        ActionBuffer moves = new ActionBuffer();
+        int probes = 0;
+        int hits = 0;
+        for (long seed = 0; seed < 500; seed++) {
+            SplittableRandom random = new SplittableRandom(seed * 31 + 7);
+            GameState state = new GameState();
+            SelfPlay.deal(state, new Deck(random.split(), false), new Deck(random.split(), false));
+            for (int turn = 1; turn <= compiler.turns; ) {
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                int player = state.getCurrentIndex();
+                if (count > 1) {
+                    probes++;
+                    int move = book.choose(state, moves, 1);
+                    if (move != -1) {
+                        assertTrue(moves.contains(move));
+                        hits++;
+                    }
+                }
+                Game.ActionResult result = state.play(count == 1 ? moves.get(0) : policy.choose(state, moves, random), count > 1);
+                if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                    break;
+                }
+                if (state.getCurrentIndex() != player) {
+                    turn++;
+                }
+            }
+        }
+        assertTrue(hits * 50 > probes, hits + " hits in " + probes + " probes");
+    }
+}
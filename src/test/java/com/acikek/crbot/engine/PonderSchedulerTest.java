@@ -0,0 +1,115 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.core.TestGames;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PonderSchedulerTest {
+
+    public static final long SLICE_MILLIS = 5;
+    public static final long BUDGET = 40_000_000;
+
+    public static final Mcts MCTS = new Mcts(new ForkJoinPool(2));
+    public static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Test Ponder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            Thread.sleep(5);
+        }
+    }
+
+    public static PonderScheduler start(Game game, long budget, long idleMillis, BooleanSupplier active) {
+        PonderScheduler scheduler = new PonderScheduler(MCTS, EXECUTOR, SLICE_MILLIS, budget, idleMillis, active);
+        scheduler.getPonder(GameState.of(game), 1);
+        scheduler.startWaiting();
+        return scheduler;
+    }
+
+    /**
+     * Plays the first available move, the way the opponent would.
+     */
+    public static int playMove(Game game) {
+        ActionBuffer moves = new ActionBuffer();
+        int count = GameState.of(game).getAvailableMoves(moves);
+        int move = moves.get(0);
+        TestGames.play(game, move, count > 1);
+        return move;
+    }
+
+    @Test
+    public void pondersUntilTheBudget() throws InterruptedException {
+        PonderScheduler scheduler = start(TestGames.play(3, 20), BUDGET, 60_000, () -> true);
+        await(() -> !scheduler.isPondering(), "pondering should stop at the budget");
+        assertTrue(scheduler.getCredit() >= BUDGET);
+        assertTrue(scheduler.hasPonder(), "the trees are kept for the next search");
+    }
+
+    @Test
+    public void stopWaitingStopsPondering() throws InterruptedException {
+        PonderScheduler scheduler = start(TestGames.play(3, 20), Long.MAX_VALUE, 60_000, () -> true);
+        await(() -> scheduler.getCredit() > 0, "pondering should start");
+        scheduler.stopWaiting();
+        await(() -> !scheduler.isPondering(), "pondering should stop after the slice");
+        long credit = scheduler.getCredit();
+        Thread.sleep(SLICE_MILLIS * 10);
+        assertEquals(credit, scheduler.getCredit());
+        assertTrue(scheduler.hasPonder());
+    }
+
+    @Test
+    public void inactiveGamesReleaseTheTrees() throws InterruptedException {
+        AtomicBoolean active = new AtomicBoolean(true);
+        PonderScheduler scheduler = start(TestGames.play(3, 20), Long.MAX_VALUE, 60_000, active::get);
+        await(() -> scheduler.getCredit() > 0, "pondering should start");
+        active.set(false);
+        await(() -> !scheduler.hasPonder(), "an inactive game should drop its trees");
+        assertFalse(scheduler.isPondering());
+        assertEquals(0, scheduler.getCredit());
+    }
+
+    @Test
+    public void idleTreesAreReleased() throws InterruptedException {
+        PonderScheduler scheduler = start(TestGames.play(3, 20), BUDGET, 50, () -> true);
+        await(() -> !scheduler.hasPonder(), "the trees should be dropped once the opponent is idle");
+    }
+
+    @Test
+    public void treesAreKeptOnceThePlayerIsToMove() throws InterruptedException {
+        PonderScheduler scheduler = start(TestGames.play(3, 20), BUDGET, 50, () -> true);
+        await(() -> !scheduler.isPondering(), "pondering should stop at the budget");
+        scheduler.stopWaiting();
+        Thread.sleep(200);
+        assertTrue(scheduler.hasPonder(), "a pending idle release shouldn't drop the trees of a search");
+    }
+
+    @Test
+    public void observedMovesResumePondering() throws InterruptedException {
+        Game game = TestGames.play(3, 20);
+        PonderScheduler scheduler = start(game, BUDGET, 60_000, () -> true);
+        await(() -> !scheduler.isPondering(), "pondering should stop at the budget");
+        int move = playMove(game);
+        scheduler.observe(GameState.of(game), move, false);
+        assertFalse(scheduler.isPondering(), "a move that ends the opponent's turn shouldn't resume pondering");
+        assertTrue(scheduler.getCredit() < BUDGET, "only the trees below the move are left");
+        move = playMove(game);
+        scheduler.observe(GameState.of(game), move, true);
+        await(() -> scheduler.getCredit() >= BUDGET && !scheduler.isPondering(), "pondering should resume below the move");
+        assertTrue(scheduler.hasPonder());
+    }
+}
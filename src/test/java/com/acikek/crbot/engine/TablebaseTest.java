@@ -0,0 +1,134 @@
+package com.acikek.crbot.engine;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.sim.TablebaseGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTest {
+
+    /**
+     * How deep the minimax below looks. Tablebase values beyond it can't be checked.
+     */
+    public static final int DEPTH = 7;
+
+    /**
+     * One in how many positions is checked.
+     */
+    public static final int SAMPLE = 64;
+
+    /**
+     * A position whose value isn't decided within the minimax depth.
+     */
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Plain minimax with the tablebase's values: {@code n > 0} wins in {@code n} plies, {@code n < 0} loses in {@code -n}
+     * plies, and {@code 0} is a stalemate.
+     *
+     * @return the value, or {@link #UNKNOWN} if the game can last longer than {@code depth} plies without either player
+     * forcing it to end sooner
+     */
+    private static int minimax(GameState state, int depth) {
+        ActionBuffer moves = new ActionBuffer();
+        int count = state.getAvailableMoves(moves);
+        if (count == 0) {
+            return 0;
+        }
+        if (depth == 0) {
+            return UNKNOWN;
+        }
+        int player = state.getCurrentIndex();
+        int bestWin = Integer.MAX_VALUE;
+        int worstLoss = 0;
+        boolean unknown = false;
+        boolean stalemate = false;
+        GameState child = new GameState();
+        for (int i = 0; i < count; i++) {
+            child.set(state);
+            Game.ActionResult result = child.play(moves.get(i), count > 1);
+            int value = switch (result) {
+                case WIN -> 1;
+                case LOSE -> -1;
+                case STALEMATE -> 0;
+                default -> {
+                    int childValue = minimax(child, depth - 1);
+                    yield childValue == UNKNOWN ? UNKNOWN : Tablebase.toParent(child.getCurrentIndex() == player ? childValue : -childValue);
+                }
+            };
+            if (value == UNKNOWN) {
+                unknown = true;
+            }
+            else if (value > 0) {
+                bestWin = Math.min(bestWin, value);
+            }
+            else if (value < 0) {
+                worstLoss = Math.min(worstLoss, value);
+            }
+            else {
+                stalemate = true;
+            }
+        }
+        if (bestWin != Integer.MAX_VALUE) {
+            return bestWin;
+        }
+        if (unknown) {
+            return UNKNOWN;
+        }
+        return stalemate ? 0 : worstLoss;
+    }
+
+    @Test
+    public void matchesMinimax() throws Exception {
+        TablebaseGenerator generator = new TablebaseGenerator(3);
+        generator.enumerate();
+        generator.solve();
+        Path path = directory.resolve("tablebase.bin");
+        generator.write(path);
+        Tablebase tablebase = Tablebase.open(path);
+        SplittableRandom random = new SplittableRandom(3);
+        GameState state = new GameState();
+        GameState child = new GameState();
+        ActionBuffer moves = new ActionBuffer();
+        int checked = 0;
+        int decided = 0;
+        for (int i = 0; i < generator.armies.length; i++) {
+            for (int turnState = 0; turnState < Tablebase.TURN_STATES; turnState++) {
+                if (random.nextInt(SAMPLE) != 0) {
+                    continue;
+                }
+                state.set(new GameState());
+                state.armies = generator.armies[i];
+                state.hands = generator.hands[i];
+                Tablebase.setTurnState(state, turnState);
+                int value = tablebase.probe(state);
+                assertNotEquals(Tablebase.NOT_FOUND, value);
+                int expected = minimax(state, DEPTH);
+                String message = "combination " + i + ", turn state " + turnState;
+                if (expected != UNKNOWN) {
+                    assertEquals(expected, value, message);
+                    decided++;
+                }
+                else {
+                    assertTrue(value == 0 || Math.abs(value) > DEPTH, message + ": " + value);
+                }
+                int count = state.getAvailableMoves(moves);
+                if (count > 0) {
+                    assertEquals(value, tablebase.getMoveValue(state, tablebase.getBestMove(state), count > 1, child), message);
+                }
+                checked++;
+            }
+        }
+        assertTrue(decided > checked / 4, decided + " of " + checked + " decided");
+    }
+}
@@ -0,0 +1,44 @@
+package com.acikek.crbot.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void packKeepsFieldsApart() {
+        long data = TranspositionTable.pack(0xBEEF, -1234, 17, TranspositionTable.UPPER, 63);
+        assertEquals(0xBEEF, TranspositionTable.getMove(data));
+        assertEquals(-1234, TranspositionTable.getScore(data));
+        assertEquals(17, TranspositionTable.getDepth(data));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.getBound(data));
+        assertEquals(63, TranspositionTable.getAge(data));
+    }
+
+    @Test
+    public void packClampsDepth() {
+        long negative = TranspositionTable.pack(1, 2, -3, TranspositionTable.LOWER, 5);
+        assertEquals(0, TranspositionTable.getDepth(negative));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(negative));
+        assertEquals(5, TranspositionTable.getAge(negative));
+        assertEquals(255, TranspositionTable.getDepth(TranspositionTable.pack(1, 2, 1000, TranspositionTable.EXACT, 0)));
+    }
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42, 7, 100, 3, TranspositionTable.EXACT);
+        long data = table.probe(42);
+        assertEquals(7, TranspositionTable.getMove(data));
+        assertEquals(100, TranspositionTable.getScore(data));
+        assertEquals(0, table.probe(43));
+        assertEquals(0, table.replacements.sum());
+        // Fill the bucket of key 42 with other positions, so the last store has to replace one
+        long step = table.buckets;
+        for (int i = 1; i <= TranspositionTable.BUCKET_ENTRIES; i++) {
+            table.store(42 + i * step, 1, 0, 10, TranspositionTable.EXACT);
+        }
+        assertEquals(1, table.replacements.sum());
+    }
+}
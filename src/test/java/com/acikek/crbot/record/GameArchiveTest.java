@@ -0,0 +1,164 @@
+package com.acikek.crbot.record;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<GameRecord> records(int from, int to) {
+        List<GameRecord> records = new ArrayList<>();
+        for (int seed = from; seed < to; seed++) {
+            records.add(RecordTest.record(seed));
+        }
+        return records;
+    }
+
+    private static List<GameArchive.Entry> append(GameArchive archive, List<GameRecord> records) throws Exception {
+        List<GameArchive.Entry> entries = new ArrayList<>();
+        for (GameRecord record : records) {
+            entries.add(archive.append(record).get());
+        }
+        return entries;
+    }
+
+    private static void assertRecords(GameArchive archive, List<GameRecord> records) throws IOException {
+        List<GameArchive.Entry> entries = archive.getEntries();
+        assertEquals(records.size(), entries.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i, entries.get(i).index());
+            assertEquals(records.get(i).toChase(), archive.read(entries.get(i)).toChase());
+        }
+    }
+
+    @Test
+    public void roundTripsAcrossSegments() throws Exception {
+        List<GameRecord> records = records(0, 40);
+        try (GameArchive archive = GameArchive.open(directory, 2048)) {
+            append(archive, records);
+            assertRecords(archive, records);
+            assertTrue(archive.getEntries().get(records.size() - 1).segment() > 0);
+        }
+        try (GameArchive archive = GameArchive.open(directory, 2048)) {
+            assertRecords(archive, records);
+            assertEquals(List.of(archive.getEntries().get(7)), archive.findByPlayer(7));
+            assertEquals(List.of(archive.getEntries().get(8)), archive.findByPlayer(-8));
+            LocalDate first = records.get(3).date;
+            assertEquals(archive.getEntries().subList(3, 6), archive.findByDate(first, first.plusDays(2)));
+            for (GameArchive.Entry entry : archive.findByResult(GameRecord.Result.VALUES[1])) {
+                assertEquals(GameRecord.Result.VALUES[1], entry.result());
+            }
+            append(archive, records(40, 45));
+        }
+        try (GameArchive archive = GameArchive.open(directory, 2048)) {
+            assertRecords(archive, records(0, 45));
+        }
+    }
+
+    @Test
+    public void dropsRecordsCutOffBySegment() throws Exception {
+        List<GameRecord> records = records(0, 10);
+        List<GameArchive.Entry> entries;
+        try (GameArchive archive = GameArchive.open(directory)) {
+            entries = append(archive, records);
+        }
+        GameArchive.Entry last = entries.get(entries.size() - 1);
+        try (FileChannel segment = FileChannel.open(directory.resolve("games-00000.crb"), StandardOpenOption.WRITE)) {
+            segment.truncate(last.position() + last.length() / 2);
+        }
+        try (GameArchive archive = GameArchive.open(directory)) {
+            assertRecords(archive, records.subList(0, 9));
+            assertEquals(9L * GameArchive.ENTRY_SIZE, Files.size(directory.resolve(GameArchive.CATALOG_FILE)));
+            GameArchive.Entry entry = archive.append(records.get(9)).get();
+            assertEquals(last.position(), entry.position());
+            assertRecords(archive, records);
+        }
+    }
+
+    @Test
+    public void dropsPartialCatalogEntries() throws Exception {
+        List<GameRecord> records = records(0, 5);
+        try (GameArchive archive = GameArchive.open(directory)) {
+            append(archive, records);
+        }
+        Files.write(directory.resolve(GameArchive.CATALOG_FILE), new byte[GameArchive.ENTRY_SIZE / 2], StandardOpenOption.APPEND);
+        try (GameArchive archive = GameArchive.open(directory)) {
+            assertRecords(archive, records);
+            append(archive, records(5, 8));
+            assertRecords(archive, records(0, 8));
+        }
+    }
+
+    @Test
+    public void cutsOffRecordsMissingFromCatalog() throws Exception {
+        List<GameRecord> records = records(0, 6);
+        try (GameArchive archive = GameArchive.open(directory)) {
+            append(archive, records);
+        }
+        // A record whose catalog entry wasn't written yet
+        Path catalog = directory.resolve(GameArchive.CATALOG_FILE);
+        try (FileChannel channel = FileChannel.open(catalog, StandardOpenOption.WRITE)) {
+            channel.truncate(5L * GameArchive.ENTRY_SIZE);
+        }
+        try (GameArchive archive = GameArchive.open(directory)) {
+            assertRecords(archive, records.subList(0, 5));
+            append(archive, records(10, 12));
+            List<GameRecord> expected = new ArrayList<>(records.subList(0, 5));
+            expected.addAll(records(10, 12));
+            assertRecords(archive, expected);
+        }
+    }
+
+    @Test
+    public void readsWithoutChangingFiles() throws Exception {
+        List<GameRecord> records = records(0, 6);
+        List<GameArchive.Entry> entries;
+        try (GameArchive archive = GameArchive.open(directory)) {
+            entries = append(archive, records);
+        }
+        Path catalog = directory.resolve(GameArchive.CATALOG_FILE);
+        Path segment = directory.resolve("games-00000.crb");
+        GameArchive.Entry last = entries.get(entries.size() - 1);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(last.position() + 1);
+        }
+        Files.write(catalog, new byte[3], StandardOpenOption.APPEND);
+        byte[] catalogBytes = Files.readAllBytes(catalog);
+        byte[] segmentBytes = Files.readAllBytes(segment);
+        try (GameArchive archive = GameArchive.openReadOnly(directory)) {
+            assertRecords(archive, records.subList(0, 5));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> archive.append(records.get(0)).get());
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertArrayEquals(catalogBytes, Files.readAllBytes(catalog));
+        assertArrayEquals(segmentBytes, Files.readAllBytes(segment));
+    }
+
+    @Test
+    public void readsWhileAppending() throws Exception {
+        try (GameArchive archive = GameArchive.open(directory)) {
+            append(archive, records(0, 4));
+            try (GameArchive reader = GameArchive.openReadOnly(directory)) {
+                append(archive, records(4, 8));
+                assertRecords(reader, records(0, 4));
+            }
+            try (GameArchive reader = GameArchive.openReadOnly(directory)) {
+                assertRecords(reader, records(0, 8));
+            }
+        }
+    }
+}
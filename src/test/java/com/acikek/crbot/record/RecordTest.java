@@ -0,0 +1,117 @@
+package com.acikek.crbot.record;
+
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.TestGames;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordTest {
+
+    public static GameRecord record(long seed) {
+        Game game = TestGames.playTurns(seed, 10 + (int) seed * 4);
+        GameRecord record = GameRecord.of(game, "Black " + seed, "Red", LocalDate.of(2024, 1, 1).plusDays(seed), Map.of("event", "Test"));
+        record.result = GameRecord.Result.VALUES[(int) (seed % GameRecord.Result.VALUES.length)];
+        record.blackId = seed;
+        record.redId = -seed;
+        return record;
+    }
+
+    private static byte[] write(List<GameRecord> records) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (RecordWriter writer = new RecordWriter(output)) {
+            for (GameRecord record : records) {
+                writer.write(record);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static RecordReader reader(byte[] bytes) throws IOException {
+        return new RecordReader(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void roundTripsRecords() throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        for (long seed = 0; seed < 30; seed++) {
+            records.add(record(seed));
+        }
+        try (RecordReader reader = reader(write(records))) {
+            for (GameRecord record : records) {
+                GameRecord read = reader.read();
+                assertEquals(record.toChase(), read.toChase());
+                assertEquals(record.blackId, read.blackId);
+                assertEquals(record.redId, read.redId);
+                assertEquals(record.toChase(), RecordReader.decode(RecordWriter.encode(record)).toChase());
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void skipsRecords() throws IOException {
+        List<GameRecord> records = List.of(record(1), record(2), record(3));
+        try (RecordReader reader = reader(write(records))) {
+            assertTrue(reader.skip());
+            assertEquals(records.get(1).toChase(), reader.read().toChase());
+            assertTrue(reader.skip());
+            assertFalse(reader.skip());
+        }
+    }
+
+    /**
+     * @return a record file holding one record length and some bytes after it
+     */
+    private static byte[] withLength(byte... length) {
+        byte[] bytes = Arrays.copyOf(RecordWriter.MAGIC, RecordWriter.MAGIC.length + length.length + 16);
+        System.arraycopy(length, 0, bytes, RecordWriter.MAGIC.length, length.length);
+        return bytes;
+    }
+
+    @Test
+    public void rejectsInvalidLengths() throws IOException {
+        // 0xFFFFFFFF, which wraps to -1
+        byte[] negative = withLength((byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F);
+        assertThrows(IllegalArgumentException.class, () -> reader(negative).read());
+        assertThrows(IllegalArgumentException.class, () -> reader(negative).skip());
+        // 2^28, above the maximum
+        byte[] large = withLength((byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x01);
+        assertThrows(IllegalArgumentException.class, () -> reader(large).read());
+        assertThrows(IllegalArgumentException.class, () -> reader(large).skip());
+        byte[] truncated = withLength((byte) 0x40);
+        assertThrows(EOFException.class, () -> reader(truncated).read());
+        assertThrows(EOFException.class, () -> reader(truncated).skip());
+    }
+
+    @Test
+    public void rejectsCorruptRecords() {
+        SplittableRandom random = new SplittableRandom(17);
+        for (long seed = 0; seed < 20; seed++) {
+            byte[] encoded = RecordWriter.encode(record(seed));
+            for (int i = 0; i < 200; i++) {
+                byte[] corrupt = encoded.clone();
+                corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+                try {
+                    RecordReader.decode(corrupt);
+                }
+                catch (IllegalArgumentException e) {
+                    // Expected for most changes; anything else escaping is a bug
+                }
+            }
+            byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+            assertThrows(IllegalArgumentException.class, () -> RecordReader.decode(truncated));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.acikek.crbot.sim;
+
+import com.acikek.crbot.core.ActionBuffer;
+import com.acikek.crbot.core.Deck;
+import com.acikek.crbot.core.Game;
+import com.acikek.crbot.core.GameState;
+import com.acikek.crbot.engine.Evaluator;
+import com.acikek.crbot.engine.LinearEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolicyTest {
+
+    /**
+     * The greedy policy scores in a batch with a {@link LinearEvaluator} and one position at a time with any other
+     * evaluator, and both must pick the same moves.
+     */
+    @Test
+    public void greedyBatchesOnlyChangeSpeed() {
+        Evaluator wrapped = LinearEvaluator.DEFAULT::evaluate;
+        ActionBuffer moves = new ActionBuffer();
+        for (long seed = 0; seed < 50; seed++) {
+            Policy batched = Policy.greedy(LinearEvaluator.DEFAULT);
+            Policy single = Policy.greedy(wrapped);
+            SplittableRandom random = new SplittableRandom(seed);
+            GameState state = new GameState();
+            SelfPlay.deal(state, new Deck(random.split(), false), new Deck(random.split(), false));
+            for (int ply = 0; ply < 300; ply++) {
+                int count = state.getAvailableMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                long tieSeed = random.nextLong();
+                int move = batched.choose(state, moves, new SplittableRandom(tieSeed));
+                assertEquals(move, single.choose(state, moves, new SplittableRandom(tieSeed)), "seed " + seed + " ply " + ply);
+                Game.ActionResult result = state.play(move, count > 1);
+                if (result != Game.ActionResult.CONTINUE && result != Game.ActionResult.END_TURN) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.acikek.crbot.stats;
+
+import com.acikek.crbot.core.TestGames;
+import com.acikek.crbot.record.GameRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStatsTest {
+
+    private static GameRecord record(long seed, long blackId, long redId, GameRecord.Result result) {
+        GameRecord record = GameRecord.of(TestGames.playTurns(seed, 40), null, null, null, Map.of());
+        record.blackId = blackId;
+        record.redId = redId;
+        record.result = result;
+        return record;
+    }
+
+    @Test
+    public void countsOnlyThePlayersSide() {
+        GameStats stats = new GameStats();
+        stats.add(record(1, 1, 2, GameRecord.Result.BLACK));
+        stats.add(record(2, 2, 1, GameRecord.Result.BLACK));
+        stats.add(record(3, 2, 1, GameRecord.Result.RED));
+        stats.add(record(4, 1, 1, GameRecord.Result.RED));
+        stats.add(record(5, 2, 3, GameRecord.Result.STALEMATE));
+        GameStats.Summary player = stats.getSummary(1);
+        assertEquals(4, player.games());
+        assertEquals(2, player.wins());
+        assertEquals(1, player.losses());
+        GameStats.Summary everyone = stats.getSummary(0);
+        assertEquals(5, everyone.games());
+        assertEquals(2, everyone.blackWins());
+        assertEquals(2, everyone.redWins());
+        assertEquals(1, everyone.stalemates());
+    }
+
+    @Test
+    public void skipsCreativeGames() {
+        GameStats stats = new GameStats();
+        GameRecord record = record(1, 1, 2, GameRecord.Result.BLACK);
+        record.creative = true;
+        stats.add(record);
+        assertEquals(0, stats.getSummary(0).games());
+        assertEquals(0, stats.getSummary(1).games());
+        assertTrue(stats.getSetupWinRates(0, 1).isEmpty());
+    }
+
+    private static int sumGames(List<GameStats.SetupStats> setups) {
+        return setups.stream().mapToInt(GameStats.SetupStats::games).sum();
+    }
+
+    private static int sumWins(List<GameStats.SetupStats> setups) {
+        return setups.stream().mapToInt(GameStats.SetupStats::wins).sum();
+    }
+
+    /**
+     * In games between two players, each side is counted for exactly one of them.
+     */
+    @Test
+    public void splitsSidesBetweenPlayers() {
+        GameStats stats = new GameStats();
+        for (long seed = 0; seed < 200; seed++) {
+            boolean swap = seed % 3 == 0;
+            GameRecord.Result result = seed % 7 == 0 ? GameRecord.Result.STALEMATE
+                    : seed % 2 == 0 ? GameRecord.Result.BLACK : GameRecord.Result.RED;
+            stats.add(record(seed, swap ? 2 : 1, swap ? 1 : 2, result));
+        }
+        GameStats.Summary first = stats.getSummary(1);
+        GameStats.Summary second = stats.getSummary(2);
+        assertEquals(first.wins(), second.losses());
+        assertEquals(first.losses(), second.wins());
+        assertEquals(first.games(), first.wins() + first.losses() + first.stalemates());
+        long[] all = stats.getActionCounts(0);
+        long[] firstActions = stats.getActionCounts(1);
+        long[] secondActions = stats.getActionCounts(2);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(all[i], firstActions[i] + secondActions[i]);
+        }
+        List<GameStats.SetupStats> allSetups = stats.getSetupWinRates(0, 1);
+        List<GameStats.SetupStats> firstSetups = stats.getSetupWinRates(1, 1);
+        List<GameStats.SetupStats> secondSetups = stats.getSetupWinRates(2, 1);
+        assertEquals(sumGames(allSetups), sumGames(firstSetups) + sumGames(secondSetups));
+        assertEquals(sumWins(firstSetups), first.wins());
+        assertEquals(sumWins(secondSetups), second.wins());
+        assertEquals(sumGames(firstSetups), first.wins() + first.losses());
+        long[] attacks = new long[GameStats.CARD_TYPES.length];
+        long[] winnerAttacks = new long[GameStats.CARD_TYPES.length];
+        for (long playerId : new long[] { 1, 2 }) {
+            for (GameStats.CardStats card : stats.getDecisiveCardTypes(playerId)) {
+                attacks[card.type().ordinal()] += card.attacks();
+                winnerAttacks[card.type().ordinal()] += card.winnerAttacks();
+            }
+        }
+        for (GameStats.CardStats card : stats.getDecisiveCardTypes(0)) {
+            assertEquals(card.attacks(), attacks[card.type().ordinal()]);
+            assertEquals(card.winnerAttacks(), winnerAttacks[card.type().ordinal()]);
+        }
+    }
+}